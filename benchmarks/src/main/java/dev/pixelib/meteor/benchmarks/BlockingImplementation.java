@@ -0,0 +1,102 @@
+package dev.pixelib.meteor.benchmarks;
+
+import dev.pixelib.meteor.base.RpcOptions;
+import dev.pixelib.meteor.base.defaults.LoopbackTransport;
+import dev.pixelib.meteor.base.enums.ExecutionMode;
+import dev.pixelib.meteor.core.Meteor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BlockingImplementation {
+
+    // Number of invocations in flight for every benchmark call
+    private static final int CONCURRENT_CALLS = 100;
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENT_CALLS)
+    public void fixedPool(FixedPool deployment) {
+        lookupConcurrently(deployment.lookupStub);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENT_CALLS)
+    public void virtualThreads(VirtualThreads deployment) {
+        lookupConcurrently(deployment.lookupStub);
+    }
+
+    private static void lookupConcurrently(SlowLookup lookupStub) {
+        CompletableFuture<?>[] lookups = new CompletableFuture<?>[CONCURRENT_CALLS];
+        for (int i = 0; i < CONCURRENT_CALLS; i++) {
+            lookups[i] = lookupStub.lookup(i);
+        }
+        CompletableFuture.allOf(lookups).join();
+    }
+
+    // The number of worker threads only matters for the fixed pool, so virtual threads get a state of their own without it
+    @State(Scope.Benchmark)
+    public static class FixedPool {
+        private Meteor meteor;
+        private SlowLookup lookupStub;
+
+        @Param({"1", "10"})
+        private int workerThreads;
+
+        @Setup
+        public void setup() {
+            RpcOptions rpcOptions = new RpcOptions();
+            rpcOptions.setExecutionMode(ExecutionMode.FIXED_POOL);
+            rpcOptions.setExecutorThreads(workerThreads);
+            meteor = new Meteor(new LoopbackTransport(), rpcOptions);
+            meteor.registerImplementation(new SlowLookupImplementation());
+            lookupStub = meteor.registerProcedure(SlowLookup.class);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            meteor.stop();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class VirtualThreads {
+        private Meteor meteor;
+        private SlowLookup lookupStub;
+
+        @Setup
+        public void setup() {
+            RpcOptions rpcOptions = new RpcOptions();
+            rpcOptions.setExecutionMode(ExecutionMode.VIRTUAL_THREADS);
+            meteor = new Meteor(new LoopbackTransport(), rpcOptions);
+            meteor.registerImplementation(new SlowLookupImplementation());
+            lookupStub = meteor.registerProcedure(SlowLookup.class);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            meteor.stop();
+        }
+    }
+
+    public interface SlowLookup {
+        CompletableFuture<Integer> lookup(int key);
+    }
+
+    public static class SlowLookupImplementation implements SlowLookup {
+        @Override
+        public CompletableFuture<Integer> lookup(int key) {
+            // stands in for a database query, or another remote call
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return CompletableFuture.completedFuture(key);
+        }
+    }
+
+}
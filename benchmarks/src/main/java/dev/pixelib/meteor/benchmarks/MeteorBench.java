@@ -17,6 +17,8 @@ public class MeteorBench {
         Options options = new OptionsBuilder()
                 .include(SimpleIncrement.class.getSimpleName())
                 .include(ScoresWithMaps.class.getSimpleName())
+                .include(BlockingImplementation.class.getSimpleName())
+                .include(Serializers.class.getSimpleName())
                 .forks(1)
                 .build();
 
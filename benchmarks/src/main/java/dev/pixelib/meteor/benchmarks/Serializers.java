@@ -0,0 +1,120 @@
+package dev.pixelib.meteor.benchmarks;
+
+import dev.pixelib.meteor.base.RpcSerializer;
+import dev.pixelib.meteor.base.defaults.BinarySerializer;
+import dev.pixelib.meteor.base.defaults.GsonSerializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class Serializers {
+
+    private RpcSerializer serializer;
+
+    private byte[] serializedInt;
+    private byte[] serializedScores;
+    private byte[] serializedProfile;
+
+    // reused between invocations, like the pooled buffer a transport writes into
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    private final HashMap<String, Integer> scores = new HashMap<>();
+    private final Profile profile = new Profile("Notch", 42, Rank.ADMIN, List.of("parkour", "skywars", "bedwars"));
+
+    @Param({"GSON", "BINARY"})
+    private String serializerType;
+
+    @Setup
+    public void setup() {
+        serializer = serializerType.equals("GSON") ? new GsonSerializer() : new BinarySerializer();
+
+        for (int i = 0; i < 50; i++) {
+            scores.put("player" + i, i * 31);
+        }
+
+        serializedInt = serializer.serialize(1337);
+        serializedScores = serializer.serialize(scores);
+        serializedProfile = serializer.serialize(profile);
+    }
+
+    @Benchmark
+    public byte[] serializeInt() {
+        return serializer.serialize(1337);
+    }
+
+    @Benchmark
+    public Integer deserializeInt() {
+        return serializer.deserialize(serializedInt, Integer.class);
+    }
+
+    @Benchmark
+    public byte[] serializeScores() {
+        return serializer.serialize(scores);
+    }
+
+    @Benchmark
+    public HashMap<?, ?> deserializeScores() {
+        return serializer.deserialize(serializedScores, HashMap.class);
+    }
+
+    // the stream variants compare writing into (and reading from) a buffer through an intermediate array with doing it directly
+
+    @Benchmark
+    public int writeScoresAsArray() throws IOException {
+        output.reset();
+        output.write(serializer.serialize(scores));
+        return output.size();
+    }
+
+    @Benchmark
+    public int writeScoresToStream() throws IOException {
+        output.reset();
+        serializer.serialize(scores, output);
+        return output.size();
+    }
+
+    @Benchmark
+    public HashMap<?, ?> readScoresFromStream() throws IOException {
+        return serializer.deserialize(new ByteArrayInputStream(serializedScores), HashMap.class, null);
+    }
+
+    @Benchmark
+    public byte[] serializeProfile() {
+        return serializer.serialize(profile);
+    }
+
+    @Benchmark
+    public Profile deserializeProfile() {
+        return serializer.deserialize(serializedProfile, Profile.class);
+    }
+
+    public enum Rank {
+        PLAYER, ADMIN
+    }
+
+    public static class Profile {
+        private String name;
+        private int level;
+        private Rank rank;
+        private List<String> games;
+
+        public Profile() {
+        }
+
+        public Profile(String name, int level, Rank rank, List<String> games) {
+            this.name = name;
+            this.level = level;
+            this.rank = rank;
+            this.games = games;
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package dev.pixelib.meteor.base;
+
+public interface CompressionCodec {
+
+    /**
+     * @return Identifies the codec in compressed frames, so the receiving side knows how to decompress them.
+     * Must be unique among the codecs in use, and the same on every node.
+     */
+    byte getId();
+
+    /**
+     * @param data   The array holding the bytes to compress
+     * @param offset The index of the first byte to compress
+     * @param length The number of bytes to compress
+     * @return The compressed bytes
+     */
+    byte[] compress(byte[] data, int offset, int length);
+
+    /**
+     * @param data               The compressed bytes
+     * @param uncompressedLength The number of bytes the data was compressed from
+     * @return The decompressed bytes
+     * @throws IllegalArgumentException If the data is corrupt, or doesn't decompress to the given length
+     */
+    byte[] decompress(byte[] data, int uncompressedLength);
+}
@@ -1,29 +1,145 @@
 package dev.pixelib.meteor.base;
 
+import dev.pixelib.meteor.base.defaults.DeflateCodec;
+import dev.pixelib.meteor.base.enums.ExecutionMode;
+import dev.pixelib.meteor.base.enums.OverloadPolicy;
+
 public class RpcOptions {
 
     /**
-     * The amount of time in seconds to wait for a response from the server.
+     * The amount of time in milliseconds to wait for a response from the server.
      * An InvocationTimedOutException will be thrown if the timeout is exceeded.
+     * Can also be configured in whole seconds, through {@link #setTimeoutSeconds(int)}.
      */
-    private int timeoutSeconds = 30;
+    private long timeoutMillis = 30_000;
 
     /**
      * Generated pseudoclass for proxies will be registered with this class loader.
+     * Class names in received packets are resolved against it as well.
      */
     private ClassLoader classLoader = RpcOptions.class.getClassLoader();
 
+    /**
+     * The maximum number of class names to remember when resolving received packets, including names that couldn't be resolved.
+     */
+    private int maxCachedClasses = 1024;
+
     /**
      * The number of threads to use for executing methods on the server.
+     * Only used with the {@link ExecutionMode#FIXED_POOL} and {@link ExecutionMode#PARTITIONED} execution modes, where it's the number of lanes.
      */
     private int executorThreads = 1;
 
+    /**
+     * How received invocations are executed. Implementations that block (on a database, or on another Meteor call) are better
+     * off with {@link ExecutionMode#VIRTUAL_THREADS}, since a fixed pool caps throughput at the number of threads.
+     */
+    private ExecutionMode executionMode = ExecutionMode.FIXED_POOL;
+
+    /**
+     * The maximum number of invocations executed at the same time with the {@link ExecutionMode#VIRTUAL_THREADS} execution mode.
+     * Invocations over the limit wait for their turn. Unlimited when set to 0.
+     */
+    private int maxConcurrentInvocations = 0;
+
+    /**
+     * The maximum number of received invocations waiting to be executed, after which the {@link #overloadPolicy} kicks in.
+     * Applies to the queue of the fixed pool, to every lane with the partitioned execution mode, and to invocations waiting for their turn
+     * with {@link #maxConcurrentInvocations} on virtual threads. Unbounded when set to 0.
+     */
+    private int maxQueuedInvocations = 0;
+
+    /**
+     * What to do with received invocations once {@link #maxQueuedInvocations} are already waiting to be executed.
+     */
+    private OverloadPolicy overloadPolicy = OverloadPolicy.REJECT;
+
+    /**
+     * How long in milliseconds an invocation that was rejected by an overloaded implementation (or failed on one) waits for another
+     * implementation to answer it instead, before it fails with an {@link dev.pixelib.meteor.base.errors.InvocationRejectedException}
+     * (or a {@link dev.pixelib.meteor.base.errors.MethodInvocationException}). Never longer than the timeout.
+     * Only matters with transports that send every invocation to every implementation.
+     */
+    private long rejectionGraceMillis = 50;
+
+    /**
+     * The maximum number of invocations sent by this instance that are still waiting for a response.
+     * Invocations over the limit fail straight away with an {@link dev.pixelib.meteor.base.errors.InvocationRejectedException}. Unlimited when set to 0.
+     */
+    private int maxInFlightInvocations = 0;
+
+    /**
+     * Treat all void methods as one-way invocations, as if they were annotated with {@link dev.pixelib.meteor.base.annotations.OneWay}.
+     * The caller no longer waits for the implementation to finish, and no response is sent back.
+     */
+    private boolean oneWayVoidMethods = false;
+
+    /**
+     * The maximum amount of time in microseconds an invocation may wait to be sent along with others, in a single frame.
+     * Batching is disabled when set to 0, in which case every invocation is sent by itself straight away.
+     * Can't be enabled on transports that stop handing a packet to subscribers once one has handled it (like the loopback transport),
+     * since instances sharing the transport would run the invocations of a batch that were meant for an earlier one all over again.
+     */
+    private long invocationBatchLingerMicros = 0;
+
+    /**
+     * A batch of invocations is sent as soon as it has grown to this many bytes, regardless of the linger time.
+     */
+    private int invocationBatchMaxBytes = 64 * 1024;
+
+    /**
+     * The maximum amount of time in microseconds a response may wait to be sent along with others, in a single frame.
+     * Batched responses are also sent as soon as there are no more invocations being executed.
+     * Batching is disabled when set to 0, in which case every response is sent by itself straight away.
+     */
+    private long responseBatchLingerMicros = 0;
+
+    /**
+     * A batch of responses is sent as soon as it has grown to this many bytes, regardless of the linger time.
+     */
+    private int responseBatchMaxBytes = 64 * 1024;
+
+    /**
+     * Frames of at least this many bytes are compressed before they are sent, if that makes them any smaller.
+     * Compression is disabled when set to 0. Compressed frames can always be received, regardless of this setting.
+     */
+    private int compressionThresholdBytes = 0;
+
+    /**
+     * The codec used to compress frames. Frames compressed by other nodes can be received as long as they use either this codec, or the default one.
+     */
+    private CompressionCodec compressionCodec = new DeflateCodec();
+
+    /**
+     * The maximum size in bytes of a received compressed frame once it's decompressed. Larger frames are rejected without decompressing them.
+     */
+    private int maxFrameBytes = 64 * 1024 * 1024;
+
+    /**
+     * The number of elements of a streamed result that may be on their way to the caller (or waiting to be consumed) at once.
+     * The implementation only sends more once the caller has consumed some of them.
+     */
+    private int streamWindowSize = 256;
+
+    /**
+     * Streamed results are abandoned (and closed) by the implementation when the caller hasn't asked for more elements for this long.
+     */
+    private long streamIdleTimeoutMillis = 60_000;
+
     public int getTimeoutSeconds() {
-        return timeoutSeconds;
+        return (int) (timeoutMillis / 1000);
     }
 
     public void setTimeoutSeconds(int timeoutSeconds) {
-        this.timeoutSeconds = timeoutSeconds;
+        this.timeoutMillis = timeoutSeconds * 1000L;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
     }
 
     public ClassLoader getClassLoader() {
@@ -34,6 +150,14 @@ public class RpcOptions {
         this.classLoader = classLoader;
     }
 
+    public int getMaxCachedClasses() {
+        return maxCachedClasses;
+    }
+
+    public void setMaxCachedClasses(int maxCachedClasses) {
+        this.maxCachedClasses = maxCachedClasses;
+    }
+
     public int getExecutorThreads() {
         return executorThreads;
     }
@@ -42,4 +166,131 @@ public class RpcOptions {
         this.executorThreads = executorThreads;
     }
 
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    public int getMaxConcurrentInvocations() {
+        return maxConcurrentInvocations;
+    }
+
+    public void setMaxConcurrentInvocations(int maxConcurrentInvocations) {
+        this.maxConcurrentInvocations = maxConcurrentInvocations;
+    }
+
+    public int getMaxQueuedInvocations() {
+        return maxQueuedInvocations;
+    }
+
+    public void setMaxQueuedInvocations(int maxQueuedInvocations) {
+        this.maxQueuedInvocations = maxQueuedInvocations;
+    }
+
+    public OverloadPolicy getOverloadPolicy() {
+        return overloadPolicy;
+    }
+
+    public void setOverloadPolicy(OverloadPolicy overloadPolicy) {
+        this.overloadPolicy = overloadPolicy;
+    }
+
+    public long getRejectionGraceMillis() {
+        return rejectionGraceMillis;
+    }
+
+    public void setRejectionGraceMillis(long rejectionGraceMillis) {
+        this.rejectionGraceMillis = rejectionGraceMillis;
+    }
+
+    public int getMaxInFlightInvocations() {
+        return maxInFlightInvocations;
+    }
+
+    public void setMaxInFlightInvocations(int maxInFlightInvocations) {
+        this.maxInFlightInvocations = maxInFlightInvocations;
+    }
+
+    public boolean isOneWayVoidMethods() {
+        return oneWayVoidMethods;
+    }
+
+    public void setOneWayVoidMethods(boolean oneWayVoidMethods) {
+        this.oneWayVoidMethods = oneWayVoidMethods;
+    }
+
+    public long getInvocationBatchLingerMicros() {
+        return invocationBatchLingerMicros;
+    }
+
+    public void setInvocationBatchLingerMicros(long invocationBatchLingerMicros) {
+        this.invocationBatchLingerMicros = invocationBatchLingerMicros;
+    }
+
+    public int getInvocationBatchMaxBytes() {
+        return invocationBatchMaxBytes;
+    }
+
+    public void setInvocationBatchMaxBytes(int invocationBatchMaxBytes) {
+        this.invocationBatchMaxBytes = invocationBatchMaxBytes;
+    }
+
+    public long getResponseBatchLingerMicros() {
+        return responseBatchLingerMicros;
+    }
+
+    public void setResponseBatchLingerMicros(long responseBatchLingerMicros) {
+        this.responseBatchLingerMicros = responseBatchLingerMicros;
+    }
+
+    public int getResponseBatchMaxBytes() {
+        return responseBatchMaxBytes;
+    }
+
+    public void setResponseBatchMaxBytes(int responseBatchMaxBytes) {
+        this.responseBatchMaxBytes = responseBatchMaxBytes;
+    }
+
+    public int getCompressionThresholdBytes() {
+        return compressionThresholdBytes;
+    }
+
+    public void setCompressionThresholdBytes(int compressionThresholdBytes) {
+        this.compressionThresholdBytes = compressionThresholdBytes;
+    }
+
+    public CompressionCodec getCompressionCodec() {
+        return compressionCodec;
+    }
+
+    public void setCompressionCodec(CompressionCodec compressionCodec) {
+        this.compressionCodec = compressionCodec;
+    }
+
+    public int getMaxFrameBytes() {
+        return maxFrameBytes;
+    }
+
+    public void setMaxFrameBytes(int maxFrameBytes) {
+        this.maxFrameBytes = maxFrameBytes;
+    }
+
+    public int getStreamWindowSize() {
+        return streamWindowSize;
+    }
+
+    public void setStreamWindowSize(int streamWindowSize) {
+        this.streamWindowSize = streamWindowSize;
+    }
+
+    public long getStreamIdleTimeoutMillis() {
+        return streamIdleTimeoutMillis;
+    }
+
+    public void setStreamIdleTimeoutMillis(long streamIdleTimeoutMillis) {
+        this.streamIdleTimeoutMillis = streamIdleTimeoutMillis;
+    }
 }
@@ -1,5 +1,10 @@
 package dev.pixelib.meteor.base;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
 public interface RpcSerializer {
 
     /**
@@ -8,6 +13,17 @@ public interface RpcSerializer {
      */
     byte[] serialize(Object obj);
 
+    /**
+     * @param obj the object to serialize
+     * @param output the stream to write the serialized object to, which is usually backed by the buffer of the packet it's sent in
+     * @throws IOException if the stream can't be written to
+     *
+     * serializers that can write to a stream directly should override this, by default the object is serialized to an array first
+     */
+    default void serialize(Object obj, OutputStream output) throws IOException {
+        output.write(serialize(obj));
+    }
+
     /**
      * @param bytes the bytes to deserialize (untrimmed)
      * @param clazz the class to deserialize to
@@ -16,6 +32,34 @@ public interface RpcSerializer {
      */
     <T> T deserialize(byte[] bytes, Class<T> clazz);
 
+    /**
+     * @param bytes the bytes to deserialize (untrimmed)
+     * @param clazz the runtime class of the serialized object, as it was on the serializing side
+     * @param genericType the declared type of the parameter or return value the object is for, including its type arguments (like
+     *                    {@code Map<String, Integer>}), which may be less specific than the class, or null if it isn't known
+     * @param <T> the type of the class to deserialize to
+     * @return the deserialized object
+     *
+     * serializers that can't make use of the declared type (for example because the serialized form is self describing) don't have to implement this
+     */
+    default <T> T deserialize(byte[] bytes, Class<T> clazz, Type genericType) {
+        return deserialize(bytes, clazz);
+    }
+
+    /**
+     * @param input the stream to read from, which ends where the serialized object does
+     * @param clazz the runtime class of the serialized object
+     * @param genericType the declared type of the object, or null, see {@link #deserialize(byte[], Class, Type)}
+     * @param <T> the type of the class to deserialize to
+     * @return the deserialized object
+     * @throws IOException if the stream can't be read from
+     *
+     * serializers that can read from a stream directly should override this, by default the stream is read into an array first
+     */
+    default <T> T deserialize(InputStream input, Class<T> clazz, Type genericType) throws IOException {
+        return deserialize(input.readAllBytes(), clazz, genericType);
+    }
+
     /**
      * @param str the string to deserialize (basic utf, not-localized)
      * @param clazz the class to deserialize to
@@ -4,6 +4,7 @@ import dev.pixelib.meteor.base.enums.Direction;
 import dev.pixelib.meteor.base.interfaces.SubscriptionHandler;
 
 import java.io.Closeable;
+import java.nio.ByteBuffer;
 
 public interface RpcTransport extends Closeable {
 
@@ -14,6 +15,21 @@ public interface RpcTransport extends Closeable {
      */
     void send(Direction direction, byte[] bytes);
 
+    /**
+     * Buffer based variant of {@link #send(Direction, byte[])}, used by Meteor to hand over packets without copying them into an array first.
+     * The packet is the data between the position and the limit of the buffer. The buffer stays owned by the caller and is only
+     * valid for the duration of this call; transports may read (and advance) it, but must copy whatever they need to keep afterwards.
+     * By default, the packet is copied into an array and passed on to {@link #send(Direction, byte[])}.
+     *
+     * @param direction the direction of the packet
+     * @param buffer the packet to send
+     */
+    default void send(Direction direction, ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        send(direction, bytes);
+    }
+
     /**
      * @param target the direction of the packet we want to listen to
      * @param onReceive a function that will be called when a packet is received.
@@ -24,4 +40,13 @@ public interface RpcTransport extends Closeable {
      */
     void subscribe(Direction target, SubscriptionHandler onReceive);
 
+    /**
+     * @return whether a packet is only handed to the subscribers up to the first one that handled it, rather than to all of them.
+     *         Meteor instances sharing such a transport can't tell which packets of a batch the others already handled,
+     *         so invocation batching is refused on them (see {@link RpcOptions#getInvocationBatchLingerMicros()}).
+     */
+    default boolean stopsAtFirstHandler() {
+        return false;
+    }
+
 }
@@ -0,0 +1,37 @@
+package dev.pixelib.meteor.base.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the results of a procedure method on the invoking side, so repeated invocations with equal arguments (and namespace)
+ * are answered locally until the result expires, or is invalidated by a method annotated with {@link Invalidates}.
+ * Only meant for methods without side effects.
+ * <p>
+ * Cached results are handed to every caller as the same instance, so they must be immutable (or at least never modified).
+ * Array arguments are copied into the cache key, other arguments are kept as they are and must not be modified after the call.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cacheable {
+
+    /**
+     * @return How long a result stays cached, must be positive
+     */
+    long ttl();
+
+    /**
+     * @return The unit of {@link #ttl()}
+     */
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+
+    /**
+     * @return The maximum number of cached results for this method (and namespace), the least recently used are evicted first
+     */
+    int maxEntries() default 1024;
+}
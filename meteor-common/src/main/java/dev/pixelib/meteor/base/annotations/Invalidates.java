@@ -0,0 +1,22 @@
+package dev.pixelib.meteor.base.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a procedure method that changes what {@link Cacheable} methods of the same procedure return.
+ * Invoking it clears their cached results for the namespace it was invoked in, on this node and on every other node on the transport.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Invalidates {
+
+    /**
+     * @return The names of the cacheable methods to invalidate, or nothing to invalidate all cacheable methods of the procedure
+     */
+    String[] value() default {};
+}
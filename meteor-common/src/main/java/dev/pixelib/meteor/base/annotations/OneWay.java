@@ -0,0 +1,19 @@
+package dev.pixelib.meteor.base.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a void procedure method as fire-and-forget.
+ * Invocations of this method are sent without waiting for (or even requesting) a response, so the caller
+ * returns as soon as the invocation has been handed to the transport. Failures on the implementation side are not reported back.
+ * Can only be used on methods that return void.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface OneWay {
+}
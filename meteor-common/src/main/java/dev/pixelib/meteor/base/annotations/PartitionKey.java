@@ -0,0 +1,19 @@
+package dev.pixelib.meteor.base.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the parameter that decides which lane an invocation runs on, with the {@link dev.pixelib.meteor.base.enums.ExecutionMode#PARTITIONED} execution mode.
+ * Invocations with equal keys (by {@code equals}/{@code hashCode} of the received value) run one after another, in the order they were received,
+ * while invocations with different keys may run at the same time. Methods without a partition key are partitioned by their namespace.
+ * At most one parameter of a method can be annotated.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface PartitionKey {
+}
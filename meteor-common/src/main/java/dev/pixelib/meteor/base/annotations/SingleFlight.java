@@ -0,0 +1,19 @@
+package dev.pixelib.meteor.base.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Coalesces concurrent invocations of a procedure method with equal arguments (and namespace) on the invoking side.
+ * While an invocation is awaiting its response, identical invocations don't send anything, and get the same response (or failure) instead.
+ * Only meant for methods without side effects. The shared response is handed to every caller, so it should be treated as read-only.
+ * Can't be used on one-way methods, since those don't have a response to share.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface SingleFlight {
+}
@@ -0,0 +1,29 @@
+package dev.pixelib.meteor.base.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overrides the invocation timeout for a single procedure method.
+ * Takes precedence over both the timeout given when registering the procedure, and the global timeout in the options.
+ * Has no effect on one-way methods, since those are never waited on.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Timeout {
+
+    /**
+     * @return The amount of time to wait for a response, must be positive
+     */
+    long value();
+
+    /**
+     * @return The unit of {@link #value()}
+     */
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+}
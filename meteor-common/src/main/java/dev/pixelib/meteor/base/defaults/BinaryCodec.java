@@ -0,0 +1,11 @@
+package dev.pixelib.meteor.base.defaults;
+
+@FunctionalInterface
+interface BinaryCodec {
+
+    /**
+     * Writes values of a single class for the {@link BinarySerializer}, starting with the tag that identifies how they were written.
+     */
+
+    void write(BinarySerializer serializer, BinaryOutput output, Object value);
+}
@@ -0,0 +1,735 @@
+package dev.pixelib.meteor.base.defaults;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+final class BinaryCodecs {
+
+    /**
+     * Creates the codec for a class, the first time a value of that class is written.
+     * Anything that isn't a primitive, string, enum, array, list, set, map, record or plain object with a no-arg constructor is left to Gson.
+     */
+
+    // Tags, written in front of every value
+    static final byte NULL = 0;
+    static final byte FALSE = 1;
+    static final byte TRUE = 2;
+    static final byte BYTE = 3;
+    static final byte SHORT = 4;
+    static final byte CHAR = 5;
+    static final byte INT = 6;
+    static final byte LONG = 7;
+    static final byte FLOAT = 8;
+    static final byte DOUBLE = 9;
+    static final byte STRING = 10;
+    static final byte ENUM = 11;
+    static final byte ARRAY = 12;
+    static final byte LIST = 13;
+    static final byte SET = 14;
+    static final byte MAP = 15;
+    static final byte RECORD = 16;
+    static final byte OBJECT = 17;
+    static final byte JSON = 18;
+
+    // Kinds of collections, so they're read back as the same class (or the closest match)
+    private static final byte ARRAY_LIST = 0;
+    private static final byte LINKED_LIST = 1;
+    private static final byte HASH_SET = 0;
+    private static final byte LINKED_HASH_SET = 1;
+    private static final byte TREE_SET = 2;
+    private static final byte HASH_MAP = 0;
+    private static final byte LINKED_HASH_MAP = 1;
+    private static final byte TREE_MAP = 2;
+    private static final byte CONCURRENT_HASH_MAP = 3;
+    private static final byte ENUM_SET = 3;
+    private static final byte ENUM_MAP = 4;
+
+    // Any other collection or map with a usable no-arg constructor, whose class follows
+    private static final byte CUSTOM = 127;
+
+    // Classes created for collections and maps that are declared as an interface (or abstract class), most specific first
+    private static final List<Class<?>> IMPLEMENTATIONS = List.of(ArrayList.class, LinkedHashSet.class, TreeSet.class, ConcurrentSkipListSet.class,
+            ArrayDeque.class, LinkedHashMap.class, TreeMap.class, ConcurrentHashMap.class, ConcurrentSkipListMap.class);
+
+    private BinaryCodecs() {
+    }
+
+    static BinaryCodec create(Class<?> type) {
+        BinaryCodec fixed = fixedCodec(type);
+        if (fixed != null) {
+            return fixed;
+        }
+
+        if (Enum.class.isAssignableFrom(type)) {
+            // constants with a body are subclasses of their enum
+            return new EnumCodec(type.isEnum() ? type : type.getSuperclass());
+        }
+        if (type.isArray()) {
+            return new ArrayCodec(type.getComponentType());
+        }
+        if (List.class.isAssignableFrom(type) || Set.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+            return new ContainerCodec(type);
+        }
+
+        try {
+            if (type.isRecord()) {
+                return new RecordCodec(type);
+            }
+            if (!isJdkClass(type) && !type.isAnonymousClass() && !type.isLocalClass()) {
+                return new ObjectCodec(type);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // no usable constructor, or the class isn't open to us
+        }
+        return new JsonCodec(type);
+    }
+
+    private static boolean isJdkClass(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.") || name.startsWith("sun.") || name.startsWith("com.sun.");
+    }
+
+    private static BinaryCodec fixedCodec(Class<?> type) {
+        if (type == String.class) {
+            return (serializer, output, value) -> {
+                output.writeByte(STRING);
+                output.writeString((String) value);
+            };
+        }
+        if (type == Integer.class) {
+            return (serializer, output, value) -> {
+                output.writeByte(INT);
+                output.writeSignedVarInt((Integer) value);
+            };
+        }
+        if (type == Long.class) {
+            return (serializer, output, value) -> {
+                output.writeByte(LONG);
+                output.writeSignedVarLong((Long) value);
+            };
+        }
+        if (type == Boolean.class) {
+            return (serializer, output, value) -> output.writeByte((Boolean) value ? TRUE : FALSE);
+        }
+        if (type == Double.class) {
+            return (serializer, output, value) -> {
+                output.writeByte(DOUBLE);
+                output.writeLong(Double.doubleToRawLongBits((Double) value));
+            };
+        }
+        if (type == Float.class) {
+            return (serializer, output, value) -> {
+                output.writeByte(FLOAT);
+                output.writeInt(Float.floatToRawIntBits((Float) value));
+            };
+        }
+        if (type == Byte.class) {
+            return (serializer, output, value) -> {
+                output.writeByte(BYTE);
+                output.writeByte((Byte) value);
+            };
+        }
+        if (type == Short.class) {
+            return (serializer, output, value) -> {
+                output.writeByte(SHORT);
+                output.writeSignedVarInt((Short) value);
+            };
+        }
+        if (type == Character.class) {
+            return (serializer, output, value) -> {
+                output.writeByte(CHAR);
+                output.writeVarInt((Character) value);
+            };
+        }
+        return null;
+    }
+
+    static Collection<Object> readList(BinarySerializer serializer, BinaryInput input) {
+        byte kind = (byte) input.readByte();
+        Collection<Object> list;
+        if (kind == CUSTOM) {
+            list = newCollection(serializer, input.readClass(), LIST);
+        } else if (kind == LINKED_LIST) {
+            list = new LinkedList<>();
+        } else {
+            list = new ArrayList<>();
+        }
+
+        // the class of the list comes before its size
+        int size = input.readLength();
+        if (list instanceof ArrayList<Object> arrayList) {
+            arrayList.ensureCapacity(Math.min(size, 1024));
+        }
+        for (int i = 0; i < size; i++) {
+            list.add(serializer.readValue(input));
+        }
+        return list;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Set<Object> readSet(BinarySerializer serializer, BinaryInput input) {
+        byte kind = (byte) input.readByte();
+        Set<Object> set;
+        if (kind == CUSTOM) {
+            set = (Set<Object>) newCollection(serializer, input.readClass(), SET);
+        } else if (kind == ENUM_SET) {
+            set = EnumSet.noneOf((Class) enumClass(input.readClass()));
+        } else if (kind == HASH_SET) {
+            set = new HashSet<>();
+        } else if (kind == TREE_SET) {
+            set = new TreeSet<>();
+        } else {
+            set = new LinkedHashSet<>();
+        }
+
+        int size = input.readLength();
+        for (int i = 0; i < size; i++) {
+            set.add(serializer.readValue(input));
+        }
+        return set;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Map<Object, Object> readMap(BinarySerializer serializer, BinaryInput input) {
+        byte kind = (byte) input.readByte();
+        Map<Object, Object> map;
+        if (kind == CUSTOM) {
+            map = (Map<Object, Object>) newContainer(serializer, input.readClass(), MAP);
+        } else if (kind == ENUM_MAP) {
+            map = new EnumMap(enumClass(input.readClass()));
+        } else if (kind == HASH_MAP) {
+            map = new HashMap<>();
+        } else if (kind == TREE_MAP) {
+            map = new TreeMap<>();
+        } else if (kind == CONCURRENT_HASH_MAP) {
+            map = new ConcurrentHashMap<>();
+        } else {
+            map = new LinkedHashMap<>();
+        }
+
+        int size = input.readLength();
+        for (int i = 0; i < size; i++) {
+            Object key = serializer.readValue(input);
+            map.put(key, serializer.readValue(input));
+        }
+        return map;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<Object> newCollection(BinarySerializer serializer, Class<?> type, byte tag) {
+        return (Collection<Object>) newContainer(serializer, type, tag);
+    }
+
+    // only constructs classes that were written as a container of the same kind, which the codec of the class checks
+    private static Object newContainer(BinarySerializer serializer, Class<?> type, byte tag) {
+        if (serializer.codecFor(type) instanceof ContainerCodec containerCodec && containerCodec.tag == tag && containerCodec.constructor != null) {
+            return containerCodec.newInstance();
+        }
+        throw new IllegalArgumentException(type.getName() + " can't be read as a collection or map");
+    }
+
+    private static Class<?> enumClass(Class<?> type) {
+        if (!type.isEnum()) {
+            throw new IllegalArgumentException(type.getName() + " is not an enum");
+        }
+        return type;
+    }
+
+    /**
+     * Turn a collection or map that was read back as a different class than the one it's assigned to (like a LinkedHashMap for a field
+     * declared as an EnumMap, or a sorted map that was written without its comparator) into one of the declared class.
+     * @param value The value that was read
+     * @param target The class the value is assigned to, or returned as
+     * @param genericType The declared type, for the element type of enum sets and maps, or null if it isn't known
+     * @return The value itself if it already fits, or can't be made to fit, and a copy of the declared class otherwise
+     */
+    @SuppressWarnings("unchecked")
+    static Object adapt(Object value, Class<?> target, Type genericType) {
+        if (value == null || target.isPrimitive() || target.isInstance(value)) {
+            return value;
+        }
+
+        try {
+            if (value instanceof Map<?, ?> map && Map.class.isAssignableFrom(target)) {
+                Map<Object, Object> adapted = (Map<Object, Object>) newDeclared(target, typeArgument(genericType, 0), map.keySet());
+                if (adapted != null) {
+                    adapted.putAll(map);
+                    return adapted;
+                }
+            } else if (value instanceof Collection<?> collection && Collection.class.isAssignableFrom(target)) {
+                Collection<Object> adapted = (Collection<Object>) newDeclared(target, typeArgument(genericType, 0), collection);
+                if (adapted != null) {
+                    adapted.addAll(collection);
+                    return adapted;
+                }
+            }
+        } catch (RuntimeException e) {
+            // like keys of a sorted map that aren't comparable without the comparator they were sorted by
+            throw new IllegalArgumentException("Failed to read a " + value.getClass().getName() + " as " + target.getName(), e);
+        }
+        return value;
+    }
+
+    // creates an empty instance of the declared class, or of a class implementing it, or returns null if there's no way to
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object newDeclared(Class<?> target, Class<?> elementType, Collection<?> elements) {
+        if (target == EnumMap.class || target == EnumSet.class) {
+            Class<?> enumType = elementType != null && elementType.isEnum() ? elementType : null;
+            if (enumType == null && !elements.isEmpty() && elements.iterator().next() instanceof Enum<?> element) {
+                enumType = element.getDeclaringClass();
+            }
+            if (enumType == null) {
+                return null;
+            }
+            return target == EnumMap.class ? new EnumMap(enumType) : EnumSet.noneOf((Class) enumType);
+        }
+
+        if (target.isInterface() || Modifier.isAbstract(target.getModifiers())) {
+            for (Class<?> implementation : IMPLEMENTATIONS) {
+                if (target.isAssignableFrom(implementation)) {
+                    target = implementation;
+                    break;
+                }
+            }
+        }
+
+        Constructor<?> constructor = containerConstructor(target);
+        if (constructor == null) {
+            return null;
+        }
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static Class<?> typeArgument(Type genericType, int index) {
+        if (genericType instanceof ParameterizedType parameterizedType && parameterizedType.getActualTypeArguments()[index] instanceof Class<?> type) {
+            return type;
+        }
+        return null;
+    }
+
+    // the no-arg constructor of a collection or map class, if it can be used to create it again on read
+    private static Constructor<?> containerConstructor(Class<?> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type.isAnonymousClass() || type.isLocalClass()) {
+            return null;
+        }
+
+        try {
+            // the jdk is only used through its public api, so its private views and immutable collections aren't constructed
+            if (isJdkClass(type)) {
+                return Modifier.isPublic(type.getModifiers()) ? type.getConstructor() : null;
+            }
+
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read a value that is written along with its class, which are enums, records, objects and json.
+     * @param tag The tag of the value, which has already been read
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object readWithClass(BinarySerializer serializer, BinaryInput input, byte tag) {
+        Class<?> type = input.readClass();
+        switch (tag) {
+            case ENUM:
+                if (!type.isEnum()) {
+                    throw new IllegalArgumentException(type.getName() + " is not an enum");
+                }
+                return Enum.valueOf((Class) type, input.readString());
+            case JSON:
+                return GsonSerializer.GSON.fromJson(input.readString(), type);
+            case RECORD:
+                if (serializer.codecFor(type) instanceof RecordCodec recordCodec) {
+                    return recordCodec.read(serializer, input);
+                }
+                throw new IllegalArgumentException(type.getName() + " can't be read as a record");
+            case OBJECT:
+                if (serializer.codecFor(type) instanceof ObjectCodec objectCodec) {
+                    return objectCodec.read(serializer, input);
+                }
+                throw new IllegalArgumentException(type.getName() + " can't be read as an object");
+            default:
+                throw new IllegalArgumentException("Tag " + tag + " isn't followed by a class");
+        }
+    }
+
+    private static final class ContainerCodec implements BinaryCodec {
+        private final Class<?> type;
+        private final byte tag;
+
+        // How values of this class are written, and read back when their class isn't written with them
+        private final byte kind;
+
+        // Creates the container again on read, if it can be, in which case its class is written along with it
+        private final Constructor<?> constructor;
+
+        private ContainerCodec(Class<?> type) {
+            this.type = type;
+            this.constructor = isKnown(type) ? null : containerConstructor(type);
+
+            if (List.class.isAssignableFrom(type)) {
+                tag = LIST;
+                kind = LinkedList.class.isAssignableFrom(type) ? LINKED_LIST : ARRAY_LIST;
+            } else if (Set.class.isAssignableFrom(type)) {
+                tag = SET;
+                kind = type == HashSet.class ? HASH_SET : type == TreeSet.class ? TREE_SET : LINKED_HASH_SET;
+            } else {
+                tag = MAP;
+                kind = type == HashMap.class ? HASH_MAP : type == TreeMap.class ? TREE_MAP : type == ConcurrentHashMap.class ? CONCURRENT_HASH_MAP : LINKED_HASH_MAP;
+            }
+        }
+
+        private static boolean isKnown(Class<?> type) {
+            return type == ArrayList.class || type == LinkedList.class || type == HashSet.class || type == LinkedHashSet.class || type == TreeSet.class
+                    || type == HashMap.class || type == LinkedHashMap.class || type == TreeMap.class || type == ConcurrentHashMap.class;
+        }
+
+        private Object newInstance() {
+            try {
+                return constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Failed to construct " + type.getName(), e);
+            }
+        }
+
+        @Override
+        public void write(BinarySerializer serializer, BinaryOutput output, Object value) {
+            output.writeByte(tag);
+            writeKind(output, value);
+
+            if (value instanceof Map<?, ?> map) {
+                output.writeVarInt(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    serializer.writeValue(output, entry.getKey());
+                    serializer.writeValue(output, entry.getValue());
+                }
+                return;
+            }
+
+            Collection<?> collection = (Collection<?>) value;
+            output.writeVarInt(collection.size());
+            for (Object element : collection) {
+                serializer.writeValue(output, element);
+            }
+        }
+
+        private void writeKind(BinaryOutput output, Object value) {
+            // comparators can't be sent along, so custom orderings are kept as a plain ordered set or map (and sorted again if declared as such)
+            if (value instanceof SortedSet<?> sortedSet && sortedSet.comparator() != null) {
+                output.writeByte(LINKED_HASH_SET);
+                return;
+            }
+            if (value instanceof SortedMap<?, ?> sortedMap && sortedMap.comparator() != null) {
+                output.writeByte(LINKED_HASH_MAP);
+                return;
+            }
+
+            Class<?> enumType = enumTypeOf(value);
+            if (enumType != null) {
+                output.writeByte(tag == SET ? ENUM_SET : ENUM_MAP);
+                output.writeClass(enumType);
+                return;
+            }
+
+            if (constructor != null) {
+                output.writeByte(CUSTOM);
+                output.writeClass(type);
+                return;
+            }
+            output.writeByte(kind);
+        }
+
+        // the enum type of an enum set or map, if it can be told from the outside
+        private static Class<?> enumTypeOf(Object value) {
+            Collection<?> elements;
+            if (value instanceof EnumSet<?> enumSet) {
+                // an empty set still has the rest of the constants of its enum
+                elements = enumSet.isEmpty() ? complementOf(enumSet) : enumSet;
+            } else if (value instanceof EnumMap<?, ?> enumMap) {
+                elements = enumMap.keySet();
+            } else {
+                return null;
+            }
+
+            if (!elements.isEmpty() && elements.iterator().next() instanceof Enum<?> element) {
+                return element.getDeclaringClass();
+            }
+            return null;
+        }
+
+        private static <E extends Enum<E>> EnumSet<E> complementOf(EnumSet<E> enumSet) {
+            return EnumSet.complementOf(enumSet);
+        }
+    }
+
+    private static final class EnumCodec implements BinaryCodec {
+        private final Class<?> enumType;
+
+        private EnumCodec(Class<?> enumType) {
+            this.enumType = enumType;
+        }
+
+        @Override
+        public void write(BinarySerializer serializer, BinaryOutput output, Object value) {
+            output.writeByte(ENUM);
+            output.writeClass(enumType);
+            output.writeString(((Enum<?>) value).name());
+        }
+    }
+
+    private static final class ArrayCodec implements BinaryCodec {
+        private final Class<?> componentType;
+
+        private ArrayCodec(Class<?> componentType) {
+            this.componentType = componentType;
+        }
+
+        @Override
+        public void write(BinarySerializer serializer, BinaryOutput output, Object value) {
+            output.writeByte(ARRAY);
+            output.writeClass(componentType);
+
+            int length = Array.getLength(value);
+            output.writeVarInt(length);
+
+            // primitive elements can't be null or anything but the component type, so they go without a tag
+            if (componentType == byte.class) {
+                output.writeBytes((byte[]) value);
+            } else if (componentType == int.class) {
+                for (int element : (int[]) value) {
+                    output.writeSignedVarInt(element);
+                }
+            } else if (componentType == long.class) {
+                for (long element : (long[]) value) {
+                    output.writeSignedVarLong(element);
+                }
+            } else if (componentType == double.class) {
+                for (double element : (double[]) value) {
+                    output.writeLong(Double.doubleToRawLongBits(element));
+                }
+            } else if (componentType == float.class) {
+                for (float element : (float[]) value) {
+                    output.writeInt(Float.floatToRawIntBits(element));
+                }
+            } else if (componentType == boolean.class) {
+                for (boolean element : (boolean[]) value) {
+                    output.writeByte(element ? 1 : 0);
+                }
+            } else if (componentType == short.class) {
+                for (short element : (short[]) value) {
+                    output.writeSignedVarInt(element);
+                }
+            } else if (componentType == char.class) {
+                for (char element : (char[]) value) {
+                    output.writeVarInt(element);
+                }
+            } else {
+                for (Object element : (Object[]) value) {
+                    serializer.writeValue(output, element);
+                }
+            }
+        }
+    }
+
+    static Object readArray(BinarySerializer serializer, BinaryInput input) {
+        Class<?> componentType = input.readClass();
+        int length = input.readLength();
+
+        if (componentType == byte.class) {
+            return input.readBytes(length);
+        }
+
+        // every element takes at least a byte, so a bogus length fails before allocating anything big
+        Object array = Array.newInstance(componentType, Math.min(length, 1024));
+        for (int i = 0; i < length; i++) {
+            if (i == Array.getLength(array)) {
+                Object grown = Array.newInstance(componentType, Math.min(length, i * 2));
+                System.arraycopy(array, 0, grown, 0, i);
+                array = grown;
+            }
+
+            if (componentType == int.class) {
+                Array.setInt(array, i, input.readSignedVarInt());
+            } else if (componentType == long.class) {
+                Array.setLong(array, i, input.readSignedVarLong());
+            } else if (componentType == double.class) {
+                Array.setDouble(array, i, Double.longBitsToDouble(input.readLong()));
+            } else if (componentType == float.class) {
+                Array.setFloat(array, i, Float.intBitsToFloat(input.readInt()));
+            } else if (componentType == boolean.class) {
+                Array.setBoolean(array, i, input.readByte() != 0);
+            } else if (componentType == short.class) {
+                Array.setShort(array, i, (short) input.readSignedVarInt());
+            } else if (componentType == char.class) {
+                Array.setChar(array, i, (char) input.readVarInt());
+            } else {
+                Array.set(array, i, serializer.readValue(input));
+            }
+        }
+        return array;
+    }
+
+    private static final class RecordCodec implements BinaryCodec {
+        private final Class<?> type;
+        private final Method[] accessors;
+        private final Class<?>[] componentTypes;
+        private final Type[] genericTypes;
+        private final Constructor<?> constructor;
+
+        private RecordCodec(Class<?> type) throws NoSuchMethodException {
+            this.type = type;
+
+            RecordComponent[] components = type.getRecordComponents();
+            this.componentTypes = new Class<?>[components.length];
+            this.genericTypes = new Type[components.length];
+            this.accessors = new Method[components.length];
+            for (int i = 0; i < components.length; i++) {
+                componentTypes[i] = components[i].getType();
+                genericTypes[i] = components[i].getGenericType();
+                accessors[i] = components[i].getAccessor();
+                accessors[i].setAccessible(true);
+            }
+
+            this.constructor = type.getDeclaredConstructor(componentTypes);
+            constructor.setAccessible(true);
+        }
+
+        @Override
+        public void write(BinarySerializer serializer, BinaryOutput output, Object value) {
+            output.writeByte(RECORD);
+            output.writeClass(type);
+            try {
+                for (Method accessor : accessors) {
+                    serializer.writeValue(output, accessor.invoke(value));
+                }
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Failed to read the components of " + type.getName(), e);
+            }
+        }
+
+        private Object read(BinarySerializer serializer, BinaryInput input) {
+            Object[] components = new Object[accessors.length];
+            for (int i = 0; i < components.length; i++) {
+                components[i] = adapt(serializer.readValue(input), componentTypes[i], genericTypes[i]);
+            }
+
+            try {
+                return constructor.newInstance(components);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Failed to construct " + type.getName(), e);
+            }
+        }
+    }
+
+    private static final class ObjectCodec implements BinaryCodec {
+        private final Class<?> type;
+        private final Constructor<?> constructor;
+        private final Field[] fields;
+
+        private ObjectCodec(Class<?> type) throws NoSuchMethodException {
+            this.type = type;
+            this.constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+
+            // superclass fields first, in declaration order, which is the same on both ends as long as the classes are
+            List<Field> fields = new ArrayList<>();
+            collectFields(type, fields);
+            this.fields = fields.toArray(new Field[0]);
+        }
+
+        private static void collectFields(Class<?> type, List<Field> fields) {
+            if (type == null || type == Object.class) {
+                return;
+            }
+
+            collectFields(type.getSuperclass(), fields);
+            for (Field field : type.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+
+        @Override
+        public void write(BinarySerializer serializer, BinaryOutput output, Object value) {
+            output.writeByte(OBJECT);
+            output.writeClass(type);
+            try {
+                for (Field field : fields) {
+                    serializer.writeValue(output, field.get(value));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Failed to read the fields of " + type.getName(), e);
+            }
+        }
+
+        private Object read(BinarySerializer serializer, BinaryInput input) {
+            try {
+                Object value = constructor.newInstance();
+                for (Field field : fields) {
+                    Object fieldValue = adapt(serializer.readValue(input), field.getType(), field.getGenericType());
+                    // leave primitives at their default, rather than failing on a null
+                    if (fieldValue != null || !field.getType().isPrimitive()) {
+                        field.set(value, fieldValue);
+                    }
+                }
+                return value;
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Failed to construct " + type.getName(), e);
+            }
+        }
+    }
+
+    private static final class JsonCodec implements BinaryCodec {
+        private final Class<?> type;
+
+        private JsonCodec(Class<?> type) {
+            this.type = type;
+        }
+
+        @Override
+        public void write(BinarySerializer serializer, BinaryOutput output, Object value) {
+            output.writeByte(JSON);
+            output.writeClass(type);
+            output.writeString(GsonSerializer.GSON.toJson(value));
+        }
+    }
+}
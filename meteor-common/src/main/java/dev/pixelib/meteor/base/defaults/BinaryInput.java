@@ -0,0 +1,126 @@
+package dev.pixelib.meteor.base.defaults;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class BinaryInput {
+
+    /**
+     * Reads what was written by a {@link BinaryOutput}.
+     */
+
+    private final BinarySerializer serializer;
+    private final byte[] bytes;
+    private int position;
+
+    // Classes read so far, in order of their references. Only created once a class has been read.
+    private List<Class<?>> classReferences;
+
+    BinaryInput(BinarySerializer serializer, byte[] bytes) {
+        this.serializer = serializer;
+        this.bytes = bytes;
+    }
+
+    private void require(int count) {
+        if (position + count > bytes.length) {
+            throw new IllegalArgumentException("Unexpected end of data at " + position);
+        }
+    }
+
+    int readByte() {
+        require(1);
+        return bytes[position++];
+    }
+
+    byte[] readBytes(int length) {
+        require(length);
+        byte[] value = new byte[length];
+        System.arraycopy(bytes, position, value, 0, length);
+        position += length;
+        return value;
+    }
+
+    int readVarInt() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at " + position);
+    }
+
+    long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varlong at " + position);
+    }
+
+    int readSignedVarInt() {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    long readSignedVarLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return A length or count, which can't be negative
+     */
+    int readLength() {
+        int length = readVarInt();
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative length at " + position);
+        }
+        return length;
+    }
+
+    int readInt() {
+        require(4);
+        return (bytes[position++] & 0xFF) << 24
+                | (bytes[position++] & 0xFF) << 16
+                | (bytes[position++] & 0xFF) << 8
+                | (bytes[position++] & 0xFF);
+    }
+
+    long readLong() {
+        return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    String readString() {
+        int length = readLength();
+        require(length);
+        String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    Class<?> readClass() {
+        if (classReferences == null) {
+            classReferences = new ArrayList<>();
+        }
+
+        int reference = readVarInt();
+        if (reference == 0) {
+            Class<?> type = serializer.resolveClass(readString());
+            classReferences.add(type);
+            return type;
+        }
+
+        if (reference < 0 || reference > classReferences.size()) {
+            throw new IllegalArgumentException("Unknown class reference " + reference);
+        }
+        return classReferences.get(reference - 1);
+    }
+}
@@ -0,0 +1,143 @@
+package dev.pixelib.meteor.base.defaults;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+class BinaryOutput {
+
+    /**
+     * A growable byte array with the primitive encodings used by the {@link BinarySerializer}.
+     * Integers are written as (zigzag) varints, so small values only take a single byte.
+     * Classes are written by name the first time they occur, and as a reference to that first occurrence after it.
+     */
+
+    private byte[] bytes;
+    private int position;
+
+    // Classes written so far, mapped to their reference. Only created once a class has been written.
+    private Map<Class<?>, Integer> classReferences;
+
+    BinaryOutput(int initialCapacity) {
+        this.bytes = new byte[initialCapacity];
+    }
+
+    /**
+     * Clear the output, so it can be reused for the next value.
+     */
+    void reset() {
+        position = 0;
+        if (classReferences != null) {
+            classReferences.clear();
+        }
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, position);
+    }
+
+    void writeTo(OutputStream output) throws IOException {
+        output.write(bytes, 0, position);
+    }
+
+    int capacity() {
+        return bytes.length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (position + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + extra));
+        }
+    }
+
+    void writeByte(int value) {
+        ensureCapacity(1);
+        bytes[position++] = (byte) value;
+    }
+
+    void writeBytes(byte[] value) {
+        ensureCapacity(value.length);
+        System.arraycopy(value, 0, bytes, position, value.length);
+        position += value.length;
+    }
+
+    void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+    }
+
+    void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+    }
+
+    void writeSignedVarInt(int value) {
+        // zigzag, so small negative numbers stay small as well
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeInt(int value) {
+        ensureCapacity(4);
+        bytes[position++] = (byte) (value >>> 24);
+        bytes[position++] = (byte) (value >>> 16);
+        bytes[position++] = (byte) (value >>> 8);
+        bytes[position++] = (byte) value;
+    }
+
+    void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    void writeString(String value) {
+        int length = value.length();
+
+        // most strings are plain ascii, which can be copied over without encoding them first
+        ensureCapacity(5 + length);
+        int start = position;
+        writeVarInt(length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                position = start;
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(encoded.length);
+                writeBytes(encoded);
+                return;
+            }
+            bytes[position++] = (byte) c;
+        }
+    }
+
+    void writeClass(Class<?> type) {
+        if (classReferences == null) {
+            classReferences = new IdentityHashMap<>();
+        }
+
+        // references start at 1, 0 means the name follows
+        Integer reference = classReferences.get(type);
+        if (reference != null) {
+            writeVarInt(reference);
+            return;
+        }
+
+        classReferences.put(type, classReferences.size() + 1);
+        writeVarInt(0);
+        writeString(type.getName());
+    }
+}
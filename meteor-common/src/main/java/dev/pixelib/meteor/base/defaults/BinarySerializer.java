@@ -0,0 +1,253 @@
+package dev.pixelib.meteor.base.defaults;
+
+import dev.pixelib.meteor.base.RpcOptions;
+import dev.pixelib.meteor.base.RpcSerializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class BinarySerializer implements RpcSerializer {
+
+    /**
+     * A compact binary serializer, which only depends on the JDK.
+     * Every value starts with a tag identifying its type, so values in collections, maps, records and objects keep their exact type
+     * (where Gson would turn every number in a map into a double, for example). Integers are written as varints, strings as utf-8,
+     * and class names only once per serialized value.
+     * <p>
+     * Primitives, strings, enums, arrays, lists, sets, maps, records and classes with a no-arg constructor are written by codecs which are
+     * created the first time their class is seen. Fields are written by position, so both ends need the same version of those classes
+     * (just like they need the same procedure interfaces). Anything else, like JDK classes without a dedicated codec, is written by Gson.
+     * <p>
+     * Lists, sets and maps of other classes than the common JDK ones are written along with their class, and constructed again on read.
+     * Those that can't be (like immutable collections) are read back as the closest common class, and copied into the declared class of
+     * the field, record component or deserialized value if that doesn't fit.
+     */
+
+    // Scratch output per thread, so serializing only allocates the returned array. Dropped if a large value made it grow too much.
+    private static final int SCRATCH_CAPACITY = 256;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<BinaryOutput> SCRATCH = ThreadLocal.withInitial(() -> new BinaryOutput(SCRATCH_CAPACITY));
+
+    private static final Map<String, Class<?>> PRIMITIVES = Map.of(
+            "boolean", boolean.class,
+            "byte", byte.class,
+            "short", short.class,
+            "char", char.class,
+            "int", int.class,
+            "long", long.class,
+            "float", float.class,
+            "double", double.class
+    );
+
+    // Placeholder for names that didn't resolve to a class, so they aren't looked up again for every value that names them
+    private static final Object MISSING = new Object();
+
+    private static final int DEFAULT_MAX_CACHED_CLASSES = 1024;
+
+    private final ClassValue<BinaryCodec> codecs = new ClassValue<>() {
+        @Override
+        protected BinaryCodec computeValue(Class<?> type) {
+            return BinaryCodecs.create(type);
+        }
+    };
+
+    private final ClassLoader classLoader;
+    private final int maxCachedClasses;
+
+    // Either a Class, or MISSING. Cleared once it's full, like the class resolver of Meteor itself.
+    private final Map<String, Object> classes = new ConcurrentHashMap<>();
+
+    public BinarySerializer() {
+        this(BinarySerializer.class.getClassLoader());
+    }
+
+    /**
+     * @param options The options of the Meteor instance this serializer is used by, for its class loader and class cache size
+     */
+    public BinarySerializer(RpcOptions options) {
+        this(options.getClassLoader(), options.getMaxCachedClasses());
+    }
+
+    /**
+     * @param classLoader The class loader to resolve the classes of nested values with
+     */
+    public BinarySerializer(ClassLoader classLoader) {
+        this(classLoader, DEFAULT_MAX_CACHED_CLASSES);
+    }
+
+    /**
+     * @param classLoader      The class loader to resolve the classes of nested values with
+     * @param maxCachedClasses The maximum number of resolved (and missing) class names to remember
+     */
+    public BinarySerializer(ClassLoader classLoader, int maxCachedClasses) {
+        if (maxCachedClasses < 1) {
+            throw new IllegalArgumentException("maxCachedClasses must be at least 1");
+        }
+
+        this.classLoader = classLoader;
+        this.maxCachedClasses = maxCachedClasses;
+    }
+
+    /**
+     * @param obj the object to serialize
+     * @return the serialized object as a byte array
+     */
+    @Override
+    public byte[] serialize(Object obj) {
+        BinaryOutput output = SCRATCH.get();
+        output.reset();
+        try {
+            writeValue(output, obj);
+            return output.toByteArray();
+        } finally {
+            if (output.capacity() > MAX_RETAINED_CAPACITY) {
+                SCRATCH.remove();
+            }
+        }
+    }
+
+    /**
+     * @param obj the object to serialize
+     * @param output the stream to write the serialized object to, without copying it into an array of its own first
+     */
+    @Override
+    public void serialize(Object obj, OutputStream output) throws IOException {
+        BinaryOutput scratch = SCRATCH.get();
+        scratch.reset();
+        try {
+            writeValue(scratch, obj);
+            scratch.writeTo(output);
+        } finally {
+            if (scratch.capacity() > MAX_RETAINED_CAPACITY) {
+                SCRATCH.remove();
+            }
+        }
+    }
+
+    /**
+     * @param bytes the bytes to deserialize
+     * @param clazz the class to deserialize to, which the value carries itself (collections and maps that were written without their class
+     *              are copied into one of this class)
+     * @param <T> the type of the class to deserialize to
+     * @return the deserialized object
+     * @throws IllegalArgumentException if the bytes weren't written by this serializer, or name a class that can't be found
+     */
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> clazz) {
+        return deserialize(bytes, clazz, null);
+    }
+
+    /**
+     * @param bytes the bytes to deserialize
+     * @param clazz the runtime class of the serialized object
+     * @param genericType the declared type of the object, for the enum type of an empty enum set or map, or null
+     * @param <T> the type of the class to deserialize to
+     * @return the deserialized object
+     * @throws IllegalArgumentException if the bytes weren't written by this serializer, or name a class that can't be found
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(byte[] bytes, Class<T> clazz, Type genericType) {
+        return (T) BinaryCodecs.adapt(readValue(new BinaryInput(this, bytes)), clazz, genericType);
+    }
+
+    /**
+     * @param str the string to deserialize, holding one character per serialized byte (as iso-8859-1)
+     * @param clazz the class to deserialize to
+     * @param <T> the type of the class to deserialize to
+     * @return the deserialized object
+     */
+    @Override
+    public <T> T deserialize(String str, Class<T> clazz) {
+        return deserialize(str.getBytes(StandardCharsets.ISO_8859_1), clazz);
+    }
+
+    BinaryCodec codecFor(Class<?> type) {
+        return codecs.get(type);
+    }
+
+    void writeValue(BinaryOutput output, Object value) {
+        if (value == null) {
+            output.writeByte(BinaryCodecs.NULL);
+            return;
+        }
+        codecs.get(value.getClass()).write(this, output, value);
+    }
+
+    Object readValue(BinaryInput input) {
+        byte tag = (byte) input.readByte();
+        switch (tag) {
+            case BinaryCodecs.NULL:
+                return null;
+            case BinaryCodecs.FALSE:
+                return false;
+            case BinaryCodecs.TRUE:
+                return true;
+            case BinaryCodecs.BYTE:
+                return (byte) input.readByte();
+            case BinaryCodecs.SHORT:
+                return (short) input.readSignedVarInt();
+            case BinaryCodecs.CHAR:
+                return (char) input.readVarInt();
+            case BinaryCodecs.INT:
+                return input.readSignedVarInt();
+            case BinaryCodecs.LONG:
+                return input.readSignedVarLong();
+            case BinaryCodecs.FLOAT:
+                return Float.intBitsToFloat(input.readInt());
+            case BinaryCodecs.DOUBLE:
+                return Double.longBitsToDouble(input.readLong());
+            case BinaryCodecs.STRING:
+                return input.readString();
+            case BinaryCodecs.ARRAY:
+                return BinaryCodecs.readArray(this, input);
+            case BinaryCodecs.LIST:
+                return BinaryCodecs.readList(this, input);
+            case BinaryCodecs.SET:
+                return BinaryCodecs.readSet(this, input);
+            case BinaryCodecs.MAP:
+                return BinaryCodecs.readMap(this, input);
+            case BinaryCodecs.ENUM:
+            case BinaryCodecs.RECORD:
+            case BinaryCodecs.OBJECT:
+            case BinaryCodecs.JSON:
+                return BinaryCodecs.readWithClass(this, input, tag);
+            default:
+                throw new IllegalArgumentException("Unknown tag " + tag);
+        }
+    }
+
+    Class<?> resolveClass(String name) {
+        Class<?> primitive = PRIMITIVES.get(name);
+        if (primitive != null) {
+            return primitive;
+        }
+
+        Object cached = classes.get(name);
+        if (cached == null) {
+            cached = load(name);
+
+            if (classes.size() >= maxCachedClasses) {
+                classes.clear();
+            }
+            classes.put(name, cached);
+        }
+
+        if (cached == MISSING) {
+            throw new IllegalArgumentException("Class not found: " + name);
+        }
+        return (Class<?>) cached;
+    }
+
+    private Object load(String name) {
+        try {
+            return Class.forName(name, false, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return MISSING;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package dev.pixelib.meteor.base.defaults;
+
+import dev.pixelib.meteor.base.CompressionCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public class DeflateCodec implements CompressionCodec {
+
+    /**
+     * Compresses with the deflate algorithm from the JDK, without the zlib header and checksum (the frame is already length checked).
+     * Defaults to the fastest compression level, since invocations are usually waited on.
+     */
+
+    public static final byte ID = 1;
+
+    private final int level;
+
+    public DeflateCodec() {
+        this(Deflater.BEST_SPEED);
+    }
+
+    /**
+     * @param level The compression level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     */
+    public DeflateCodec(int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("level must be between " + Deflater.BEST_SPEED + " and " + Deflater.BEST_COMPRESSION);
+        }
+        this.level = level;
+    }
+
+    @Override
+    public byte getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] compress(byte[] data, int offset, int length) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, length / 2));
+            byte[] chunk = new byte[Math.min(Math.max(64, length), 16 * 1024)];
+            while (!deflater.finished()) {
+                int written = deflater.deflate(chunk);
+                output.write(chunk, 0, written);
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int uncompressedLength) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            byte[] output = new byte[uncompressedLength];
+            int read = 0;
+            while (read < uncompressedLength && !inflater.finished()) {
+                int inflated = inflater.inflate(output, read, uncompressedLength - read);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += inflated;
+            }
+
+            if (read != uncompressedLength) {
+                throw new IllegalArgumentException("Compressed data inflated to " + read + " bytes instead of " + uncompressedLength);
+            }
+            return output;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Compressed data is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
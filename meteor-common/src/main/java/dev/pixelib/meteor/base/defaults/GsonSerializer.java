@@ -1,8 +1,26 @@
 package dev.pixelib.meteor.base.defaults;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
 import dev.pixelib.meteor.base.RpcSerializer;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class GsonSerializer implements RpcSerializer {
 
     /**
@@ -11,6 +29,17 @@ public class GsonSerializer implements RpcSerializer {
      */
     public static final Gson GSON = new Gson();
 
+    // type adapters by runtime class, for serializing
+    private final ClassValue<TypeAdapter<?>> classAdapters = new ClassValue<>() {
+        @Override
+        protected TypeAdapter<?> computeValue(Class<?> type) {
+            return GSON.getAdapter(type);
+        }
+    };
+
+    // type adapters by runtime class and declared type, for deserializing. resolving the type to read takes some reflection, so it's only done once
+    private final Map<TypeKey, TypeAdapter<?>> typeAdapters = new ConcurrentHashMap<>();
+
     /**
      * @param obj the object to serialize
      * @return the serialized object as a byte array
@@ -19,7 +48,29 @@ public class GsonSerializer implements RpcSerializer {
      */
     @Override
     public byte[] serialize(Object obj) {
-        return GSON.toJson(obj).getBytes();
+        if (obj == null) {
+            return GSON.toJson(null).getBytes(StandardCharsets.UTF_8);
+        }
+        StringWriter writer = new StringWriter();
+        write(classAdapters.get(obj.getClass()), obj, writer);
+        return writer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param obj the object to serialize
+     * @param output the stream to write the serialized object to
+     *
+     * the json is encoded as utf-8 straight into the stream, without building a string or byte array first
+     */
+    @Override
+    public void serialize(Object obj, OutputStream output) throws IOException {
+        if (obj == null) {
+            Utf8Writer writer = new Utf8Writer(output);
+            GSON.toJson(null, writer);
+            writer.flush();
+            return;
+        }
+        write(classAdapters.get(obj.getClass()), obj, new Utf8Writer(output));
     }
 
     /**
@@ -32,7 +83,38 @@ public class GsonSerializer implements RpcSerializer {
      */
     @Override
     public <T> T deserialize(byte[] bytes, Class<T> clazz) {
-        return GSON.fromJson(new String(bytes), clazz);
+        return GSON.fromJson(new String(bytes, StandardCharsets.UTF_8), clazz);
+    }
+
+    /**
+     * @param bytes the bytes to deserialize
+     * @param clazz the runtime class of the serialized object
+     * @param genericType the declared type of the object, or null
+     * @param <T> the type of the class to deserialize to
+     * @return the deserialized object
+     *
+     * the type arguments of the declared type are applied to the runtime class where possible, so a {@code HashMap} sent for a
+     * {@code Map<String, Integer>} is read as a {@code HashMap<String, Integer>} (rather than one with double values)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(byte[] bytes, Class<T> clazz, Type genericType) {
+        return (T) read(adapterFor(clazz, genericType), new StringReader(new String(bytes, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param input the stream to read from
+     * @param clazz the runtime class of the serialized object
+     * @param genericType the declared type of the object, or null
+     * @param <T> the type of the class to deserialize to
+     * @return the deserialized object
+     *
+     * the json is decoded straight from the stream, see {@link #deserialize(byte[], Class, Type)}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(InputStream input, Class<T> clazz, Type genericType) {
+        return (T) read(adapterFor(clazz, genericType), new Utf8Reader(input));
     }
 
     /**
@@ -45,4 +127,136 @@ public class GsonSerializer implements RpcSerializer {
     public <T> T deserialize(String str, Class<T> clazz) {
         return GSON.fromJson(str, clazz);
     }
+
+    private TypeAdapter<?> adapterFor(Class<?> clazz, Type genericType) {
+        return typeAdapters.computeIfAbsent(new TypeKey(clazz, genericType), key -> GSON.getAdapter(TypeToken.get(resolveType(key.runtimeClass(), key.declaredType()))));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void write(TypeAdapter<?> adapter, Object value, Writer writer) {
+        try {
+            JsonWriter jsonWriter = GSON.newJsonWriter(writer);
+            ((TypeAdapter<Object>) adapter).write(jsonWriter, value);
+            jsonWriter.flush();
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    private static Object read(TypeAdapter<?> adapter, Reader reader) {
+        try {
+            return adapter.read(GSON.newJsonReader(reader));
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    /**
+     * Combine the runtime class of a value with the type arguments of the type it was declared as.
+     * @param runtimeClass The class of the serialized value
+     * @param declaredType The declared type of the value, or null
+     * @return The most specific type that is known for the value
+     */
+    static Type resolveType(Class<?> runtimeClass, Type declaredType) {
+        if (!(declaredType instanceof ParameterizedType parameterizedType)) {
+            // plain classes don't tell us anything the runtime class doesn't
+            return runtimeClass;
+        }
+
+        Class<?> rawType = (Class<?>) parameterizedType.getRawType();
+        if (rawType == runtimeClass) {
+            return declaredType;
+        }
+        if (!rawType.isAssignableFrom(runtimeClass)) {
+            return runtimeClass;
+        }
+
+        // the runtime class is usually an implementation of the declared interface, like a HashMap for a Map, which we parameterize
+        // by following its type variables up to the declared type (HashMap<K, V> implements Map<K, V>)
+        TypeVariable<?>[] runtimeVariables = runtimeClass.getTypeParameters();
+        if (runtimeVariables.length == 0) {
+            return runtimeClass;
+        }
+
+        Type supertype = findSupertype(runtimeClass, rawType);
+        if (!(supertype instanceof ParameterizedType parameterizedSupertype)) {
+            return runtimeClass;
+        }
+
+        Type[] declaredArguments = parameterizedType.getActualTypeArguments();
+        Type[] supertypeArguments = parameterizedSupertype.getActualTypeArguments();
+        Type[] runtimeArguments = new Type[runtimeVariables.length];
+        for (int i = 0; i < supertypeArguments.length; i++) {
+            for (int j = 0; j < runtimeVariables.length; j++) {
+                if (runtimeVariables[j].equals(supertypeArguments[i])) {
+                    runtimeArguments[j] = declaredArguments[i];
+                }
+            }
+        }
+
+        // variables of the runtime class that don't end up in the declared type are left to gson
+        for (int i = 0; i < runtimeArguments.length; i++) {
+            if (runtimeArguments[i] == null) {
+                runtimeArguments[i] = Object.class;
+            }
+        }
+
+        try {
+            return TypeToken.getParameterized(runtimeClass, runtimeArguments).getType();
+        } catch (IllegalArgumentException e) {
+            // the declared arguments don't fit the bounds of the runtime class
+            return runtimeClass;
+        }
+    }
+
+    /**
+     * @return The generic supertype of the class with the given raw type, in terms of the type variables of the class, or null if there is none
+     */
+    private static Type findSupertype(Class<?> type, Class<?> rawSupertype) {
+        if (type == rawSupertype) {
+            return type;
+        }
+
+        Type[] interfaces = type.getGenericInterfaces();
+        Type[] supertypes = new Type[interfaces.length + 1];
+        System.arraycopy(interfaces, 0, supertypes, 0, interfaces.length);
+        supertypes[interfaces.length] = type.getGenericSuperclass();
+
+        for (Type supertype : supertypes) {
+            if (supertype == null) {
+                continue;
+            }
+
+            Class<?> raw = TypeToken.get(supertype).getRawType();
+            if (!rawSupertype.isAssignableFrom(raw)) {
+                continue;
+            }
+            if (raw == rawSupertype) {
+                return supertype;
+            }
+
+            Type found = findSupertype(raw, rawSupertype);
+            if (found instanceof ParameterizedType parameterizedFound && supertype instanceof ParameterizedType parameterizedSupertype) {
+                return substitute(parameterizedFound, raw.getTypeParameters(), parameterizedSupertype.getActualTypeArguments());
+            }
+            return found;
+        }
+        return null;
+    }
+
+    // replace the type variables in the arguments of a parameterized type with their values
+    private static Type substitute(ParameterizedType type, TypeVariable<?>[] variables, Type[] values) {
+        Type[] arguments = type.getActualTypeArguments().clone();
+        for (int i = 0; i < arguments.length; i++) {
+            for (int j = 0; j < variables.length; j++) {
+                if (variables[j].equals(arguments[i])) {
+                    arguments[i] = values[j];
+                }
+            }
+        }
+        return TypeToken.getParameterized(type.getRawType(), arguments).getType();
+    }
+
+    private record TypeKey(Class<?> runtimeClass, Type declaredType) {
+    }
 }
@@ -5,6 +5,7 @@ import dev.pixelib.meteor.base.enums.Direction;
 import dev.pixelib.meteor.base.interfaces.SubscriptionHandler;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
@@ -26,9 +27,17 @@ public class LoopbackTransport implements RpcTransport {
      */
     @Override
     public void send(Direction direction, byte[] bytes) {
+        send(direction, ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * @param buffer the packet to send, which is handed to the onReceive functions as-is (each getting its own view), without copying
+     */
+    @Override
+    public void send(Direction direction, ByteBuffer buffer) {
         for (SubscriptionHandler onReceiveFunction : onReceiveFunctions.getOrDefault(direction, new ArrayList<>())) {
             try {
-                boolean matched = onReceiveFunction.onPacket(bytes);
+                boolean matched = onReceiveFunction.onPacket(buffer.duplicate());
                 if (matched) break;
             } catch (Exception e) {
                 logger.log(Level.SEVERE, "Error occurred while processing packet", e);
@@ -49,6 +58,14 @@ public class LoopbackTransport implements RpcTransport {
         onReceiveFunctions.computeIfAbsent(target, k -> new ArrayList<>()).add(onReceive);
     }
 
+    /**
+     * @return true, since the onReceive functions are called until one of them has handled the packet
+     */
+    @Override
+    public boolean stopsAtFirstHandler() {
+        return true;
+    }
+
     /**
      * @throws IOException never thrown, as this is a loopback transport meant for testing so this method is unused
      */
@@ -0,0 +1,134 @@
+package dev.pixelib.meteor.base.defaults;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+class Utf8Reader extends Reader {
+
+    /**
+     * Decodes utf-8 straight from a stream, without the intermediate char buffers of an {@link java.io.InputStreamReader}.
+     * Bytes are read from the stream in runs into a small array, and decoded from there.
+     * This may read past the last character that is returned, so the stream should end where the text ends.
+     * Malformed input is replaced with U+FFFD, like {@link String#String(byte[], java.nio.charset.Charset)} does.
+     */
+
+    private static final char REPLACEMENT = '�';
+    private static final int BUFFER_SIZE = 512;
+
+    private final InputStream input;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    // The low surrogate of a supplementary character of which the high surrogate was already returned, or 0
+    private char pendingLowSurrogate;
+
+    Utf8Reader(InputStream input) {
+        this.input = input;
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int read = input.read(buffer, 0, BUFFER_SIZE);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+
+        int count = 0;
+        while (count < length) {
+            // ascii is by far the most common in json, so it's copied without going through readChar
+            if (pendingLowSurrogate == 0) {
+                while (count < length && position < limit && buffer[position] >= 0) {
+                    chars[offset + count++] = (char) buffer[position++];
+                }
+                if (count == length) {
+                    break;
+                }
+            }
+
+            int c = readChar();
+            if (c == -1) {
+                break;
+            }
+            chars[offset + count++] = (char) c;
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    private int readChar() throws IOException {
+        if (pendingLowSurrogate != 0) {
+            char low = pendingLowSurrogate;
+            pendingLowSurrogate = 0;
+            return low;
+        }
+
+        int first = readByte();
+        if (first < 0x80) {
+            // ascii, or the end of the stream
+            return first;
+        }
+
+        int extra;
+        int codePoint;
+        int minimum;
+        if ((first & 0xE0) == 0xC0) {
+            extra = 1;
+            codePoint = first & 0x1F;
+            minimum = 0x80;
+        } else if ((first & 0xF0) == 0xE0) {
+            extra = 2;
+            codePoint = first & 0x0F;
+            minimum = 0x800;
+        } else if ((first & 0xF8) == 0xF0) {
+            extra = 3;
+            codePoint = first & 0x07;
+            minimum = 0x10000;
+        } else {
+            return REPLACEMENT;
+        }
+
+        for (int i = 0; i < extra; i++) {
+            int next = readByte();
+            if (next == -1 || (next & 0xC0) != 0x80) {
+                // not a continuation byte, which belongs to whatever comes next
+                if (next != -1) {
+                    position--;
+                }
+                return REPLACEMENT;
+            }
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+
+        if (codePoint < minimum || codePoint > Character.MAX_CODE_POINT || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            return REPLACEMENT;
+        }
+
+        if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            pendingLowSurrogate = Character.lowSurrogate(codePoint);
+            return Character.highSurrogate(codePoint);
+        }
+        return codePoint;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
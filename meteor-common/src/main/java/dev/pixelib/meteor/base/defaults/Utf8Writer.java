@@ -0,0 +1,127 @@
+package dev.pixelib.meteor.base.defaults;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+class Utf8Writer extends Writer {
+
+    /**
+     * Encodes characters as utf-8 straight into a stream, without the intermediate char buffers of an {@link java.io.OutputStreamWriter}.
+     * Encoded bytes are gathered in a small array and written in runs, so the stream isn't called (and bounds checked) for every byte.
+     * Nothing reaches the stream until the writer is flushed or closed.
+     */
+
+    // Room for a run of encoded bytes, which always leaves space for the longest sequence a single char can produce
+    private static final int BUFFER_SIZE = 512;
+    private static final int MAX_BYTES_PER_CHAR = 4;
+
+    private final OutputStream output;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+
+    // The high surrogate of a pair that was split over two writes, or 0
+    private char pendingHighSurrogate;
+
+    Utf8Writer(OutputStream output) {
+        this.output = output;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        write((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+            // ascii is by far the most common in json, so it skips the checks below
+            if (c < 0x80 && pendingHighSurrogate == 0 && position < BUFFER_SIZE) {
+                buffer[position++] = (byte) c;
+            } else {
+                write(c);
+            }
+        }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80 && pendingHighSurrogate == 0 && position < BUFFER_SIZE) {
+                buffer[position++] = (byte) c;
+            } else {
+                write(c);
+            }
+        }
+    }
+
+    private void write(char c) throws IOException {
+        if (position > BUFFER_SIZE - MAX_BYTES_PER_CHAR) {
+            flushBuffer();
+        }
+
+        if (pendingHighSurrogate != 0) {
+            char high = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                writeCodePoint(Character.toCodePoint(high, c));
+                return;
+            }
+            // an unpaired surrogate, which is replaced just like String#getBytes would
+            put('?');
+        }
+
+        if (c < 0x80) {
+            put(c);
+        } else if (c < 0x800) {
+            put(0xC0 | (c >> 6));
+            put(0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            put('?');
+        } else {
+            put(0xE0 | (c >> 12));
+            put(0x80 | ((c >> 6) & 0x3F));
+            put(0x80 | (c & 0x3F));
+        }
+    }
+
+    private void writeCodePoint(int codePoint) {
+        put(0xF0 | (codePoint >> 18));
+        put(0x80 | ((codePoint >> 12) & 0x3F));
+        put(0x80 | ((codePoint >> 6) & 0x3F));
+        put(0x80 | (codePoint & 0x3F));
+    }
+
+    private void put(int b) {
+        buffer[position++] = (byte) b;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            output.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (pendingHighSurrogate != 0) {
+            pendingHighSurrogate = 0;
+            if (position == BUFFER_SIZE) {
+                flushBuffer();
+            }
+            put('?');
+        }
+        flush();
+    }
+}
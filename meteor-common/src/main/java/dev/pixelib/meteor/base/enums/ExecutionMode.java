@@ -0,0 +1,9 @@
+package dev.pixelib.meteor.base.enums;
+
+public enum ExecutionMode {
+
+    FIXED_POOL, // invocations are executed on a fixed number of platform threads
+    VIRTUAL_THREADS, // every invocation gets a virtual thread of its own, optionally capped in how many run at once
+    PARTITIONED // invocations are spread over a fixed number of single threaded lanes by their partition key, keeping invocations with the same key in order
+
+}
@@ -0,0 +1,9 @@
+package dev.pixelib.meteor.base.enums;
+
+public enum OverloadPolicy {
+
+    REJECT, // new invocations are answered straight away with a rejection, so the caller fails fast
+    DROP_OLDEST, // the invocation that has been waiting the longest is rejected to make room, since its caller is the closest to timing out
+    CALLER_RUNS // the invocation is executed on the transport thread, which slows down reading from the transport itself
+
+}
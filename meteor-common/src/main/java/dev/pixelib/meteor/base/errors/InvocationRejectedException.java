@@ -0,0 +1,26 @@
+package dev.pixelib.meteor.base.errors;
+
+public class InvocationRejectedException extends RuntimeException {
+
+    /**
+     * Thrown when an invocation is refused without being executed, because either the invoking side has too many invocations in flight,
+     * or the implementation side has too many invocations waiting to be executed.
+     */
+
+    private final String methodName;
+    private final String namespace;
+
+    public InvocationRejectedException(String methodName, String namespace, String reason) {
+        super("Invocation of method " + methodName + " on target " + namespace + " was rejected, " + reason + ".");
+        this.methodName = methodName;
+        this.namespace = namespace;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+}
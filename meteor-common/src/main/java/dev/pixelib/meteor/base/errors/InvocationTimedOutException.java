@@ -1,5 +1,7 @@
 package dev.pixelib.meteor.base.errors;
 
+import java.time.Duration;
+
 public class InvocationTimedOutException extends RuntimeException {
 
     /**
@@ -14,15 +16,27 @@ public class InvocationTimedOutException extends RuntimeException {
     private final String namespace;
 
     /**
-     * Amount of time in seconds that the invocation was allowed to take.
+     * Amount of time in milliseconds that the invocation was allowed to take.
      */
-    private final int timeoutSeconds;
+    private final long timeoutMillis;
 
     public InvocationTimedOutException(String methodName, String namespace, int timeoutSeconds) {
-        super("Invocation of method " + methodName + " on target " + namespace + " timed out after " + timeoutSeconds + " seconds.");
+        this(methodName, namespace, Duration.ofSeconds(timeoutSeconds));
+    }
+
+    public InvocationTimedOutException(String methodName, String namespace, Duration timeout) {
+        super("Invocation of method " + methodName + " on target " + namespace + " timed out after " + describe(timeout) + ".");
         this.methodName = methodName;
         this.namespace = namespace;
-        this.timeoutSeconds = timeoutSeconds;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    private static String describe(Duration timeout) {
+        // keep the familiar wording for whole seconds
+        if (timeout.toMillis() % 1000 == 0) {
+            return timeout.getSeconds() + " seconds";
+        }
+        return timeout.toMillis() + " milliseconds";
     }
 
     /**
@@ -40,10 +54,17 @@ public class InvocationTimedOutException extends RuntimeException {
     }
 
     /**
-     * @return Amount of time in seconds that the invocation was allowed to take.
+     * @return Amount of time in seconds that the invocation was allowed to take, rounded down.
      */
     public int getTimeoutSeconds() {
-        return timeoutSeconds;
+        return (int) (timeoutMillis / 1000);
+    }
+
+    /**
+     * @return Amount of time in milliseconds that the invocation was allowed to take.
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
     }
 
 }
@@ -1,8 +1,25 @@
 package dev.pixelib.meteor.base.interfaces;
 
+import java.nio.ByteBuffer;
+
 @FunctionalInterface
 public interface SubscriptionHandler {
 
     boolean onPacket(byte[] packet) throws Exception;
 
+    /**
+     * Buffer based variant of {@link #onPacket(byte[])}, for transports that receive packets into buffers.
+     * The packet is the data between the position and the limit of the buffer. The buffer stays owned by the transport
+     * and is only valid for the duration of this call, so handlers must not keep a reference to it (or to a view of it) after returning.
+     * By default, the packet is copied into an array and passed on to {@link #onPacket(byte[])}.
+     *
+     * @param packet the received packet
+     * @return whether the packet was handled
+     */
+    default boolean onPacket(ByteBuffer packet) throws Exception {
+        byte[] bytes = new byte[packet.remaining()];
+        packet.get(bytes);
+        return onPacket(bytes);
+    }
+
 }
@@ -4,26 +4,48 @@ import dev.pixelib.meteor.base.RpcOptions;
 import dev.pixelib.meteor.base.RpcSerializer;
 import dev.pixelib.meteor.base.RpcTransport;
 import dev.pixelib.meteor.base.defaults.GsonSerializer;
+import dev.pixelib.meteor.base.enums.Direction;
+import dev.pixelib.meteor.core.executor.InvocationExecutors;
+import dev.pixelib.meteor.core.proxy.GatherProcedure;
 import dev.pixelib.meteor.core.proxy.MeteorMock;
+import dev.pixelib.meteor.core.proxy.NearCache;
 import dev.pixelib.meteor.core.proxy.ProxyInvocHandler;
 import dev.pixelib.meteor.core.trackers.IncomingInvocationTracker;
 import dev.pixelib.meteor.core.trackers.OutgoingInvocationTracker;
+import dev.pixelib.meteor.core.transport.FrameBatcher;
+import dev.pixelib.meteor.core.transport.FrameCompressor;
 import dev.pixelib.meteor.core.transport.TransportHandler;
+import dev.pixelib.meteor.core.transport.packets.CacheInvalidation;
+import dev.pixelib.meteor.core.transport.packets.FrameType;
+import dev.pixelib.meteor.core.utils.ClassResolver;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
 
 import java.io.IOException;
 import java.lang.reflect.Proxy;
-import java.util.Timer;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class Meteor {
 
     private final RpcOptions options;
 
     // Timer for scheduling timeouts and retries
-    private final Timer timer = new Timer();
+    // A hashed wheel keeps scheduling and cancelling O(1) no matter how many invocations are in flight, at the cost of a 10ms resolution
+    private final Timer timer = new HashedWheelTimer(new DefaultThreadFactory("meteor-timer", true), 10, TimeUnit.MILLISECONDS, 512);
 
+    // Flushes batched frames once their linger time is up. Its thread is only started once something is batched.
+    private final ScheduledExecutorService batchScheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("meteor-batcher", true));
+
+    private final FrameBatcher invocationBatcher;
     private final OutgoingInvocationTracker outgoingInvocationTracker;
     private final IncomingInvocationTracker incomingInvocationTracker;
     private final TransportHandler transportHandler;
+    private final NearCache nearCache;
 
     /**
      * @param options    A preconfigured RpcOptions object.
@@ -33,9 +55,21 @@ public class Meteor {
     public Meteor(RpcTransport transport, RpcOptions options, RpcSerializer serializer) {
         this.options = options;
 
-        outgoingInvocationTracker = new OutgoingInvocationTracker(transport, serializer, options, timer);
+        // a batch is handed to the next instance on the transport unless all of its packets were handled, which would run the rest twice
+        if (options.getInvocationBatchLingerMicros() > 0 && transport.stopsAtFirstHandler()) {
+            throw new IllegalArgumentException("Invocation batching can't be used with a transport that stops at the first subscriber to handle a packet");
+        }
+
+        FrameCompressor frameCompressor = new FrameCompressor(options.getCompressionCodec(), options.getCompressionThresholdBytes(), options.getMaxFrameBytes());
+        invocationBatcher = new FrameBatcher(transport, Direction.IMPLEMENTATION, options.getInvocationBatchMaxBytes(), options.getInvocationBatchLingerMicros(), batchScheduler, frameCompressor);
+        outgoingInvocationTracker = new OutgoingInvocationTracker(invocationBatcher, serializer, options, timer);
         incomingInvocationTracker = new IncomingInvocationTracker();
-        transportHandler = new TransportHandler(serializer, transport, incomingInvocationTracker, outgoingInvocationTracker, options.getExecutorThreads());
+        ClassResolver classResolver = new ClassResolver(options.getClassLoader(), options.getMaxCachedClasses());
+        FrameBatcher responseBatcher = new FrameBatcher(transport, Direction.METHOD_PROXY, options.getResponseBatchMaxBytes(), options.getResponseBatchLingerMicros(), batchScheduler, frameCompressor);
+        // invalidations go out in the method proxy direction, where every node's near cache listens
+        nearCache = new NearCache((procedureName, namespace, methodNames) ->
+                responseBatcher.sendFrame(FrameType.INVALIDATION, new CacheInvalidation(procedureName, namespace, methodNames)::writeTo));
+        transportHandler = new TransportHandler(serializer, transport, incomingInvocationTracker, outgoingInvocationTracker, classResolver, responseBatcher, InvocationExecutors.create(options), nearCache, frameCompressor, timer, options.getStreamIdleTimeoutMillis());
     }
 
     /**
@@ -90,11 +124,49 @@ public class Meteor {
      * @return A proxy object that implements the given interface.
      */
     public <T> T registerProcedure(Class<T> procedure, String name) {
+        return registerProcedure(procedure, name, null);
+    }
+
+    /**
+     * Register a procedure with a namespace and its own timeout. Invocations will only be mapped on implementations with the same namespace.
+     * Methods annotated with {@link dev.pixelib.meteor.base.annotations.Timeout} keep their own timeout.
+     *
+     * @param procedure The interface to register as a procedure.
+     * @param name      The name of the procedure.
+     * @param timeout   The timeout for invocations through this proxy, or null to use the timeout from the options.
+     * @param <T>       The type of the interface.
+     * @return A proxy object that implements the given interface.
+     */
+    public <T> T registerProcedure(Class<T> procedure, String name, Duration timeout) {
         if (!procedure.isInterface()) {
             throw new IllegalArgumentException("Procedure must be an interface");
         }
 
-        return procedure.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{procedure, MeteorMock.class}, new ProxyInvocHandler(outgoingInvocationTracker, name)));
+        return procedure.cast(Proxy.newProxyInstance(options.getClassLoader(), new Class[]{procedure, MeteorMock.class}, new ProxyInvocHandler(outgoingInvocationTracker, procedure, name, options, timeout, nearCache)));
+    }
+
+    /**
+     * Register a procedure whose invocations are answered by every implementation listening on the transport, collecting all responses
+     * instead of only the first one. This only makes a difference for transports that broadcast invocations, like Redis.
+     *
+     * @param procedure The interface to register as a procedure.
+     * @param name      The name of the procedure, or null for implementations without a namespace.
+     * @param <T>       The type of the interface.
+     * @return A gatherer for invocations of the procedure.
+     */
+    public <T> GatherProcedure<T> registerGatherProcedure(Class<T> procedure, String name) {
+        return new GatherProcedure<>(outgoingInvocationTracker, procedure, name, options);
+    }
+
+    /**
+     * Register a procedure without a namespace, see {@link #registerGatherProcedure(Class, String)}.
+     *
+     * @param procedure The interface to register as a procedure.
+     * @param <T>       The type of the interface.
+     * @return A gatherer for invocations of the procedure.
+     */
+    public <T> GatherProcedure<T> registerGatherProcedure(Class<T> procedure) {
+        return registerGatherProcedure(procedure, null);
     }
 
     /**
@@ -116,6 +188,7 @@ public class Meteor {
     /**
      * Received remote procedure calls will be dispatched to implementations registered with this method.
      * The implementation will be registered under all interfaces implemented by the object, and under the given namespace.
+     * Only one implementation can be registered per interface and namespace.
      *
      * @param implementation The object to register as an implementation.
      * @param namespace      The namespace to register the implementation under.
@@ -124,6 +197,23 @@ public class Meteor {
         incomingInvocationTracker.registerImplementation(implementation, namespace);
     }
 
+    /**
+     * Received remote procedure calls will be dispatched to implementations registered with this method, and run on the given executor
+     * instead of the executor shared by all implementations of this instance. This isolates the implementation from the others, so a slow
+     * or blocked implementation can't starve them, and lets invocations run on an application thread (like a main thread scheduler) directly.
+     * The executor is owned by the caller, and isn't shut down when this instance stops.
+     *
+     * @param implementation The object to register as an implementation.
+     * @param namespace      The namespace to register the implementation under.
+     * @param executor       The executor to run invocations of this implementation on.
+     */
+    public void registerImplementation(Object implementation, String namespace, Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor cannot be null");
+        }
+        incomingInvocationTracker.registerImplementation(implementation, namespace, executor);
+    }
+
     /**
      * Received remote procedure calls will be dispatched to implementations registered with this method.
      * The implementation will be registered under all interfaces implemented by the object, and must be called without a namespace.
@@ -134,12 +224,36 @@ public class Meteor {
         registerImplementation(implementation, null);
     }
 
+    /**
+     * Stop dispatching received invocations to an implementation that was registered under a namespace.
+     *
+     * @param implementation The object that was registered as an implementation.
+     * @param namespace      The namespace the implementation was registered under.
+     * @return Whether the implementation was registered under the given namespace.
+     */
+    public boolean unregisterImplementation(Object implementation, String namespace) {
+        return incomingInvocationTracker.unregisterImplementation(implementation, namespace);
+    }
+
+    /**
+     * Stop dispatching received invocations to an implementation that was registered without a namespace.
+     *
+     * @param implementation The object that was registered as an implementation.
+     * @return Whether the implementation was registered without a namespace.
+     */
+    public boolean unregisterImplementation(Object implementation) {
+        return unregisterImplementation(implementation, null);
+    }
+
     /**
      * Gracefully shutdown the meteor instance.
      */
     public void stop() throws IOException {
+        // send whatever is still waiting for its batch, while the transport is still open
+        invocationBatcher.close();
         transportHandler.close();
-        timer.cancel();
+        batchScheduler.shutdown();
+        timer.stop();
     }
 
 }
@@ -0,0 +1,160 @@
+package dev.pixelib.meteor.core.executor;
+
+import dev.pixelib.meteor.base.enums.OverloadPolicy;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConcurrencyLimitedExecutor extends AbstractExecutorService {
+
+    /**
+     * Caps the number of tasks running at the same time on another executor.
+     * Tasks over the limit wait in a queue (optionally bounded) and are picked up by the first task to finish,
+     * so they don't take up anything on the delegate while they wait. Meant for virtual threads, where the delegate itself has no limit.
+     */
+
+    private final ExecutorService delegate;
+    private final int maxConcurrency;
+    private final int maxQueued;
+    private final OverloadPolicy overloadPolicy;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private int running = 0;
+
+    public ConcurrencyLimitedExecutor(ExecutorService delegate, int maxConcurrency) {
+        this(delegate, maxConcurrency, 0, OverloadPolicy.REJECT);
+    }
+
+    /**
+     * @param delegate       The executor to run tasks on
+     * @param maxConcurrency The maximum number of tasks running at the same time
+     * @param maxQueued      The maximum number of tasks waiting for their turn, or 0 for no limit
+     * @param overloadPolicy What to do with tasks once the queue is full
+     */
+    public ConcurrencyLimitedExecutor(ExecutorService delegate, int maxConcurrency, int maxQueued, OverloadPolicy overloadPolicy) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued cannot be negative");
+        }
+
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+        this.maxQueued = maxQueued;
+        this.overloadPolicy = overloadPolicy;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Runnable dropped = null;
+        boolean callerRuns = false;
+        lock.lock();
+        try {
+            if (running < maxConcurrency) {
+                running++;
+            } else if (maxQueued == 0 || queue.size() < maxQueued) {
+                queue.add(command);
+                return;
+            } else {
+                switch (overloadPolicy) {
+                    case DROP_OLDEST:
+                        dropped = queue.poll();
+                        queue.add(command);
+                        break;
+                    case CALLER_RUNS:
+                        callerRuns = true;
+                        break;
+                    case REJECT:
+                    default:
+                        throw new RejectedExecutionException("Queue is full (" + maxQueued + " tasks)");
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (dropped instanceof RejectableTask rejectable) {
+            rejectable.reject();
+        }
+        if (dropped != null) {
+            return;
+        }
+
+        // not counted as running, the caller is already limited by its own thread
+        if (callerRuns) {
+            command.run();
+            return;
+        }
+
+        try {
+            delegate.execute(() -> runAndDrain(command));
+        } catch (RejectedExecutionException e) {
+            lock.lock();
+            try {
+                running--;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private void runAndDrain(Runnable first) {
+        Runnable task = first;
+        while (task != null) {
+            try {
+                task.run();
+            } finally {
+                task = release();
+            }
+        }
+    }
+
+    /**
+     * @return The next queued task, which takes over the slot of the finished one, or null if the slot was given up
+     */
+    private Runnable release() {
+        lock.lock();
+        try {
+            Runnable next = queue.poll();
+            if (next == null) {
+                running--;
+            }
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,28 @@
+package dev.pixelib.meteor.core.executor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+public class DropOldestPolicy implements RejectedExecutionHandler {
+
+    /**
+     * Makes room in a full queue by dropping the task that has been waiting the longest, and rejecting it if it's a {@link RejectableTask}.
+     * Unlike {@link ThreadPoolExecutor.DiscardOldestPolicy}, the dropped task doesn't silently disappear.
+     */
+
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            if (task instanceof RejectableTask rejectable) {
+                rejectable.reject();
+            }
+            return;
+        }
+
+        Runnable oldest = executor.getQueue().poll();
+        if (oldest instanceof RejectableTask rejectable) {
+            rejectable.reject();
+        }
+        executor.execute(task);
+    }
+}
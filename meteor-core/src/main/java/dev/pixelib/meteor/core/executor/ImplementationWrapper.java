@@ -4,40 +4,51 @@ import dev.pixelib.meteor.base.errors.MethodInvocationException;
 import dev.pixelib.meteor.core.transport.packets.InvocationDescriptor;
 import dev.pixelib.meteor.core.utils.ArgumentMapper;
 
+import java.lang.reflect.InaccessibleObjectException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 public class ImplementationWrapper {
 
     private final Object implementation;
     private final String namespace;
 
+    // Runs invocations of this implementation, or null to use the shared executor of the meteor instance
+    private final Executor executor;
+
+    // Dispatch table, keyed by method name and argument signature.
+    // Populated with all declared signatures on registration, and with compatible (boxed, varargs) signatures the first time they are seen.
+    private final Map<DispatchKey, MethodInvoker> dispatchTable = new ConcurrentHashMap<>();
+
     public ImplementationWrapper(Object implementation, String namespace) {
-        this.implementation = implementation;
-        this.namespace = namespace;
+        this(implementation, namespace, null);
     }
 
-    public <R> R invokeOn(InvocationDescriptor invocationDescriptor, Class<R> returnType /* not unused, see comment below */) throws NoSuchMethodException {
-        // Get the method that should be invoked
-        String methodName = invocationDescriptor.getMethodName();
-        Class<?>[] argTypes = invocationDescriptor.getArgTypes();
-
-        Method method;
-        try {
-            method = implementation.getClass().getDeclaredMethod(methodName, argTypes);
-        } catch (NoSuchMethodException e) {
-            // if the method is not found, try to find a method that is compatible despite signature
-            method = findCompatibleDespiteSignature(implementation.getClass().getDeclaredMethods(), methodName, argTypes);
+    public ImplementationWrapper(Object implementation, String namespace, Executor executor) {
+        this.implementation = implementation;
+        this.namespace = namespace;
+        this.executor = executor;
 
-            if (method == null) {
-                throw new NoSuchMethodException("No method found with name " + methodName + " and compatible arguments (on " + implementation.getClass().getName() + ").");
+        for (Method method : implementation.getClass().getDeclaredMethods()) {
+            // bridge methods share their signature with the method they delegate to, so we'd rather call the real one
+            if (method.isBridge()) {
+                continue;
+            }
+            try {
+                dispatchTable.putIfAbsent(new DispatchKey(method.getName(), method.getParameterTypes()), createInvoker(method));
+            } catch (IllegalStateException | InaccessibleObjectException e) {
+                // not every declared method can be made accessible (think of private methods on jdk classes),
+                // those would fail when invoked anyway, so they are left out of the table
             }
         }
+    }
 
-        // make accessible if private
-        method.setAccessible(true);
-
-        // sanitize args
-        Object[] args = ArgumentMapper.overflowArguments(method, invocationDescriptor.getArgs());
+    public <R> R invokeOn(InvocationDescriptor invocationDescriptor, Class<R> returnType /* not unused, see comment below */) throws NoSuchMethodException {
+        // Get the method that should be invoked
+        MethodInvoker invoker = resolveInvoker(invocationDescriptor.getMethodName(), invocationDescriptor.getArgTypes());
 
         // invoke method
         try {
@@ -46,12 +57,59 @@ public class ImplementationWrapper {
             // However... there are exceptions to this rule, for example, if R is an int and the value is an Integer
             // then they aren't strictly the same type (due to the jvm boxing/unboxing rules), but the cast will still
             // succeed. So we use the unchecked cast here, because we know that the value is assignable to R.
-            return (R) method.invoke(implementation, args);
-        } catch (Exception e) {
+            return (R) invoker.invoke(invocationDescriptor.getArgs());
+        } catch (Throwable e) {
             throw new MethodInvocationException(invocationDescriptor.getMethodName(), namespace, e);
         }
     }
 
+    /**
+     * @param invocationDescriptor The received invocation
+     * @return The value of the argument annotated with {@link dev.pixelib.meteor.base.annotations.PartitionKey}, or the namespace if the method doesn't have one (or can't be found)
+     */
+    public Object partitionKey(InvocationDescriptor invocationDescriptor) {
+        MethodInvoker invoker;
+        try {
+            invoker = resolveInvoker(invocationDescriptor.getMethodName(), invocationDescriptor.getArgTypes());
+        } catch (NoSuchMethodException e) {
+            // the invocation itself will report this
+            return namespace;
+        }
+
+        int index = invoker.getPartitionKeyIndex();
+        Object[] args = invocationDescriptor.getArgs();
+        if (index < 0 || index >= args.length) {
+            return namespace;
+        }
+        return args[index];
+    }
+
+    private MethodInvoker resolveInvoker(String methodName, Class<?>[] argTypes) throws NoSuchMethodException {
+        DispatchKey key = new DispatchKey(methodName, argTypes);
+        MethodInvoker invoker = dispatchTable.get(key);
+        if (invoker != null) {
+            return invoker;
+        }
+
+        // if the method is not found, try to find a method that is compatible despite signature
+        Method method = findCompatibleDespiteSignature(implementation.getClass().getDeclaredMethods(), methodName, argTypes);
+
+        if (method == null) {
+            throw new NoSuchMethodException("No method found with name " + methodName + " and compatible arguments (on " + implementation.getClass().getName() + ").");
+        }
+
+        // remember the match, so this signature won't have to be searched for again
+        return dispatchTable.computeIfAbsent(new DispatchKey(methodName, argTypes.clone()), k -> createInvoker(method));
+    }
+
+    private MethodInvoker createInvoker(Method method) {
+        try {
+            return new MethodInvoker(implementation, method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Method " + method.getName() + " cannot be accessed (on " + implementation.getClass().getName() + ").", e);
+        }
+    }
+
     /**
      * We don't know yet which method is the best match, because there are multiple ways to arrange the arguments.
      * so this method serves to find the best match for when a normal match cannot be done.
@@ -102,4 +160,35 @@ public class ImplementationWrapper {
     public String getNamespace() {
         return namespace;
     }
+
+    /**
+     * @return The executor invocations of this implementation run on, or null if they run on the shared executor
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    private static final class DispatchKey {
+        private final String methodName;
+        private final Class<?>[] argTypes;
+        private final int hash;
+
+        private DispatchKey(String methodName, Class<?>[] argTypes) {
+            this.methodName = methodName;
+            this.argTypes = argTypes;
+            this.hash = 31 * methodName.hashCode() + Arrays.hashCode(argTypes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof DispatchKey other)) return false;
+            return hash == other.hash && methodName.equals(other.methodName) && Arrays.equals(argTypes, other.argTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
 }
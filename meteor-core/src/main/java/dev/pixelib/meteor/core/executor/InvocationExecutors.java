@@ -0,0 +1,68 @@
+package dev.pixelib.meteor.core.executor;
+
+import dev.pixelib.meteor.base.RpcOptions;
+import dev.pixelib.meteor.base.enums.OverloadPolicy;
+import lombok.experimental.UtilityClass;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@UtilityClass
+public class InvocationExecutors {
+
+    /**
+     * @param options The options to take the execution mode (and its settings) from
+     * @return A new executor for received invocations, owned (and eventually shut down) by the caller
+     */
+    public static ExecutorService create(RpcOptions options) {
+        if (options.getMaxQueuedInvocations() < 0) {
+            throw new IllegalArgumentException("maxQueuedInvocations cannot be negative");
+        }
+
+        switch (options.getExecutionMode()) {
+            case VIRTUAL_THREADS:
+                ExecutorService virtualThreads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("meteor-executor-virtual-", 0).factory());
+                // without a concurrency limit nothing ever waits, so there's no queue to bound either
+                if (options.getMaxConcurrentInvocations() > 0) {
+                    return new ConcurrencyLimitedExecutor(virtualThreads, options.getMaxConcurrentInvocations(), options.getMaxQueuedInvocations(), options.getOverloadPolicy());
+                }
+                return virtualThreads;
+            case PARTITIONED:
+                return new PartitionedExecutor(options.getExecutorThreads(), "meteor-executor-lane", options.getMaxQueuedInvocations(), createRejectionHandler(options.getOverloadPolicy()));
+            case FIXED_POOL:
+            default:
+                return new ThreadPoolExecutor(options.getExecutorThreads(), options.getExecutorThreads(), 0, TimeUnit.MILLISECONDS,
+                        createQueue(options.getMaxQueuedInvocations()), r -> new Thread(r, "meteor-executor-thread"), createRejectionHandler(options.getOverloadPolicy()));
+        }
+    }
+
+    /**
+     * @param maxQueued The capacity of the queue, or 0 for no limit
+     * @return A queue for tasks waiting on a thread pool
+     */
+    static BlockingQueue<Runnable> createQueue(int maxQueued) {
+        return maxQueued > 0 ? new ArrayBlockingQueue<>(maxQueued) : new LinkedBlockingQueue<>();
+    }
+
+    /**
+     * @param overloadPolicy The policy to apply to tasks that don't fit in the queue
+     * @return A handler applying the policy to a thread pool
+     */
+    static RejectedExecutionHandler createRejectionHandler(OverloadPolicy overloadPolicy) {
+        switch (overloadPolicy) {
+            case DROP_OLDEST:
+                return new DropOldestPolicy();
+            case CALLER_RUNS:
+                return new ThreadPoolExecutor.CallerRunsPolicy();
+            case REJECT:
+            default:
+                return new ThreadPoolExecutor.AbortPolicy();
+        }
+    }
+}
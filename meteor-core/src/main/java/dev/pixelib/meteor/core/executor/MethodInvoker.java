@@ -0,0 +1,126 @@
+package dev.pixelib.meteor.core.executor;
+
+import dev.pixelib.meteor.base.annotations.PartitionKey;
+import dev.pixelib.meteor.core.utils.ArgumentMapper;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+
+public class MethodInvoker {
+
+    /**
+     * A resolved, ready-to-call implementation method.
+     * Lookups, access checks and handle adaptation are done once when the invoker is created, so invoking it only
+     * costs the (optional) argument overflow and the call itself.
+     */
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Method method;
+
+    // Bound to the implementation and adapted to take a single Object[] and return an Object (boxed, or null for void)
+    private final MethodHandle handle;
+
+    private final int parameterCount;
+
+    // The declared type of the last parameter if it's an array, null otherwise. Only array parameters ever need overflowing.
+    private final Class<?> trailingArrayType;
+
+    // Index of the parameter annotated with @PartitionKey, on the method or on the procedure it implements, or -1 if there is none
+    private final int partitionKeyIndex;
+
+    public MethodInvoker(Object implementation, Method method) throws IllegalAccessException {
+        this.method = method;
+        this.parameterCount = method.getParameterCount();
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        this.trailingArrayType = parameterCount > 0 && parameterTypes[parameterCount - 1].isArray()
+                ? parameterTypes[parameterCount - 1]
+                : null;
+        this.partitionKeyIndex = findPartitionKeyIndex(implementation.getClass(), method);
+
+        // make accessible if private
+        method.setAccessible(true);
+
+        MethodHandle unreflected = LOOKUP.unreflect(method);
+        if (!Modifier.isStatic(method.getModifiers())) {
+            unreflected = unreflected.bindTo(implementation);
+        }
+
+        this.handle = unreflected
+                .asFixedArity()
+                .asType(MethodType.genericMethodType(parameterCount))
+                .asSpreader(Object[].class, parameterCount);
+    }
+
+    /**
+     * @param args The arguments as received from the invoker, which may still need to be overflown into a trailing array
+     * @return The return value of the method, boxed if primitive, or null for void methods
+     * @throws Throwable Anything thrown by the method itself, unwrapped
+     */
+    public Object invoke(Object[] args) throws Throwable {
+        Object[] mapped = requiresOverflow(args) ? ArgumentMapper.overflowArguments(method, args) : args;
+        return (Object) handle.invokeExact(mapped);
+    }
+
+    /**
+     * Arguments can be passed on as-is when their count matches the method, and the trailing array (if any) has already been collected by the invoker.
+     */
+    private boolean requiresOverflow(Object[] args) {
+        if (args.length != parameterCount) {
+            return true;
+        }
+
+        return trailingArrayType != null && !trailingArrayType.isInstance(args[parameterCount - 1]);
+    }
+
+    private static int findPartitionKeyIndex(Class<?> implementationClass, Method method) {
+        int index = partitionKeyIndexOf(method);
+        if (index >= 0) {
+            return index;
+        }
+
+        // parameter annotations aren't inherited, so look at the procedures this method implements
+        for (Class<?> procedure : implementationClass.getInterfaces()) {
+            try {
+                index = partitionKeyIndexOf(procedure.getMethod(method.getName(), method.getParameterTypes()));
+            } catch (NoSuchMethodException e) {
+                continue;
+            }
+            if (index >= 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static int partitionKeyIndexOf(Method method) {
+        int index = -1;
+        Parameter[] parameters = method.getParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            if (!parameters[i].isAnnotationPresent(PartitionKey.class)) {
+                continue;
+            }
+            if (index >= 0) {
+                throw new IllegalArgumentException("Method " + method.getName() + " has more than one @PartitionKey parameter (on " + method.getDeclaringClass().getName() + ").");
+            }
+            index = i;
+        }
+        return index;
+    }
+
+    /**
+     * @return The index of the partition key parameter, or -1 if the method doesn't have one
+     */
+    public int getPartitionKeyIndex() {
+        return partitionKeyIndex;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+}
@@ -0,0 +1,108 @@
+package dev.pixelib.meteor.core.executor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class PartitionedExecutor extends AbstractExecutorService {
+
+    /**
+     * Runs tasks on a fixed number of single threaded lanes, picked by the hash of a key.
+     * Tasks with equal keys always end up on the same lane, so they run one after another in submission order,
+     * while tasks with different keys are spread over the lanes and run in parallel.
+     */
+
+    private final ExecutorService[] lanes;
+
+    public PartitionedExecutor(int laneCount, String threadName) {
+        this(laneCount, threadName, 0, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @param laneCount         The number of lanes, each with a thread of its own
+     * @param threadName        The name of the lane threads, suffixed with the lane number
+     * @param maxQueuedPerLane  The maximum number of tasks waiting on a single lane, or 0 for no limit
+     * @param rejectionHandler  Handles tasks for a lane with a full queue
+     */
+    public PartitionedExecutor(int laneCount, String threadName, int maxQueuedPerLane, RejectedExecutionHandler rejectionHandler) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("laneCount must be at least 1");
+        }
+
+        this.lanes = new ExecutorService[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            String laneName = threadName + "-" + i;
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    InvocationExecutors.createQueue(maxQueuedPerLane), r -> new Thread(r, laneName), rejectionHandler);
+        }
+    }
+
+    /**
+     * @param key     The key to partition by, which may be null
+     * @param command The task to run after all earlier tasks with an equal key
+     */
+    public void execute(Object key, Runnable command) {
+        lanes[laneOf(key)].execute(command);
+    }
+
+    /**
+     * Tasks without a key all share the lane of the null key.
+     */
+    @Override
+    public void execute(Runnable command) {
+        execute(null, command);
+    }
+
+    int laneOf(Object key) {
+        int hash = Objects.hashCode(key);
+        // spread the high bits, since plenty of hash codes only differ there
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+
+    @Override
+    public void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = new ArrayList<>();
+        for (ExecutorService lane : lanes) {
+            pending.addAll(lane.shutdownNow());
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return lanes[0].isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        for (ExecutorService lane : lanes) {
+            if (!lane.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ExecutorService lane : lanes) {
+            if (!lane.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
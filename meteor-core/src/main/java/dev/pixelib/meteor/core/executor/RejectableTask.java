@@ -0,0 +1,10 @@
+package dev.pixelib.meteor.core.executor;
+
+public interface RejectableTask extends Runnable {
+
+    /**
+     * Called instead of {@link #run()} when the task is dropped from a queue without being executed,
+     * so it can still let whoever is waiting for it know.
+     */
+    void reject();
+}
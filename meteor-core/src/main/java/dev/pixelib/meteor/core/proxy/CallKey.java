@@ -0,0 +1,77 @@
+package dev.pixelib.meteor.core.proxy;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Objects;
+
+public final class CallKey {
+
+    /**
+     * Identifies an invocation by what it asks for: the namespace, the method and the arguments (compared deeply, so arrays work too).
+     * Two invocations with equal keys are expected to return the same thing, as long as nothing changed in between.
+     */
+
+    private final String namespace;
+    private final Method method;
+    private final Object[] args;
+    private final int hash;
+
+    public CallKey(String namespace, Method method, Object[] args) {
+        this(namespace, method, args, 31 * (31 * Objects.hashCode(namespace) + method.hashCode()) + Arrays.deepHashCode(args));
+    }
+
+    private CallKey(String namespace, Method method, Object[] args, int hash) {
+        this.namespace = namespace;
+        this.method = method;
+        this.args = args;
+        this.hash = hash;
+    }
+
+    /**
+     * @return An equal key that doesn't share any arrays with the caller, who may reuse them once the call returns. Keys kept around
+     *         for longer than the call itself (like cached ones) should be detached first. Other arguments are kept as they are.
+     */
+    public CallKey detached() {
+        if (args == null || Arrays.stream(args).noneMatch(arg -> arg != null && arg.getClass().isArray())) {
+            return this;
+        }
+
+        Object[] copied = args.clone();
+        for (int i = 0; i < copied.length; i++) {
+            copied[i] = copyArrays(copied[i]);
+        }
+        return new CallKey(namespace, method, copied, hash);
+    }
+
+    private static Object copyArrays(Object value) {
+        if (value == null || !value.getClass().isArray()) {
+            return value;
+        }
+
+        int length = Array.getLength(value);
+        Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+        System.arraycopy(value, 0, copy, 0, length);
+        if (copy instanceof Object[] elements) {
+            for (int i = 0; i < elements.length; i++) {
+                elements[i] = copyArrays(elements[i]);
+            }
+        }
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CallKey other)) return false;
+        return hash == other.hash
+                && method.equals(other.method)
+                && Objects.equals(namespace, other.namespace)
+                && Arrays.deepEquals(args, other.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
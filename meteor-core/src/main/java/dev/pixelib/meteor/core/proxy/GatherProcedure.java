@@ -0,0 +1,193 @@
+package dev.pixelib.meteor.core.proxy;
+
+import dev.pixelib.meteor.base.RpcOptions;
+import dev.pixelib.meteor.core.trackers.OutgoingInvocationTracker;
+import dev.pixelib.meteor.core.transport.packets.InvocationDescriptor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+public class GatherProcedure<T> {
+
+    /**
+     * Invokes a procedure on every implementation that listens to it, and collects all of their responses instead of only the first one.
+     * Calls are described by invoking a method on the procedure inside a lambda, like {@code gatherer.gather(scoreboard -> scoreboard.getScore("player"), window)}.
+     * That method isn't executed locally; it's only recorded, and then sent as a single invocation that every implementation answers.
+     * Since there is no telling how many implementations are listening, responses are collected until the window closes.
+     */
+
+    private final OutgoingInvocationTracker outgoingInvocationTracker;
+    private final String namespace;
+    private final RpcOptions options;
+
+    // Records the method invoked on it by the calling thread, instead of executing it
+    private final T recorder;
+    private final ThreadLocal<RecordedCall> recordedCall = new ThreadLocal<>();
+
+    private final Map<Method, ProcedureMethod> procedureMethods = new ConcurrentHashMap<>();
+
+    public GatherProcedure(OutgoingInvocationTracker outgoingInvocationTracker, Class<T> procedure, String namespace, RpcOptions options) {
+        if (!procedure.isInterface()) {
+            throw new IllegalArgumentException("Procedure must be an interface");
+        }
+
+        this.outgoingInvocationTracker = outgoingInvocationTracker;
+        this.namespace = namespace;
+        this.options = options;
+        this.recorder = procedure.cast(Proxy.newProxyInstance(options.getClassLoader(), new Class[]{procedure}, new RecordingHandler()));
+
+        // resolve all methods up front, so invalid procedures are rejected on registration instead of on first use
+        for (Method method : procedure.getMethods()) {
+            procedureMethods.put(method, new ProcedureMethod(method, options));
+        }
+    }
+
+    /**
+     * Invoke a method on all implementations, and wait for the window to close.
+     * @param call   Invokes the method to gather the results of on the procedure it's given
+     * @param window How long to wait for responses
+     * @return All responses that arrived within the window, in order of arrival
+     */
+    public <R> List<R> gather(Function<T, R> call, Duration window) {
+        return gather(call, window, 0);
+    }
+
+    /**
+     * Invoke a method on all implementations, and wait for the window to close.
+     * @param call         Invokes the method to gather the results of on the procedure it's given
+     * @param window       How long to wait for responses
+     * @param minResponses The number of responses required for the gather to succeed
+     * @return All responses that arrived within the window, in order of arrival
+     * @throws dev.pixelib.meteor.base.errors.InvocationTimedOutException If fewer than minResponses responses arrived
+     */
+    public <R> List<R> gather(Function<T, R> call, Duration window, int minResponses) {
+        try {
+            return gatherAsync(call, window, minResponses).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Invoke a method on all implementations, wait for the window to close, and reduce the responses.
+     * @param call         Invokes the method to gather the results of on the procedure it's given
+     * @param window       How long to wait for responses
+     * @param minResponses The number of responses required for the gather to succeed
+     * @param collector    Reduces the responses, like {@code Collectors.summingInt(Integer::intValue)}
+     * @return The reduced responses
+     * @throws dev.pixelib.meteor.base.errors.InvocationTimedOutException If fewer than minResponses responses arrived
+     */
+    public <R, A> A gather(Function<T, R> call, Duration window, int minResponses, Collector<? super R, ?, A> collector) {
+        return gather(call, window, minResponses).stream().collect(collector);
+    }
+
+    /**
+     * Same as {@link #gather(Function, Duration, int)}, without blocking the calling thread.
+     * @return A future that is completed with all responses once the window closes, or completed exceptionally if the quorum wasn't met
+     */
+    public <R> CompletableFuture<List<R>> gatherAsync(Function<T, R> call, Duration window, int minResponses) {
+        if (window == null || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        if (minResponses < 0) {
+            throw new IllegalArgumentException("minResponses cannot be negative");
+        }
+
+        RecordedCall recorded = record(call);
+        ProcedureMethod procedureMethod = procedureMethods.computeIfAbsent(recorded.method, key -> new ProcedureMethod(key, options));
+        if (procedureMethod.isOneWay() || procedureMethod.isAsync()) {
+            throw new IllegalArgumentException("Method " + recorded.method.getName() + " can't be gathered, since it's one-way or asynchronous");
+        }
+
+        InvocationDescriptor invocationDescriptor = new InvocationDescriptor(
+                namespace,
+                recorded.method.getDeclaringClass(),
+                recorded.method.getName(),
+                recorded.args,
+                procedureMethod.getParameterTypes(),
+                procedureMethod.getReturnType(),
+                false,
+                procedureMethod.getFingerprint()
+        );
+        invocationDescriptor.assignGenericSignature(procedureMethod.getGenericSignature());
+
+        return outgoingInvocationTracker.invokeGather(invocationDescriptor, window.toMillis(), minResponses);
+    }
+
+    private RecordedCall record(Function<T, ?> call) {
+        recordedCall.remove();
+        try {
+            call.apply(recorder);
+            RecordedCall recorded = recordedCall.get();
+            if (recorded == null) {
+                throw new IllegalArgumentException("The call didn't invoke a method on the procedure");
+            }
+            return recorded;
+        } finally {
+            recordedCall.remove();
+        }
+    }
+
+    private final class RecordingHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (recordedCall.get() != null) {
+                throw new IllegalArgumentException("A call can only invoke a single method on the procedure");
+            }
+            recordedCall.set(new RecordedCall(method, args == null ? new Object[0] : args));
+
+            // the value is thrown away, but primitives can't be null
+            return defaultValue(method.getReturnType());
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        return 0d;
+    }
+
+    private static final class RecordedCall {
+        private final Method method;
+        private final Object[] args;
+
+        private RecordedCall(Method method, Object[] args) {
+            this.method = method;
+            this.args = args;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package dev.pixelib.meteor.core.proxy;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+public class NearCache {
+
+    /**
+     * Results of cacheable procedure methods, kept on the invoking side.
+     * Every method (per procedure and namespace) has a size bounded cache of its own, shared by all proxies for that procedure and namespace.
+     * Caches are cleared by invalidations, which come from invoking a method annotated with {@link dev.pixelib.meteor.base.annotations.Invalidates},
+     * either through a proxy of this instance or through any other node on the transport.
+     */
+
+    // Returned on a cache miss, since null is a perfectly valid result
+    public static final Object MISS = new Object();
+
+    private final Map<CacheId, MethodCache> caches = new ConcurrentHashMap<>();
+
+    // Sends invalidations to the other nodes on the transport
+    private final InvalidationPublisher publisher;
+
+    public NearCache(InvalidationPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    /**
+     * @param procedure       The procedure the proxy was registered for
+     * @param namespace       The namespace of the proxy
+     * @param procedureMethod The cacheable method
+     * @return The cache for the method, created on first use
+     */
+    public MethodCache cacheFor(Class<?> procedure, String namespace, ProcedureMethod procedureMethod) {
+        return caches.computeIfAbsent(new CacheId(procedure.getName(), namespace, procedureMethod.getMethod()),
+                id -> new MethodCache(procedureMethod.getCacheTtlMillis(), procedureMethod.getCacheMaxEntries()));
+    }
+
+    /**
+     * Clear the cached results of methods of a procedure, on this instance only.
+     * @param procedureName The name of the procedure
+     * @param namespace     The namespace to clear the results for
+     * @param methodNames   The names of the methods to clear, or an empty array for all of them
+     */
+    public void invalidate(String procedureName, String namespace, String[] methodNames) {
+        caches.forEach((id, cache) -> {
+            if (id.procedureName.equals(procedureName)
+                    && Objects.equals(id.namespace, namespace)
+                    && (methodNames.length == 0 || Arrays.asList(methodNames).contains(id.method.getName()))) {
+                cache.clear();
+            }
+        });
+    }
+
+    /**
+     * Clear the cached results of methods of a procedure, on this instance and on every other node on the transport.
+     * @see #invalidate(String, String, String[])
+     */
+    public void publishInvalidation(Class<?> procedure, String namespace, String[] methodNames) {
+        invalidate(procedure.getName(), namespace, methodNames);
+        publisher.publish(procedure.getName(), namespace, methodNames);
+    }
+
+    @FunctionalInterface
+    public interface InvalidationPublisher {
+        void publish(String procedureName, String namespace, String[] methodNames);
+    }
+
+    public static final class MethodCache {
+
+        private final long ttlNanos;
+
+        // Least recently used first, guarded by itself
+        private final LinkedHashMap<CallKey, Entry> entries;
+
+        // Incremented on every invalidation, so results of invocations that were sent before it aren't cached after it
+        private volatile long generation;
+
+        private MethodCache(long ttlMillis, int maxEntries) {
+            this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CallKey, Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        /**
+         * @return The cached result, or {@link #MISS} if there is none (or it expired)
+         */
+        public Object get(CallKey key) {
+            synchronized (entries) {
+                Entry entry = entries.get(key);
+                if (entry == null) {
+                    return MISS;
+                }
+                if (System.nanoTime() - entry.expiresAtNanos >= 0) {
+                    entries.remove(key);
+                    return MISS;
+                }
+                return entry.value;
+            }
+        }
+
+        /**
+         * @return The current generation, to pass to {@link #put(CallKey, Object, long)} once the result arrives
+         */
+        public long getGeneration() {
+            return generation;
+        }
+
+        /**
+         * Cache a result, unless the cache was invalidated since the invocation was sent.
+         * @param generation The generation from before the invocation was sent
+         */
+        public void put(CallKey key, Object value, long generation) {
+            synchronized (entries) {
+                if (this.generation != generation) {
+                    return;
+                }
+                entries.put(key, new Entry(value, System.nanoTime() + ttlNanos));
+            }
+        }
+
+        public void clear() {
+            synchronized (entries) {
+                generation++;
+                entries.clear();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expiresAtNanos;
+
+        private Entry(Object value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private static final class CacheId {
+        private final String procedureName;
+        private final String namespace;
+        private final Method method;
+
+        private CacheId(String procedureName, String namespace, Method method) {
+            this.procedureName = procedureName;
+            this.namespace = namespace;
+            this.method = method;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheId other)) return false;
+            return procedureName.equals(other.procedureName) && Objects.equals(namespace, other.namespace) && method.equals(other.method);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * procedureName.hashCode() + Objects.hashCode(namespace)) + method.hashCode();
+        }
+    }
+}
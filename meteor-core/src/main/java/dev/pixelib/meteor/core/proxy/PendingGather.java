@@ -0,0 +1,126 @@
+package dev.pixelib.meteor.core.proxy;
+
+import dev.pixelib.meteor.base.errors.InvocationTimedOutException;
+import dev.pixelib.meteor.core.transport.packets.InvocationDescriptor;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class PendingGather<T> implements TimerTask {
+
+    /**
+     * A pending gather collects every response to a single invocation until its window closes, instead of completing on the first one.
+     * Once the window closes, it completes with all responses it received, or fails if fewer than the required number of implementations answered.
+     */
+
+    private final long windowMillis;
+    private final int minResponses;
+    private final InvocationDescriptor invocationDescriptor;
+    private final Timer timer;
+
+    // Handle to the scheduled window, cancelled if the gather fails before it closes
+    private volatile Timeout timeout;
+
+    private final CompletableFuture<List<T>> completable = new CompletableFuture<>();
+
+    // Called when the window closes, to stop routing responses to this gather
+    private final Runnable closeCallback;
+
+    // Guarded by itself, responses can arrive on several transport threads at once
+    private final List<T> responses = new ArrayList<>();
+    private boolean closed = false;
+
+    public PendingGather(long windowMillis, int minResponses, Timer timer, InvocationDescriptor invocationDescriptor, Runnable closeCallback) {
+        this.windowMillis = windowMillis;
+        this.minResponses = minResponses;
+        this.invocationDescriptor = invocationDescriptor;
+        this.closeCallback = closeCallback;
+        this.timer = timer;
+    }
+
+    /**
+     * Open the window. Should be called once, after the gather can be found by its close callback, and before the invocation is sent.
+     */
+    public void start() {
+        timeout = timer.newTimeout(this, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fail the gather without waiting for its window to close, for example when the invocation couldn't be sent.
+     * Ignored if the window already closed.
+     * @param cause The exception to complete the gather with
+     */
+    public void fail(RuntimeException cause) {
+        synchronized (responses) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        Timeout scheduled = timeout;
+        if (scheduled != null) {
+            scheduled.cancel();
+        }
+        if (closeCallback != null) {
+            closeCallback.run();
+        }
+        completable.completeExceptionally(cause);
+    }
+
+    /**
+     * @param response A response from one of the implementations
+     * @return Whether the response was accepted, which it isn't once the window has closed
+     */
+    @SuppressWarnings("unchecked")
+    public boolean add(Object response) {
+        synchronized (responses) {
+            if (closed) {
+                return false;
+            }
+            responses.add((T) response);
+            return true;
+        }
+    }
+
+    public InvocationDescriptor getInvocationDescriptor() {
+        return invocationDescriptor;
+    }
+
+    public CompletableFuture<List<T>> getCompletable() {
+        return completable;
+    }
+
+    /**
+     * Inherited from TimerTask.
+     * Called when the window closes.
+     */
+    @Override
+    public void run(Timeout timeout) {
+        List<T> gathered;
+        synchronized (responses) {
+            // the gather may have failed before its window closed
+            if (closed) {
+                return;
+            }
+            closed = true;
+            gathered = new ArrayList<>(responses);
+        }
+
+        if (closeCallback != null) {
+            closeCallback.run();
+        }
+
+        if (gathered.size() < minResponses) {
+            completable.completeExceptionally(new InvocationTimedOutException(invocationDescriptor.getMethodName(), invocationDescriptor.getNamespace(), Duration.ofMillis(windowMillis)));
+            return;
+        }
+        completable.complete(gathered);
+    }
+}
@@ -4,20 +4,24 @@ import dev.pixelib.meteor.base.errors.InvocationTimedOutException;
 import dev.pixelib.meteor.core.transport.packets.InvocationDescriptor;
 import dev.pixelib.meteor.core.utils.ArgumentMapper;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
-public class PendingInvocation<T> extends TimerTask {
+public class PendingInvocation<T> implements TimerTask {
 
     /**
      * A pending invocation represents a blocking invocation request which is awaiting a response, acknowledgement or timeout.
      * It is used to block the calling thread until the invocation is complete.
      */
 
-    private final int timeoutSeconds;
+    private final long timeoutMillis;
     private final CompletableFuture<T> completable;
     private final InvocationDescriptor invocationDescriptor;
 
@@ -27,14 +31,27 @@ public class PendingInvocation<T> extends TimerTask {
     private final AtomicBoolean isComplete = new AtomicBoolean(false);
     private final AtomicBoolean isTimedOut = new AtomicBoolean(false);
 
-    public PendingInvocation(int timeoutSeconds, Timer timer, InvocationDescriptor invocationDescriptor, Runnable timeoutCallback) {
+    // The first rejection received, which fails the invocation unless another implementation answers it in time
+    private final AtomicReference<RuntimeException> rejection = new AtomicReference<>();
+
+    private final Timer timer;
+
+    // Handle to the scheduled timeout, cancelled on completion so the timer doesn't keep this invocation (and its arguments) reachable
+    private volatile Timeout timeout;
+
+    public PendingInvocation(long timeoutMillis, Timer timer, InvocationDescriptor invocationDescriptor, Runnable timeoutCallback) {
         this.invocationDescriptor = invocationDescriptor;
         this.timeoutCallback = timeoutCallback;
-        this.timeoutSeconds = timeoutSeconds;
+        this.timeoutMillis = timeoutMillis;
+        this.timer = timer;
         completable = new CompletableFuture<>();
+    }
 
-        // schedule timeout, timeoutSeconds is in seconds, Timer.schedule() takes milliseconds
-        timer.schedule(this, TimeUnit.SECONDS.toMillis(timeoutSeconds));
+    /**
+     * Start the timeout. Should be called once, after the invocation can be found by its timeout callback, and before it's sent.
+     */
+    public void start() {
+        timeout = timer.newTimeout(this, timeoutMillis, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -66,20 +83,78 @@ public class PendingInvocation<T> extends TimerTask {
 
 
         isComplete.set(true);
+        cancelTimeout();
         this.completable.complete((T) response);
     }
 
+    /**
+     * Fail the invocation without a response, for example when the implementation refused to execute it.
+     * Ignored if the invocation already completed or timed out.
+     * @param cause The exception to complete the invocation with.
+     */
+    public void fail(RuntimeException cause) {
+        if (isTimedOut.get() || !isComplete.compareAndSet(false, true)) {
+            return;
+        }
+
+        cancelTimeout();
+        this.completable.completeExceptionally(cause);
+    }
+
+    /**
+     * Record that an implementation refused to execute the invocation, or failed executing it. Other implementations may still answer it,
+     * so the invocation only fails with the rejection once the grace period has passed without a response (or when it times out, whichever comes first).
+     * Only the first rejection counts, and it's ignored if the invocation already completed or timed out.
+     * @param cause       The exception to fail the invocation with
+     * @param graceMillis How long to wait for another implementation to answer
+     */
+    public void reject(RuntimeException cause, long graceMillis) {
+        if (isComplete.get() || isTimedOut.get() || !rejection.compareAndSet(null, cause)) {
+            return;
+        }
+
+        timer.newTimeout(graceTimeout -> {
+            if (isTimedOut.get() || !isComplete.compareAndSet(false, true)) {
+                return;
+            }
+
+            cancelTimeout();
+            this.completable.completeExceptionally(cause);
+            if (timeoutCallback != null) {
+                timeoutCallback.run();
+            }
+        }, graceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelTimeout() {
+        Timeout scheduled = timeout;
+        if (scheduled != null) {
+            scheduled.cancel();
+        }
+    }
+
     public T waitForResponse() throws InvocationTimedOutException {
         // wait for response or timeout
         return this.completable.join();
     }
 
+    /**
+     * @return The future backing this invocation, for callers that don't want to block.
+     */
+    public CompletableFuture<T> getCompletable() {
+        return completable;
+    }
+
+    public InvocationDescriptor getInvocationDescriptor() {
+        return invocationDescriptor;
+    }
+
     /**
      * Inherited from TimerTask.
-     * Called when the timeout expires.
+     * Called when the timeout expires, unless the invocation completed (and cancelled it) before that.
      */
     @Override
-    public void run() {
+    public void run(Timeout timeout) {
         if (isComplete.get()) {
             // the invocation completed before the timeout
             return;
@@ -87,8 +162,10 @@ public class PendingInvocation<T> extends TimerTask {
 
         isTimedOut.set(true);
 
-        this.completable.completeExceptionally(
-                new InvocationTimedOutException(invocationDescriptor.getMethodName(), invocationDescriptor.getNamespace(), timeoutSeconds)
+        // a rejection is more telling than the timeout, which only came first because the grace period outlasted it
+        RuntimeException rejected = rejection.get();
+        this.completable.completeExceptionally(rejected != null ? rejected
+                : new InvocationTimedOutException(invocationDescriptor.getMethodName(), invocationDescriptor.getNamespace(), Duration.ofMillis(timeoutMillis))
         );
 
         // call the timeout callback
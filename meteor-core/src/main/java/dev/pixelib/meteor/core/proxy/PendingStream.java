@@ -0,0 +1,534 @@
+package dev.pixelib.meteor.core.proxy;
+
+import dev.pixelib.meteor.base.errors.InvocationTimedOutException;
+import dev.pixelib.meteor.base.errors.MethodInvocationException;
+import dev.pixelib.meteor.core.transport.packets.InvocationDescriptor;
+import dev.pixelib.meteor.core.transport.packets.InvocationResponse;
+import dev.pixelib.meteor.core.transport.packets.StreamCredit;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class PendingStream<T> implements Iterator<T>, Flow.Publisher<T>, AutoCloseable, TimerTask {
+
+    /**
+     * A pending stream receives a streamed result in chunks, and hands its elements to the caller one at a time, either by iterating over it
+     * or by pushing them to a Flow subscriber. The implementation is granted credit for more elements as they are consumed,
+     * so no more than a window of them is ever buffered here.
+     * Waiting for the next element times out like any other invocation, but a caller that takes its time consuming them never does.
+     * Every node implementing the method streams a result of its own, so the stream sticks to the first node to respond and cancels the others.
+     */
+
+    // Takes the place of null elements in the buffer, which doesn't allow them
+    private static final Object NULL_ELEMENT = new Object();
+
+    private final long timeoutMillis;
+    private final int windowSize;
+    private final Timer timer;
+    private final InvocationDescriptor invocationDescriptor;
+
+    // Sends credit (or a cancellation) to the implementation
+    private final Consumer<StreamCredit> creditSender;
+
+    // Called once the stream has ended, failed or been closed, to stop routing chunks to it
+    private final Runnable closeCallback;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    // Everything below is guarded by the lock
+    private final ArrayDeque<Object> buffered = new ArrayDeque<>();
+
+    // Whether the implementation sent the end of the stream, or the caller closed it
+    private boolean ended = false;
+
+    // Thrown to the caller once the buffered elements have been consumed, if the stream failed
+    private RuntimeException failure;
+
+    private boolean closed = false;
+
+    // The node whose result is consumed, or ANY_RESPONDER until the first one responds. Only written while holding the lock.
+    private volatile long responderId = StreamCredit.ANY_RESPONDER;
+
+    // The first rejection received before any node responded, which fails the stream unless another node responds in time
+    private RuntimeException rejection;
+
+    // Other nodes that have been told to stop streaming their result
+    private final Set<Long> cancelledResponders = new HashSet<>();
+
+    // Elements consumed since credit was last granted
+    private int consumed = 0;
+
+    // Scheduled while the caller is waiting for elements (or the first chunk hasn't arrived yet), null otherwise
+    private Timeout timeout;
+
+    // The subscriber consuming this stream, its outstanding demand, and whether it has been sent its final signal
+    private Flow.Subscriber<? super T> subscriber;
+    private long demand = 0;
+    private boolean terminated = false;
+
+    // Makes sure only one thread delivers elements to the subscriber at a time, counting the reasons to take another look at the buffer
+    private final AtomicInteger drains = new AtomicInteger();
+
+    public PendingStream(long timeoutMillis, int windowSize, Timer timer, InvocationDescriptor invocationDescriptor, Consumer<StreamCredit> creditSender, Runnable closeCallback) {
+        this.timeoutMillis = timeoutMillis;
+        this.windowSize = windowSize;
+        this.timer = timer;
+        this.invocationDescriptor = invocationDescriptor;
+        this.creditSender = creditSender;
+        this.closeCallback = closeCallback;
+    }
+
+    /**
+     * Grant the implementation its first window of elements. Should be called once, after the invocation has been sent.
+     */
+    public void start() {
+        lock.lock();
+        try {
+            // the first chunk has to arrive in time, even if nobody is waiting for it yet
+            scheduleTimeout();
+        } finally {
+            lock.unlock();
+        }
+        // nobody has responded yet, so every node streaming the result gets its first window
+        creditSender.accept(new StreamCredit(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), StreamCredit.ANY_RESPONDER, windowSize));
+    }
+
+    /**
+     * Handle a response to the streamed invocation. This should be directly invoked from the transport when a response is received and deserialized.
+     * @param response A chunk or the end of the stream
+     */
+    public void receive(InvocationResponse response) {
+        if (response.getChunk() == null && !response.isStreamEnd()) {
+            fail(new MethodInvocationException(invocationDescriptor.getMethodName(), invocationDescriptor.getNamespace(), new IllegalStateException("The implementation did not stream its result")));
+            return;
+        }
+
+        if (!acceptResponder(response.getResponderId())) {
+            return;
+        }
+
+        if (response.isStreamEnd()) {
+            if (response.getFailure() != null) {
+                fail(new MethodInvocationException(invocationDescriptor.getMethodName(), invocationDescriptor.getNamespace(), new IllegalStateException(response.getFailure())));
+                return;
+            }
+            end();
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (ended || failure != null) {
+                return;
+            }
+            for (Object element : response.getChunk()) {
+                buffered.add(element != null ? element : NULL_ELEMENT);
+            }
+            cancelTimeout();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    /**
+     * Record that a node refused to stream the result. Other nodes may still stream theirs, so the stream only fails with the rejection
+     * if none of them has responded once the grace period has passed (or when the first chunk times out, whichever comes first).
+     * Only the first rejection counts, and it's ignored once a node is streaming the result, since it can only come from the others.
+     * @param cause       The exception to fail the stream with
+     * @param graceMillis How long to wait for another node to respond
+     */
+    public void reject(RuntimeException cause, long graceMillis) {
+        lock.lock();
+        try {
+            if (responderId != StreamCredit.ANY_RESPONDER || ended || failure != null || rejection != null) {
+                return;
+            }
+            rejection = cause;
+        } finally {
+            lock.unlock();
+        }
+
+        timer.newTimeout(graceTimeout -> {
+            if (failUnlessResponded(cause)) {
+                // a node that is about to respond after all is told not to bother
+                creditSender.accept(StreamCredit.cancel(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), StreamCredit.ANY_RESPONDER));
+            }
+        }, graceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // sticks to the first node to respond, and tells every other node to stop streaming. returns whether the response should be used
+    private boolean acceptResponder(long responder) {
+        boolean cancel;
+        lock.lock();
+        try {
+            if (responderId == StreamCredit.ANY_RESPONDER) {
+                responderId = responder;
+            }
+            if (responderId == responder) {
+                return true;
+            }
+            cancel = cancelledResponders.add(responder);
+        } finally {
+            lock.unlock();
+        }
+
+        if (cancel) {
+            creditSender.accept(StreamCredit.cancel(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), responder));
+        }
+        return false;
+    }
+
+    private void end() {
+        lock.lock();
+        try {
+            if (ended || failure != null) {
+                return;
+            }
+            ended = true;
+            cancelTimeout();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        closeOnce();
+        drain();
+    }
+
+    /**
+     * Fail the stream. Elements that were already received can still be consumed, after which the failure is thrown to the caller.
+     * Ignored if the stream already ended or failed.
+     * @param cause The exception to fail the stream with
+     */
+    public void fail(RuntimeException cause) {
+        fail(cause, false);
+    }
+
+    // fails the stream only if no node has responded yet, returns whether it did
+    private boolean failUnlessResponded(RuntimeException cause) {
+        return fail(cause, true);
+    }
+
+    private boolean fail(RuntimeException cause, boolean unlessResponded) {
+        lock.lock();
+        try {
+            if (ended || failure != null || (unlessResponded && responderId != StreamCredit.ANY_RESPONDER)) {
+                return false;
+            }
+            failure = cause;
+            cancelTimeout();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        closeOnce();
+        drain();
+        return true;
+    }
+
+    /**
+     * Stop consuming the stream, dropping the buffered elements and telling the implementation to stop sending more.
+     */
+    @Override
+    public void close() {
+        boolean cancelled;
+        lock.lock();
+        try {
+            cancelled = !ended && failure == null;
+            ended = true;
+            buffered.clear();
+
+            // a subscriber that cancelled doesn't get told how the stream ended
+            terminated = true;
+            cancelTimeout();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        if (cancelled) {
+            creditSender.accept(StreamCredit.cancel(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), responderId));
+        }
+        closeOnce();
+    }
+
+    private void closeOnce() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        if (closeCallback != null) {
+            closeCallback.run();
+        }
+    }
+
+    /**
+     * Blocks until the next element has arrived, the stream has ended, or the wait has timed out.
+     * @throws InvocationTimedOutException If the next element didn't arrive in time
+     * @throws MethodInvocationException   If the waiting thread was interrupted, which closes the stream
+     */
+    @Override
+    public boolean hasNext() {
+        InterruptedException interruption;
+        lock.lock();
+        try {
+            while (buffered.isEmpty()) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (ended) {
+                    return false;
+                }
+                scheduleTimeout();
+                changed.await();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            // the stream is closed below, since that tells the implementation and shouldn't happen while holding the lock
+            interruption = e;
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+
+        close();
+        throw new MethodInvocationException(invocationDescriptor.getMethodName(), invocationDescriptor.getNamespace(), interruption);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Object element;
+        int credit;
+        lock.lock();
+        try {
+            element = buffered.poll();
+            credit = takeCredit();
+        } finally {
+            lock.unlock();
+        }
+
+        grant(credit);
+        return element == NULL_ELEMENT ? null : (T) element;
+    }
+
+    /**
+     * Subscribe to the elements of the stream. Only a single subscriber is allowed, and the stream can't be iterated over at the same time.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        boolean accepted;
+        lock.lock();
+        try {
+            accepted = this.subscriber == null;
+            if (accepted) {
+                this.subscriber = subscriber;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (!accepted) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("A remote stream can only be subscribed to once"));
+            return;
+        }
+
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    fail(new IllegalArgumentException("Subscribers must request a positive number of elements"));
+                    return;
+                }
+
+                lock.lock();
+                try {
+                    // saturate instead of overflowing, which is how subscribers ask for everything
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                } finally {
+                    lock.unlock();
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                close();
+            }
+        });
+        drain();
+    }
+
+    /**
+     * Hand buffered elements to the subscriber as far as its demand allows, followed by the end of the stream once everything has been delivered.
+     */
+    @SuppressWarnings("unchecked")
+    private void drain() {
+        if (drains.getAndIncrement() != 0) {
+            return;
+        }
+
+        int missed = 1;
+        do {
+            while (true) {
+                Flow.Subscriber<? super T> target;
+                Object element = null;
+                RuntimeException error = null;
+                boolean complete = false;
+                int credit = 0;
+
+                lock.lock();
+                try {
+                    target = subscriber;
+                    if (target == null || terminated) {
+                        break;
+                    }
+
+                    if (demand > 0 && !buffered.isEmpty()) {
+                        element = buffered.poll();
+                        demand--;
+                        credit = takeCredit();
+                    } else if (buffered.isEmpty() && (ended || failure != null)) {
+                        terminated = true;
+                        error = failure;
+                        complete = failure == null;
+                    } else {
+                        // the subscriber is waiting for elements that haven't arrived yet
+                        if (demand > 0) {
+                            scheduleTimeout();
+                        }
+                        break;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                if (error != null) {
+                    target.onError(error);
+                    break;
+                }
+                if (complete) {
+                    target.onComplete();
+                    break;
+                }
+
+                grant(credit);
+                target.onNext(element == NULL_ELEMENT ? null : (T) element);
+            }
+
+            missed = drains.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * @param streamType The declared return type of the invoked method, see {@link ProcedureMethod#isStreamed(Class)}
+     * @return This stream, as the type the caller expects
+     */
+    public Object adaptTo(Class<?> streamType) {
+        if (streamType == Stream.class) {
+            // closing the stream before it has ended cancels it, afterwards there is nothing left to cancel
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false).onClose(this::close);
+        }
+        return this;
+    }
+
+    // must be called while holding the lock, returns the credit to grant (if any)
+    private int takeCredit() {
+        consumed++;
+
+        // granting credit in bulk keeps the number of credit packets down, while the other half of the window keeps the elements coming
+        if (ended || failure != null || consumed < Math.max(1, windowSize / 2)) {
+            return 0;
+        }
+        int credit = consumed;
+        consumed = 0;
+        return credit;
+    }
+
+    private void grant(int credit) {
+        if (credit > 0) {
+            creditSender.accept(new StreamCredit(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), responderId, credit));
+        }
+    }
+
+    // must be called while holding the lock
+    private void scheduleTimeout() {
+        if (timeout == null) {
+            timeout = timer.newTimeout(this, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // must be called while holding the lock
+    private void cancelTimeout() {
+        if (timeout != null) {
+            timeout.cancel();
+            timeout = null;
+        }
+    }
+
+    public InvocationDescriptor getInvocationDescriptor() {
+        return invocationDescriptor;
+    }
+
+    /**
+     * Inherited from TimerTask.
+     * Called when the next element didn't arrive in time, unless it arrived (and cancelled the timeout) just before.
+     */
+    @Override
+    public void run(Timeout timeout) {
+        RuntimeException rejected;
+        lock.lock();
+        try {
+            if (timeout != this.timeout) {
+                return;
+            }
+            this.timeout = null;
+
+            // a rejection is more telling than the timeout, as long as no node has responded since
+            rejected = responderId == StreamCredit.ANY_RESPONDER ? rejection : null;
+        } finally {
+            lock.unlock();
+        }
+
+        fail(rejected != null ? rejected : new InvocationTimedOutException(invocationDescriptor.getMethodName(), invocationDescriptor.getNamespace(), Duration.ofMillis(timeoutMillis)));
+        // the implementation may still be there, but the caller won't see any more of it
+        creditSender.accept(StreamCredit.cancel(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), responderId));
+    }
+}
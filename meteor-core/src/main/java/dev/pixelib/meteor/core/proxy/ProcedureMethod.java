@@ -0,0 +1,270 @@
+package dev.pixelib.meteor.core.proxy;
+
+import dev.pixelib.meteor.base.RpcOptions;
+import dev.pixelib.meteor.base.annotations.Cacheable;
+import dev.pixelib.meteor.base.annotations.Invalidates;
+import dev.pixelib.meteor.base.annotations.OneWay;
+import dev.pixelib.meteor.base.annotations.SingleFlight;
+import dev.pixelib.meteor.base.annotations.Timeout;
+import dev.pixelib.meteor.core.utils.GenericSignature;
+import dev.pixelib.meteor.core.utils.MethodFingerprint;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+
+public class ProcedureMethod {
+
+    /**
+     * Everything the proxy needs to know about a procedure method, resolved once per method instead of on every invocation.
+     */
+
+    private final Method method;
+
+    /**
+     * The type that is sent over the wire as the return type.
+     * For asynchronous methods this is the type argument of the future, not the future itself.
+     */
+    private final Class<?> returnType;
+
+    /**
+     * Whether the method returns a CompletableFuture or CompletionStage, in which case the caller should never be blocked.
+     */
+    private final boolean async;
+
+    /**
+     * Whether the method returns a Stream, Iterator or Flow.Publisher, whose elements are sent in chunks as the caller consumes them.
+     */
+    private final boolean streamed;
+
+    /**
+     * Whether invocations should be sent without waiting for a response.
+     */
+    private final boolean oneWay;
+
+    /**
+     * Stable hash of the method signature, sent instead of the class, method and type names.
+     */
+    private final long fingerprint;
+
+    /**
+     * How long to wait for a response, resolved from the method annotation, the proxy or the global options (in that order).
+     */
+    private final long timeoutMillis;
+
+    private final Class<?>[] parameterTypes;
+
+    /**
+     * The declared parameter and return types, including their type arguments.
+     */
+    private final GenericSignature genericSignature;
+
+    /**
+     * How long results stay in the near cache, or 0 if the method isn't cacheable.
+     */
+    private final long cacheTtlMillis;
+
+    /**
+     * The maximum number of cached results, only used if the method is cacheable.
+     */
+    private final int cacheMaxEntries;
+
+    /**
+     * Names of the cacheable methods that become stale when this method is invoked (empty for all of them), or null if it doesn't invalidate anything.
+     */
+    private final String[] invalidates;
+
+    /**
+     * Whether concurrent invocations with equal arguments share a single invocation.
+     */
+    private final boolean singleFlight;
+
+    public ProcedureMethod(Method method, RpcOptions options) {
+        this(method, options, options.getTimeoutMillis());
+    }
+
+    /**
+     * @param method               The procedure method
+     * @param options              The options of the meteor instance
+     * @param defaultTimeoutMillis The timeout to use if the method isn't annotated with {@link Timeout}
+     */
+    public ProcedureMethod(Method method, RpcOptions options, long defaultTimeoutMillis) {
+        this.method = method;
+        this.fingerprint = MethodFingerprint.of(method);
+        this.parameterTypes = method.getParameterTypes();
+        this.genericSignature = GenericSignature.of(method);
+
+        Class<?> declaredReturnType = method.getReturnType();
+        this.async = isAsync(method);
+        this.streamed = isStreamed(method);
+        this.returnType = resolveReturnType(method);
+
+        // streams are consumed as their elements arrive, there's no point in waiting for one to arrive as a whole first
+        if (async && isStreamed(returnType)) {
+            throw new IllegalArgumentException("Method " + method.getName() + " returns a future of a stream, which should be returned directly instead (on " + method.getDeclaringClass().getName() + ").");
+        }
+
+        boolean isVoid = declaredReturnType == void.class;
+        if (method.isAnnotationPresent(OneWay.class) && !isVoid) {
+            throw new IllegalArgumentException("Method " + method.getName() + " is annotated with @OneWay but does not return void (on " + method.getDeclaringClass().getName() + ").");
+        }
+        this.oneWay = isVoid && (options.isOneWayVoidMethods() || method.isAnnotationPresent(OneWay.class));
+
+        Timeout timeout = method.getAnnotation(Timeout.class);
+        if (timeout != null && timeout.value() <= 0) {
+            throw new IllegalArgumentException("Method " + method.getName() + " is annotated with a @Timeout that isn't positive (on " + method.getDeclaringClass().getName() + ").");
+        }
+        // sub-millisecond timeouts are rounded up rather than down to 0, which would fail the invocation right away
+        this.timeoutMillis = timeout != null ? Math.max(1, timeout.unit().toMillis(timeout.value())) : defaultTimeoutMillis;
+
+        Cacheable cacheable = method.getAnnotation(Cacheable.class);
+        if (cacheable != null && (isVoid || streamed || cacheable.ttl() <= 0 || cacheable.maxEntries() < 1)) {
+            throw new IllegalArgumentException("Method " + method.getName() + " is annotated with @Cacheable, but returns void or a stream, or doesn't have a positive ttl and maxEntries (on " + method.getDeclaringClass().getName() + ").");
+        }
+        this.cacheTtlMillis = cacheable != null ? Math.max(1, cacheable.unit().toMillis(cacheable.ttl())) : 0;
+        this.cacheMaxEntries = cacheable != null ? cacheable.maxEntries() : 0;
+
+        Invalidates invalidatesAnnotation = method.getAnnotation(Invalidates.class);
+        this.invalidates = invalidatesAnnotation != null ? invalidatesAnnotation.value() : null;
+
+        this.singleFlight = method.isAnnotationPresent(SingleFlight.class);
+        if (singleFlight && (oneWay || streamed)) {
+            throw new IllegalArgumentException("Method " + method.getName() + " is annotated with @SingleFlight but is one-way or returns a stream (on " + method.getDeclaringClass().getName() + ").");
+        }
+    }
+
+    /**
+     * @param method The method to check
+     * @return Whether the method returns a future that should be completed instead of blocked on
+     */
+    public static boolean isAsync(Method method) {
+        return method.getReturnType() == CompletableFuture.class || method.getReturnType() == CompletionStage.class;
+    }
+
+    /**
+     * @param method The method to check
+     * @return Whether the method returns a stream of elements that should be sent as the caller consumes them
+     */
+    public static boolean isStreamed(Method method) {
+        return isStreamed(method.getReturnType());
+    }
+
+    /**
+     * @param returnType The return type of a procedure method
+     * @return Whether the type is one of the streams that results are sent in chunks for
+     */
+    public static boolean isStreamed(Class<?> returnType) {
+        return returnType == Stream.class || returnType == Iterator.class || returnType == Flow.Publisher.class;
+    }
+
+    /**
+     * @param method The method to resolve
+     * @return The type that is sent over the wire as the return type, which is the type argument for asynchronous methods
+     */
+    public static Class<?> resolveReturnType(Method method) {
+        if (!isAsync(method)) {
+            return method.getReturnType();
+        }
+
+        Type genericReturnType = method.getGenericReturnType();
+        return genericReturnType instanceof ParameterizedType parameterizedType
+                ? rawClassOf(parameterizedType.getActualTypeArguments()[0])
+                : Object.class;
+    }
+
+    /**
+     * Erase a generic type to the class that will actually be used for (de)serialization.
+     * @param type The type to erase
+     * @return The raw class of the type, or Object if the type cannot be narrowed down any further
+     */
+    private static Class<?> rawClassOf(Type type) {
+        if (type instanceof Class<?> clazz) {
+            return clazz;
+        }
+
+        if (type instanceof ParameterizedType parameterizedType) {
+            return rawClassOf(parameterizedType.getRawType());
+        }
+
+        if (type instanceof GenericArrayType genericArrayType) {
+            return rawClassOf(genericArrayType.getGenericComponentType()).arrayType();
+        }
+
+        if (type instanceof WildcardType wildcardType) {
+            return rawClassOf(wildcardType.getUpperBounds()[0]);
+        }
+
+        if (type instanceof TypeVariable<?> typeVariable) {
+            return rawClassOf(typeVariable.getBounds()[0]);
+        }
+
+        return Object.class;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public Class<?> getReturnType() {
+        return returnType;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public boolean isStreamed() {
+        return streamed;
+    }
+
+    public boolean isOneWay() {
+        return oneWay;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public Class<?>[] getParameterTypes() {
+        return parameterTypes;
+    }
+
+    public GenericSignature getGenericSignature() {
+        return genericSignature;
+    }
+
+    public boolean isCacheable() {
+        return cacheTtlMillis > 0;
+    }
+
+    public long getCacheTtlMillis() {
+        return cacheTtlMillis;
+    }
+
+    public int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public boolean isSingleFlight() {
+        return singleFlight;
+    }
+
+    /**
+     * @return Names of the cacheable methods invalidated by this method (empty for all of them), or null if it doesn't invalidate anything
+     */
+    public String[] getInvalidates() {
+        return invalidates;
+    }
+}
@@ -1,19 +1,72 @@
 package dev.pixelib.meteor.core.proxy;
 
+import dev.pixelib.meteor.base.RpcOptions;
 import dev.pixelib.meteor.core.trackers.OutgoingInvocationTracker;
 import dev.pixelib.meteor.core.transport.packets.InvocationDescriptor;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ProxyInvocHandler implements InvocationHandler {
 
     private final OutgoingInvocationTracker localInvocationTracker;
     private final String namespace;
+    private final RpcOptions options;
+    private final Class<?> procedure;
+
+    // Caches results of cacheable methods, or null if this proxy doesn't cache
+    private final NearCache nearCache;
+
+    // The near caches of the cacheable methods of this proxy
+    private final Map<Method, NearCache.MethodCache> methodCaches = new ConcurrentHashMap<>();
+
+    // Timeout for methods without their own @Timeout, either the override given on registration or the global timeout
+    private final long defaultTimeoutMillis;
+
+    // Resolved method metadata, so reflection on the interface only happens once per method
+    private final Map<Method, ProcedureMethod> procedureMethods = new ConcurrentHashMap<>();
+
+    public ProxyInvocHandler(OutgoingInvocationTracker outgoingInvocationTracker, Class<?> procedure, String namespace, RpcOptions options) {
+        this(outgoingInvocationTracker, procedure, namespace, options, null);
+    }
+
+    /**
+     * @param timeout Timeout for all methods of this proxy that aren't annotated with their own, or null to use the global timeout
+     */
+    public ProxyInvocHandler(OutgoingInvocationTracker outgoingInvocationTracker, Class<?> procedure, String namespace, RpcOptions options, Duration timeout) {
+        this(outgoingInvocationTracker, procedure, namespace, options, timeout, null);
+    }
+
+    /**
+     * @param timeout   Timeout for all methods of this proxy that aren't annotated with their own, or null to use the global timeout
+     * @param nearCache Cache for the results of methods annotated with {@link dev.pixelib.meteor.base.annotations.Cacheable}, or null to never cache
+     */
+    public ProxyInvocHandler(OutgoingInvocationTracker outgoingInvocationTracker, Class<?> procedure, String namespace, RpcOptions options, Duration timeout, NearCache nearCache) {
+        if (timeout != null && (timeout.isNegative() || timeout.isZero())) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
 
-    public ProxyInvocHandler(OutgoingInvocationTracker outgoingInvocationTracker, String namespace) {
         this.localInvocationTracker = outgoingInvocationTracker;
         this.namespace = namespace;
+        this.options = options;
+        this.procedure = procedure;
+        this.nearCache = nearCache;
+        this.defaultTimeoutMillis = timeout != null ? Math.max(1, timeout.toMillis()) : options.getTimeoutMillis();
+
+        // resolve all methods up front, so invalid procedures are rejected on registration instead of on first use
+        for (Method method : procedure.getMethods()) {
+            ProcedureMethod procedureMethod = new ProcedureMethod(method, options, defaultTimeoutMillis);
+            procedureMethods.put(method, procedureMethod);
+
+            if (nearCache != null && procedureMethod.isCacheable()) {
+                methodCaches.put(method, nearCache.cacheFor(procedure, namespace, procedureMethod));
+            }
+        }
     }
 
     @Override
@@ -23,15 +76,126 @@ public class ProxyInvocHandler implements InvocationHandler {
             args = new Object[0];
         }
 
-        // build invocation descriptor
-        Class<?>[] argTypes = new Class<?>[args.length];
-        for (int i = 0; i < args.length; i++)
-            argTypes[i] = args[i].getClass();
+        ProcedureMethod procedureMethod = procedureMethods.computeIfAbsent(method, key -> new ProcedureMethod(key, options, defaultTimeoutMillis));
+
+        NearCache.MethodCache methodCache = methodCaches.get(method);
+        if (methodCache != null) {
+            return invokeCached(methodCache, procedureMethod, args);
+        }
+
+        if (procedureMethod.getInvalidates() != null && nearCache != null) {
+            return invokeInvalidating(procedureMethod, args);
+        }
+
+        return invokeRemote(procedureMethod, args);
+    }
+
+    private InvocationDescriptor describe(ProcedureMethod procedureMethod, Object[] args) {
+        Method method = procedureMethod.getMethod();
+
+        // build invocation descriptor, the signature itself only goes over the wire as a fingerprint
+        InvocationDescriptor invocationDescriptor = new InvocationDescriptor(
+                namespace,
+                method.getDeclaringClass(),
+                method.getName(),
+                args,
+                procedureMethod.getParameterTypes(),
+                procedureMethod.getReturnType(),
+                procedureMethod.isOneWay(),
+                procedureMethod.getFingerprint()
+        );
+        invocationDescriptor.assignGenericSignature(procedureMethod.getGenericSignature());
+        return invocationDescriptor;
+    }
+
+    private Object invokeRemote(ProcedureMethod procedureMethod, Object[] args) throws Throwable {
+        if (procedureMethod.isSingleFlight()) {
+            return invokeSingleFlight(procedureMethod, args);
+        }
+
+        InvocationDescriptor invocationDescriptor = describe(procedureMethod, args);
 
-        InvocationDescriptor invocationDescriptor = new InvocationDescriptor(namespace, method.getDeclaringClass(), method.getName(), args, argTypes, method.getReturnType());
+        // one-way invocations don't have anything to wait for
+        if (procedureMethod.isOneWay()) {
+            localInvocationTracker.invokeOneWay(invocationDescriptor);
+            return null;
+        }
+
+        // streams are handed back straight away as well, and fill up as chunks of their elements arrive
+        if (procedureMethod.isStreamed()) {
+            return localInvocationTracker.invokeStreaming(invocationDescriptor, procedureMethod.getTimeoutMillis()).adaptTo(procedureMethod.getMethod().getReturnType());
+        }
+
+        // futures are handed back straight away, and get completed by the transport thread once the response arrives
+        if (procedureMethod.isAsync()) {
+            return localInvocationTracker.invokeRemoteMethodAsync(invocationDescriptor, procedureMethod.getTimeoutMillis());
+        }
 
         // wait for response or timeout
-        return localInvocationTracker.invokeRemoteMethod(invocationDescriptor);
+        return localInvocationTracker.invokeRemoteMethod(invocationDescriptor, procedureMethod.getTimeoutMillis());
+    }
+
+    private Object invokeSingleFlight(ProcedureMethod procedureMethod, Object[] args) throws Throwable {
+        CompletableFuture<Object> flight = localInvocationTracker.invokeSingleFlight(
+                new CallKey(namespace, procedureMethod.getMethod(), args),
+                () -> describe(procedureMethod, args),
+                procedureMethod.getTimeoutMillis()
+        );
+
+        // every caller gets its own copy, so one of them completing or cancelling it doesn't affect the others
+        if (procedureMethod.isAsync()) {
+            return flight.copy();
+        }
+
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object invokeCached(NearCache.MethodCache methodCache, ProcedureMethod procedureMethod, Object[] args) throws Throwable {
+        CallKey key = new CallKey(namespace, procedureMethod.getMethod(), args);
+        Object cached = methodCache.get(key);
+        if (cached != NearCache.MISS) {
+            return procedureMethod.isAsync() ? CompletableFuture.completedFuture(cached) : cached;
+        }
+
+        // taken before sending, so a result that was overtaken by an invalidation isn't cached
+        long generation = methodCache.getGeneration();
+
+        // the caller may reuse its arrays once the call returns, which mustn't change the cached key
+        CallKey cachedKey = key.detached();
+
+        Object result = invokeRemote(procedureMethod, args);
+        if (result instanceof CompletableFuture<?> future) {
+            return future.thenApply(value -> {
+                methodCache.put(cachedKey, value, generation);
+                return value;
+            });
+        }
+
+        methodCache.put(cachedKey, result, generation);
+        return result;
+    }
+
+    private Object invokeInvalidating(ProcedureMethod procedureMethod, Object[] args) throws Throwable {
+        // invalidate once the change has been made (or may have been, for failures and one-way invocations),
+        // so nobody caches the old result again in between
+        Object result;
+        try {
+            result = invokeRemote(procedureMethod, args);
+        } catch (Throwable e) {
+            nearCache.publishInvalidation(procedure, namespace, procedureMethod.getInvalidates());
+            throw e;
+        }
+
+        if (result instanceof CompletableFuture<?> future) {
+            return future.whenComplete((value, throwable) -> nearCache.publishInvalidation(procedure, namespace, procedureMethod.getInvalidates()));
+        }
+
+        nearCache.publishInvalidation(procedure, namespace, procedureMethod.getInvalidates());
+        return result;
     }
 
 }
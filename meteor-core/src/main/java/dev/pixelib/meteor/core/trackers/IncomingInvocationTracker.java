@@ -1,18 +1,39 @@
 package dev.pixelib.meteor.core.trackers;
 
 import dev.pixelib.meteor.core.executor.ImplementationWrapper;
+import dev.pixelib.meteor.core.utils.GenericSignature;
+import dev.pixelib.meteor.core.utils.MethodFingerprint;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 public class IncomingInvocationTracker {
 
-    // Map invocation handlers by type; used for dispatching incoming invocations
-    // Handlers without a namespace (which is nullable) are also stored here
-    private final ConcurrentHashMap<Class<?>, Collection<ImplementationWrapper>> implementations = new ConcurrentHashMap<>();
+    // Map invocation handlers by type, and then by namespace; used for dispatching incoming invocations
+    // Handlers without a namespace (which is nullable) get a dedicated slot, so every lookup is a plain hash lookup
+    private final ConcurrentHashMap<Class<?>, NamespacedImplementations> implementations = new ConcurrentHashMap<>();
+
+    // Methods of all implemented procedures, keyed by fingerprint; used to resolve fingerprinted invocations
+    private final ConcurrentHashMap<Long, Method> methodsByFingerprint = new ConcurrentHashMap<>();
+
+    // Generic signatures of the resolved methods, used to deserialize their arguments
+    private final ConcurrentHashMap<Method, GenericSignature> signatures = new ConcurrentHashMap<>();
 
     public void registerImplementation(Object implementation, String namespace) {
+        registerImplementation(implementation, namespace, null);
+    }
+
+    /**
+     * @param implementation The implementation to dispatch invocations to
+     * @param namespace      The namespace to register it under, which may be null
+     * @param executor       The executor to run its invocations on, or null to use the shared executor
+     */
+    public synchronized void registerImplementation(Object implementation, String namespace, Executor executor) {
         // get the interfaces implemented by the implementation
         Class<?>[] interfaces = implementation.getClass().getInterfaces();
 
@@ -21,15 +42,134 @@ public class IncomingInvocationTracker {
             throw new IllegalArgumentException("Implementation must implement at least one interface/procedure");
         }
 
+        // check all interfaces before registering anything, so a conflict doesn't leave a partial registration behind
+        for (Class<?> anInterface : interfaces) {
+            if (findImplementation(anInterface, namespace) != null) {
+                throw new IllegalArgumentException("An implementation of " + anInterface.getName() + " is already registered under namespace " + namespace);
+            }
+        }
+
         // register this interface as all the implemented interfaces
-        ImplementationWrapper implementationWrapper = new ImplementationWrapper(implementation, namespace);
+        ImplementationWrapper implementationWrapper = new ImplementationWrapper(implementation, namespace, executor);
 
         for (Class<?> anInterface : interfaces) {
-            implementations.computeIfAbsent(anInterface, k -> ConcurrentHashMap.newKeySet()).add(implementationWrapper);
+            registerFingerprints(anInterface);
+            implementations.computeIfAbsent(anInterface, k -> new NamespacedImplementations()).put(namespace, implementationWrapper);
+        }
+    }
+
+    /**
+     * Stop dispatching invocations to an implementation.
+     * @param implementation The implementation that was registered
+     * @param namespace      The namespace it was registered under
+     * @return Whether the implementation was registered under the namespace for at least one interface
+     */
+    public synchronized boolean unregisterImplementation(Object implementation, String namespace) {
+        boolean removed = false;
+        for (Class<?> anInterface : implementation.getClass().getInterfaces()) {
+            NamespacedImplementations namespaced = implementations.get(anInterface);
+            if (namespaced == null) {
+                continue;
+            }
+
+            removed |= namespaced.remove(namespace, implementation);
+
+            // drop interfaces without implementations, so the map doesn't keep growing with every namespace that ever existed
+            if (namespaced.isEmpty()) {
+                implementations.remove(anInterface);
+            }
         }
+        return removed;
     }
 
+    private void registerFingerprints(Class<?> procedure) {
+        for (Method method : procedure.getMethods()) {
+            Method existing = methodsByFingerprint.putIfAbsent(MethodFingerprint.of(method), method);
+            if (existing != null && !existing.equals(method)) {
+                throw new IllegalStateException("Fingerprint collision between " + MethodFingerprint.canonicalSignature(existing) + " and " + MethodFingerprint.canonicalSignature(method));
+            }
+        }
+    }
+
+    /**
+     * @param fingerprint The fingerprint of the invoked method
+     * @return The procedure method with the given fingerprint, or null if no implementation of it has been registered
+     */
+    public Method resolveMethod(long fingerprint) {
+        return methodsByFingerprint.get(fingerprint);
+    }
+
+    /**
+     * @param method A method returned by {@link #resolveMethod(long)}
+     * @return The generic signature of the method, resolved the first time it's asked for
+     */
+    public GenericSignature signatureOf(Method method) {
+        return signatures.computeIfAbsent(method, GenericSignature::of);
+    }
+
+    /**
+     * @param procedure The interface that is being invoked
+     * @param namespace The namespace of the invocation, which may be null
+     * @return The implementation registered for exactly this interface and namespace, or null if there is none
+     */
+    public ImplementationWrapper findImplementation(Class<?> procedure, String namespace) {
+        NamespacedImplementations namespaced = implementations.get(procedure);
+        if (namespaced == null) {
+            return null;
+        }
+        return namespaced.get(namespace);
+    }
+
+    /**
+     * @return A snapshot of all registered implementations, grouped by interface
+     */
     public Map<Class<?>, Collection<ImplementationWrapper>> getImplementations() {
-        return implementations;
+        Map<Class<?>, Collection<ImplementationWrapper>> snapshot = new HashMap<>();
+        implementations.forEach((procedure, namespaced) -> snapshot.put(procedure, namespaced.values()));
+        return snapshot;
+    }
+
+    private static final class NamespacedImplementations {
+        private final ConcurrentHashMap<String, ImplementationWrapper> byNamespace = new ConcurrentHashMap<>();
+        private volatile ImplementationWrapper withoutNamespace;
+
+        private ImplementationWrapper get(String namespace) {
+            return namespace == null ? withoutNamespace : byNamespace.get(namespace);
+        }
+
+        private void put(String namespace, ImplementationWrapper implementationWrapper) {
+            if (namespace == null) {
+                withoutNamespace = implementationWrapper;
+            } else {
+                byNamespace.put(namespace, implementationWrapper);
+            }
+        }
+
+        private boolean remove(String namespace, Object implementation) {
+            ImplementationWrapper current = get(namespace);
+            if (current == null || current.getImplementation() != implementation) {
+                return false;
+            }
+
+            if (namespace == null) {
+                withoutNamespace = null;
+            } else {
+                byNamespace.remove(namespace, current);
+            }
+            return true;
+        }
+
+        private boolean isEmpty() {
+            return withoutNamespace == null && byNamespace.isEmpty();
+        }
+
+        private Collection<ImplementationWrapper> values() {
+            Collection<ImplementationWrapper> values = new ArrayList<>(byNamespace.values());
+            ImplementationWrapper unnamed = withoutNamespace;
+            if (unnamed != null) {
+                values.add(unnamed);
+            }
+            return values;
+        }
     }
 }
@@ -4,43 +4,96 @@ import dev.pixelib.meteor.base.RpcOptions;
 import dev.pixelib.meteor.base.RpcSerializer;
 import dev.pixelib.meteor.base.RpcTransport;
 import dev.pixelib.meteor.base.enums.Direction;
+import dev.pixelib.meteor.base.errors.InvocationRejectedException;
+import dev.pixelib.meteor.base.errors.MethodInvocationException;
+import dev.pixelib.meteor.core.proxy.CallKey;
+import dev.pixelib.meteor.core.proxy.PendingGather;
 import dev.pixelib.meteor.core.proxy.PendingInvocation;
+import dev.pixelib.meteor.core.proxy.PendingStream;
+import dev.pixelib.meteor.core.transport.FrameBatcher;
+import dev.pixelib.meteor.core.transport.packets.FrameType;
 import dev.pixelib.meteor.core.transport.packets.InvocationDescriptor;
 import dev.pixelib.meteor.core.transport.packets.InvocationResponse;
+import dev.pixelib.meteor.core.transport.packets.StreamCredit;
+import dev.pixelib.meteor.core.utils.GenericSignature;
+import dev.pixelib.meteor.core.utils.StripedLongMap;
+import io.netty.util.Timer;
 
-import java.util.Timer;
-import java.util.UUID;
+import java.lang.reflect.Type;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 public class OutgoingInvocationTracker {
 
     private final Timer timer;
     private final RpcOptions options;
-    private RpcTransport transport;
-    private RpcSerializer serializer;
+    private final FrameBatcher frameBatcher;
+    private final RpcSerializer serializer;
+
+    // Random identifier of this tracker, so responses can be matched to it without a globally unique id per invocation
+    private final long originId = new SecureRandom().nextLong();
+
+    // Source of invocation ids, unique within this tracker
+    private final AtomicLong invocationSequence = new AtomicLong();
 
     // Map of pending invocations, keyed by invocation id
-    private final ConcurrentHashMap<UUID, PendingInvocation<?>> pendingInvocations = new ConcurrentHashMap<>();
+    private final StripedLongMap<PendingInvocation<?>> pendingInvocations = new StripedLongMap<>();
+
+    // Map of gathers that are still collecting responses, keyed by invocation id. They share the id sequence with the pending invocations.
+    private final StripedLongMap<PendingGather<?>> pendingGathers = new StripedLongMap<>();
+
+    // Map of streamed results that are still being received, keyed by invocation id. They share the id sequence with the pending invocations.
+    private final StripedLongMap<PendingStream<?>> pendingStreams = new StripedLongMap<>();
+
+    // Invocations of single flight methods that are awaiting a response, keyed by what they asked for
+    private final Map<CallKey, CompletableFuture<?>> singleFlights = new ConcurrentHashMap<>();
+
+    // Permits for invocations awaiting a response, or null if their number isn't limited
+    private final Semaphore inFlightPermits;
 
     public OutgoingInvocationTracker(RpcTransport transport, RpcSerializer serializer, RpcOptions options, Timer timer) {
-        this.transport = transport;
+        this(new FrameBatcher(transport, Direction.IMPLEMENTATION), serializer, options, timer);
+    }
+
+    /**
+     * @param frameBatcher Sends invocations in the implementation direction, possibly batched
+     */
+    public OutgoingInvocationTracker(FrameBatcher frameBatcher, RpcSerializer serializer, RpcOptions options, Timer timer) {
+        this.frameBatcher = frameBatcher;
         this.options = options;
         this.timer = timer;
         this.serializer = serializer;
+
+        if (options.getMaxInFlightInvocations() < 0) {
+            throw new IllegalArgumentException("maxInFlightInvocations cannot be negative");
+        }
+        this.inFlightPermits = options.getMaxInFlightInvocations() > 0 ? new Semaphore(options.getMaxInFlightInvocations()) : null;
+
+        if (options.getStreamWindowSize() < 1) {
+            throw new IllegalArgumentException("streamWindowSize must be at least 1");
+        }
     }
 
     public <T> T invokeRemoteMethod(InvocationDescriptor invocationDescriptor) throws Throwable {
-        // create a pending invocation
-        PendingInvocation<T> pendingInvocation = new PendingInvocation<>(options.getTimeoutSeconds(), this.timer, invocationDescriptor, () -> {
-            // remove the pending invocation from the map
-            pendingInvocations.remove(invocationDescriptor.getUniqueInvocationId());
-        });
-
-        // add the pending invocation to the map
-        pendingInvocations.put(invocationDescriptor.getUniqueInvocationId(), pendingInvocation);
+        return invokeRemoteMethod(invocationDescriptor, options.getTimeoutMillis());
+    }
 
-        transport.send(Direction.IMPLEMENTATION, invocationDescriptor.toBuffer(serializer));
+    /**
+     * Send an invocation and block the calling thread until a response is received, or the timeout expires.
+     * @param invocationDescriptor The invocation to send
+     * @param timeoutMillis        How long to wait for a response
+     * @param <T> The type of the response
+     * @return The response
+     */
+    public <T> T invokeRemoteMethod(InvocationDescriptor invocationDescriptor, long timeoutMillis) throws Throwable {
+        PendingInvocation<T> pendingInvocation = track(invocationDescriptor, timeoutMillis);
 
         // wait for response or timeout
         try {
@@ -50,21 +103,294 @@ public class OutgoingInvocationTracker {
         }
     }
 
+    /**
+     * Send an invocation without blocking the calling thread.
+     * The returned future is completed by the transport thread once a response is received, or completed exceptionally on timeout.
+     * @param invocationDescriptor The invocation to send
+     * @param <T> The type of the response
+     * @return A future that will be completed with the response
+     */
+    public <T> CompletableFuture<T> invokeRemoteMethodAsync(InvocationDescriptor invocationDescriptor) {
+        return invokeRemoteMethodAsync(invocationDescriptor, options.getTimeoutMillis());
+    }
+
+    /**
+     * Send an invocation without blocking the calling thread, see {@link #invokeRemoteMethodAsync(InvocationDescriptor)}.
+     * @param invocationDescriptor The invocation to send
+     * @param timeoutMillis        How long to wait for a response before the future is completed exceptionally
+     * @param <T> The type of the response
+     * @return A future that will be completed with the response
+     */
+    public <T> CompletableFuture<T> invokeRemoteMethodAsync(InvocationDescriptor invocationDescriptor, long timeoutMillis) {
+        PendingInvocation<T> pendingInvocation;
+        try {
+            pendingInvocation = track(invocationDescriptor, timeoutMillis);
+        } catch (RuntimeException e) {
+            // asynchronous callers expect failures through the future, not from the call itself
+            return CompletableFuture.failedFuture(e);
+        }
+        return pendingInvocation.getCompletable();
+    }
+
+    /**
+     * Send an invocation, unless an equal invocation is already awaiting its response, in which case that response is shared instead.
+     * @param key                  Identifies the invocation, invocations with equal keys are coalesced
+     * @param invocationDescriptor Creates the invocation to send, only called if there is nothing to share
+     * @param timeoutMillis        How long to wait for a response before the future is completed exceptionally
+     * @param <T> The type of the response
+     * @return A future that will be completed with the response, which is shared with every caller of the same invocation
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> invokeSingleFlight(CallKey key, Supplier<InvocationDescriptor> invocationDescriptor, long timeoutMillis) {
+        CompletableFuture<T> flight = new CompletableFuture<>();
+        CompletableFuture<?> existing = singleFlights.putIfAbsent(key, flight);
+        if (existing != null) {
+            return (CompletableFuture<T>) existing;
+        }
+
+        // the invocation is only sent once we're sure it's the only one, and may complete right away (with a synchronous transport)
+        try {
+            this.<T>invokeRemoteMethodAsync(invocationDescriptor.get(), timeoutMillis).whenComplete((result, throwable) -> {
+                singleFlights.remove(key, flight);
+                if (throwable != null) {
+                    flight.completeExceptionally(throwable);
+                } else {
+                    flight.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            singleFlights.remove(key, flight);
+            flight.completeExceptionally(e);
+        }
+        return flight;
+    }
+
+    /**
+     * Send an invocation without tracking it. No response is expected, so nothing is kept around after sending.
+     * @param invocationDescriptor The invocation to send
+     */
+    public void invokeOneWay(InvocationDescriptor invocationDescriptor) {
+        frameBatcher.send(buffer -> invocationDescriptor.writeTo(serializer, buffer));
+    }
+
+    /**
+     * Send an invocation that every implementation on the transport answers, and collect all responses until the window closes.
+     * @param invocationDescriptor The invocation to send
+     * @param windowMillis         How long to collect responses for
+     * @param minResponses         The number of responses required, the future is completed exceptionally if fewer arrive
+     * @param <T> The type of the responses
+     * @return A future that will be completed with all responses, in order of arrival
+     */
+    public <T> CompletableFuture<List<T>> invokeGather(InvocationDescriptor invocationDescriptor, long windowMillis, int minResponses) {
+        if (inFlightPermits != null && !inFlightPermits.tryAcquire()) {
+            return CompletableFuture.failedFuture(new InvocationRejectedException(invocationDescriptor.getMethodName(), invocationDescriptor.getNamespace(), "too many invocations are awaiting a response"));
+        }
+
+        long invocationId = invocationSequence.incrementAndGet();
+        invocationDescriptor.assignId(originId, invocationId);
+
+        PendingGather<T> pendingGather = new PendingGather<>(windowMillis, minResponses, this.timer, invocationDescriptor, () -> {
+            pendingGathers.remove(invocationId);
+        });
+        if (inFlightPermits != null) {
+            pendingGather.getCompletable().whenComplete((result, throwable) -> inFlightPermits.release());
+        }
+        pendingGathers.put(invocationId, pendingGather);
+        pendingGather.start();
+
+        try {
+            frameBatcher.send(buffer -> invocationDescriptor.writeTo(serializer, buffer));
+        } catch (RuntimeException e) {
+            // nobody is going to answer an invocation that was never sent, which also takes it out of the map and returns its permit
+            pendingGather.fail(e);
+        }
+
+        return pendingGather.getCompletable();
+    }
+
+    /**
+     * Send an invocation of a method that streams its result. The elements are received in chunks, and more are only sent once
+     * the caller has consumed some of them.
+     * @param invocationDescriptor The invocation to send
+     * @param timeoutMillis        How long to wait for each chunk, while the caller is waiting for elements
+     * @param <T> The type of the elements
+     * @return The stream the elements are received in, which should be closed if the caller stops consuming it before the end
+     */
+    public <T> PendingStream<T> invokeStreaming(InvocationDescriptor invocationDescriptor, long timeoutMillis) {
+        if (inFlightPermits != null && !inFlightPermits.tryAcquire()) {
+            throw new InvocationRejectedException(invocationDescriptor.getMethodName(), invocationDescriptor.getNamespace(), "too many invocations are awaiting a response");
+        }
+
+        long invocationId = invocationSequence.incrementAndGet();
+        invocationDescriptor.assignId(originId, invocationId);
+
+        // the permit is held until the stream has ended, however that happens
+        PendingStream<T> pendingStream = new PendingStream<>(timeoutMillis, options.getStreamWindowSize(), this.timer, invocationDescriptor, this::sendCredit, () -> {
+            pendingStreams.remove(invocationId);
+            if (inFlightPermits != null) {
+                inFlightPermits.release();
+            }
+        });
+        pendingStreams.put(invocationId, pendingStream);
+
+        try {
+            frameBatcher.send(buffer -> invocationDescriptor.writeTo(serializer, buffer));
+        } catch (RuntimeException e) {
+            // ends the stream before it started, which takes it out of the map and returns its permit
+            pendingStream.fail(e);
+            throw e;
+        }
+        pendingStream.start();
+
+        return pendingStream;
+    }
+
+    private void sendCredit(StreamCredit credit) {
+        // credit is sent in a frame of its own, which mustn't overtake the invocation it's for (or it would be ignored)
+        frameBatcher.flush();
+        frameBatcher.sendFrame(FrameType.STREAM_CREDIT, credit::writeTo);
+    }
+
+    private <T> PendingInvocation<T> track(InvocationDescriptor invocationDescriptor, long timeoutMillis) {
+        // fail fast instead of piling up invocations that the other side can't keep up with anyway
+        if (inFlightPermits != null && !inFlightPermits.tryAcquire()) {
+            throw new InvocationRejectedException(invocationDescriptor.getMethodName(), invocationDescriptor.getNamespace(), "too many invocations are awaiting a response");
+        }
+
+        long invocationId = invocationSequence.incrementAndGet();
+        invocationDescriptor.assignId(originId, invocationId);
+
+        // create a pending invocation
+        PendingInvocation<T> pendingInvocation = new PendingInvocation<>(timeoutMillis, this.timer, invocationDescriptor, () -> {
+            // remove the pending invocation from the map
+            pendingInvocations.remove(invocationId);
+        });
+
+        // the permit is returned however the invocation ends, be it a response, a rejection or a timeout
+        if (inFlightPermits != null) {
+            pendingInvocation.getCompletable().whenComplete((result, throwable) -> inFlightPermits.release());
+        }
+
+        // add the pending invocation to the map, before its timeout can try to take it out again
+        pendingInvocations.put(invocationId, pendingInvocation);
+        pendingInvocation.start();
+
+        try {
+            frameBatcher.send(buffer -> invocationDescriptor.writeTo(serializer, buffer));
+        } catch (RuntimeException e) {
+            // nobody is going to answer an invocation that was never sent, failing it returns its permit
+            pendingInvocations.remove(invocationId);
+            pendingInvocation.fail(e);
+            throw e;
+        }
+
+        return pendingInvocation;
+    }
+
+    /**
+     * @return The identifier of this tracker, which is sent along with every invocation
+     */
+    public long getOriginId() {
+        return originId;
+    }
+
+    /**
+     * @param originId     The origin of the invocation
+     * @param invocationId The identifier of the invocation
+     * @return The declared return type of the pending invocation (or the element type of a stream), or null if it isn't ours or isn't pending (anymore)
+     */
+    public Type resultTypeOf(long originId, long invocationId) {
+        if (originId != this.originId) {
+            return null;
+        }
+
+        InvocationDescriptor invocationDescriptor;
+        PendingInvocation<?> pendingInvocation = pendingInvocations.get(invocationId);
+        PendingStream<?> pendingStream = pendingInvocation == null ? pendingStreams.get(invocationId) : null;
+        if (pendingInvocation != null) {
+            invocationDescriptor = pendingInvocation.getInvocationDescriptor();
+        } else if (pendingStream != null) {
+            invocationDescriptor = pendingStream.getInvocationDescriptor();
+        } else {
+            PendingGather<?> pendingGather = pendingGathers.get(invocationId);
+            if (pendingGather == null) {
+                return null;
+            }
+            invocationDescriptor = pendingGather.getInvocationDescriptor();
+        }
+
+        GenericSignature genericSignature = invocationDescriptor.getGenericSignature();
+        return genericSignature != null ? genericSignature.getReturnType() : null;
+    }
+
     public boolean completeInvocation(InvocationResponse invocationResponse) {
-        // do we have a pending invocation for this invocation id?
-        PendingInvocation<?> pendingInvocation = pendingInvocations.get(invocationResponse.getInvocationId());
+        // responses to invocations sent by other instances on the same transport are none of our business
+        if (invocationResponse.getOriginId() != originId) {
+            return false;
+        }
+
+        if (invocationResponse.isRejected()) {
+            return reject(invocationResponse);
+        }
+
+        // an implementation that failed can still be made up for by another one, just like one that rejected the invocation
+        if (invocationResponse.getFailure() != null && !invocationResponse.isStreamEnd()) {
+            PendingInvocation<?> failedInvocation = pendingInvocations.get(invocationResponse.getInvocationId());
+            if (failedInvocation != null) {
+                InvocationDescriptor invocationDescriptor = failedInvocation.getInvocationDescriptor();
+                failedInvocation.reject(new MethodInvocationException(invocationDescriptor.getMethodName(), invocationDescriptor.getNamespace(),
+                        new IllegalStateException(invocationResponse.getFailure())), options.getRejectionGraceMillis());
+                return true;
+            }
+        }
+
+        // do we have a pending invocation for this invocation id? if so, take it out of the map
+        PendingInvocation<?> pendingInvocation = pendingInvocations.remove(invocationResponse.getInvocationId());
         if (pendingInvocation == null) {
+            // it may be part of a streamed result, which stays in its map until the stream ends
+            PendingStream<?> pendingStream = pendingStreams.get(invocationResponse.getInvocationId());
+            if (pendingStream != null) {
+                pendingStream.receive(invocationResponse);
+                return true;
+            }
+
+            // it may be one of many responses to a gather, which stays in its map until the window closes
+            PendingGather<?> pendingGather = pendingGathers.get(invocationResponse.getInvocationId());
+            if (pendingGather != null) {
+                // implementations that failed simply don't count towards the gather
+                return invocationResponse.getFailure() != null || pendingGather.add(invocationResponse.getResult());
+            }
+
             // we cannot handle this invocation, so it must be handled in another listener
             return false;
         }
 
         pendingInvocation.complete(invocationResponse.getResult());
 
-        // remove the pending invocation from the map
-        pendingInvocations.remove(invocationResponse.getInvocationId());
-
         // invocation was successfully completed
         return true;
     }
 
+    // other implementations may still answer, so a rejection leaves the invocation in its map until its grace period has passed
+    private boolean reject(InvocationResponse invocationResponse) {
+        PendingInvocation<?> pendingInvocation = pendingInvocations.get(invocationResponse.getInvocationId());
+        if (pendingInvocation != null) {
+            pendingInvocation.reject(rejectionOf(pendingInvocation.getInvocationDescriptor()), options.getRejectionGraceMillis());
+            return true;
+        }
+
+        PendingStream<?> pendingStream = pendingStreams.get(invocationResponse.getInvocationId());
+        if (pendingStream != null) {
+            pendingStream.reject(rejectionOf(pendingStream.getInvocationDescriptor()), options.getRejectionGraceMillis());
+            return true;
+        }
+
+        // overloaded implementations simply don't count towards a gather
+        return pendingGathers.get(invocationResponse.getInvocationId()) != null;
+    }
+
+    private static InvocationRejectedException rejectionOf(InvocationDescriptor invocationDescriptor) {
+        return new InvocationRejectedException(invocationDescriptor.getMethodName(), invocationDescriptor.getNamespace(), "the implementation is overloaded");
+    }
+
 }
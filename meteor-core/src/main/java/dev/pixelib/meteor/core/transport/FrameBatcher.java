@@ -0,0 +1,233 @@
+package dev.pixelib.meteor.core.transport;
+
+import dev.pixelib.meteor.base.RpcTransport;
+import dev.pixelib.meteor.base.enums.Direction;
+import dev.pixelib.meteor.core.transport.packets.FrameType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.io.Closeable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class FrameBatcher implements Closeable {
+
+    /**
+     * Writes packets into frames for a single direction of a transport.
+     * When batching is enabled, packets written within the linger time of each other are gathered into a single batch frame,
+     * which is sent once the linger time has passed or the frame has grown to its maximum size (whichever comes first).
+     * Otherwise, every packet is sent in a frame of its own, straight away.
+     * Packets are written straight into the frame, so they are never copied before being handed to the transport.
+     */
+
+    private final Logger logger = Logger.getLogger(FrameBatcher.class.getSimpleName());
+
+    private final ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+
+    private final RpcTransport transport;
+    private final Direction direction;
+    private final int maxFrameBytes;
+    private final long lingerNanos;
+    private final ScheduledExecutorService scheduler;
+
+    // Compresses frames that are large enough to benefit from it, or null to send all frames as they are
+    private final FrameCompressor compressor;
+
+    // Held while writing to, and sending, the current batch. Sending under the lock keeps frames in the order their packets were written.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // The batch that is currently being filled, or null. Starts with the frame type and a placeholder for the packet count.
+    private ByteBuf batch;
+    private int batchCount;
+
+    // Incremented for every batch, so scheduled flushes don't send a batch that was started after them
+    private long batchGeneration;
+
+    /**
+     * @param transport     The transport to send frames with
+     * @param direction     The direction to send frames in
+     * @param maxFrameBytes A batch is sent as soon as it has grown to this size
+     * @param lingerMicros  How long a packet may wait for others to join it, or 0 to disable batching
+     * @param scheduler     Runs the delayed flushes, may only be null if batching is disabled
+     */
+    public FrameBatcher(RpcTransport transport, Direction direction, int maxFrameBytes, long lingerMicros, ScheduledExecutorService scheduler) {
+        this(transport, direction, maxFrameBytes, lingerMicros, scheduler, null);
+    }
+
+    /**
+     * @param transport     The transport to send frames with
+     * @param direction     The direction to send frames in
+     * @param maxFrameBytes A batch is sent as soon as it has grown to this size (before compression)
+     * @param lingerMicros  How long a packet may wait for others to join it, or 0 to disable batching
+     * @param scheduler     Runs the delayed flushes, may only be null if batching is disabled
+     * @param compressor    Compresses frames before they are sent, or null to never compress
+     */
+    public FrameBatcher(RpcTransport transport, Direction direction, int maxFrameBytes, long lingerMicros, ScheduledExecutorService scheduler, FrameCompressor compressor) {
+        if (maxFrameBytes < 1) {
+            throw new IllegalArgumentException("maxFrameBytes must be at least 1");
+        }
+        if (lingerMicros < 0) {
+            throw new IllegalArgumentException("lingerMicros cannot be negative");
+        }
+        if (lingerMicros > 0 && scheduler == null) {
+            throw new IllegalArgumentException("A scheduler is required when batching is enabled");
+        }
+
+        this.transport = transport;
+        this.direction = direction;
+        this.maxFrameBytes = maxFrameBytes;
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+        this.scheduler = scheduler;
+        this.compressor = compressor;
+    }
+
+    /**
+     * Unbatched frames, every packet is sent by itself as soon as it is written.
+     * @param transport The transport to send frames with
+     * @param direction The direction to send frames in
+     */
+    public FrameBatcher(RpcTransport transport, Direction direction) {
+        this(transport, direction, Integer.MAX_VALUE, 0, null);
+    }
+
+    /**
+     * Write a packet and send it, either straight away or as part of a batch.
+     * @param packetWriter Writes the packet, may throw to abort without affecting other packets in the batch
+     */
+    public void send(PacketWriter packetWriter) {
+        if (lingerNanos == 0) {
+            sendFrame(FrameType.SINGLE, packetWriter);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (batch == null) {
+                startBatch();
+            }
+
+            int packetStart = batch.writerIndex();
+            batch.writeInt(0);
+            try {
+                packetWriter.writeTo(batch);
+            } catch (RuntimeException e) {
+                // drop whatever was written of this packet, the rest of the batch is still good
+                batch.writerIndex(packetStart);
+                throw e;
+            }
+            batch.setInt(packetStart, batch.writerIndex() - packetStart - Integer.BYTES);
+            batchCount++;
+
+            if (batch.readableBytes() >= maxFrameBytes) {
+                flushBatch();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Send the current batch (if any) right away.
+     */
+    public void flush() {
+        // nothing is ever held back when batching is disabled
+        if (lingerNanos == 0) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            flushBatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Send a frame by itself, straight away, regardless of batching. Used for frames that aren't made up of packets.
+     * @param frameType    The type of the frame
+     * @param packetWriter Writes the content of the frame, following its type
+     */
+    public void sendFrame(FrameType frameType, PacketWriter packetWriter) {
+        ByteBuf frame = allocator.buffer();
+        try {
+            frame.writeByte(frameType.getId());
+            packetWriter.writeTo(frame);
+            frame = compress(frame);
+            transport.send(direction, frame.nioBuffer());
+        } finally {
+            frame.release();
+        }
+    }
+
+    private void startBatch() {
+        batch = allocator.buffer();
+        batch.writeByte(FrameType.BATCH.getId());
+        batch.writeInt(0);
+        batchCount = 0;
+
+        long generation = ++batchGeneration;
+        scheduler.schedule(() -> flushScheduled(generation), lingerNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void flushScheduled(long generation) {
+        lock.lock();
+        try {
+            // the batch this flush was scheduled for has already been sent
+            if (generation != batchGeneration) {
+                return;
+            }
+            flushBatch();
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Failed to send a batch of packets", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // must be called while holding the lock
+    private void flushBatch() {
+        ByteBuf frame = batch;
+        int count = batchCount;
+        batch = null;
+        batchCount = 0;
+
+        if (frame == null) {
+            return;
+        }
+
+        try {
+            // every packet in the batch may have failed to write
+            if (count == 0) {
+                return;
+            }
+            frame.setInt(1, count);
+            frame = compress(frame);
+            transport.send(direction, frame.nioBuffer());
+        } finally {
+            frame.release();
+        }
+    }
+
+    // releases the given frame if a compressed one is returned in its place
+    private ByteBuf compress(ByteBuf frame) {
+        return compressor == null ? frame : compressor.compress(frame, allocator);
+    }
+
+    /**
+     * Send whatever is still waiting in the current batch.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    @FunctionalInterface
+    public interface PacketWriter {
+        void writeTo(ByteBuf buffer);
+    }
+}
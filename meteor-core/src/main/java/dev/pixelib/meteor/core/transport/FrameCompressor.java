@@ -0,0 +1,111 @@
+package dev.pixelib.meteor.core.transport;
+
+import dev.pixelib.meteor.base.CompressionCodec;
+import dev.pixelib.meteor.base.defaults.DeflateCodec;
+import dev.pixelib.meteor.core.transport.packets.FrameType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+public class FrameCompressor {
+
+    /**
+     * Compresses the content of frames (everything after the type byte) once they reach a size threshold, and decompresses received ones.
+     * Small frames are left alone, since compressing them costs more time than it could ever save on the wire.
+     * Compressed frames are flagged in their type byte, so both kinds can be mixed freely on the same transport.
+     */
+
+    private static final CompressionCodec DEFAULT_CODEC = new DeflateCodec();
+
+    private final CompressionCodec codec;
+    private final int thresholdBytes;
+    private final int maxFrameBytes;
+
+    /**
+     * @param codec          The codec to compress frames with
+     * @param thresholdBytes The minimum size of the content of a frame before it is compressed, or 0 to only decompress
+     * @param maxFrameBytes  The maximum size of the content of a received frame once decompressed
+     */
+    public FrameCompressor(CompressionCodec codec, int thresholdBytes, int maxFrameBytes) {
+        if (codec == null) {
+            throw new IllegalArgumentException("codec cannot be null");
+        }
+        if (thresholdBytes < 0) {
+            throw new IllegalArgumentException("thresholdBytes cannot be negative");
+        }
+        if (maxFrameBytes < 1) {
+            throw new IllegalArgumentException("maxFrameBytes must be at least 1");
+        }
+
+        this.codec = codec;
+        this.thresholdBytes = thresholdBytes;
+        this.maxFrameBytes = maxFrameBytes;
+    }
+
+    /**
+     * @param frame     A complete frame, starting with its type byte. Released if a compressed frame is returned instead.
+     * @param allocator The allocator for the compressed frame
+     * @return A compressed copy of the frame, or the frame itself if it's too small, or compressing wouldn't make it any smaller
+     */
+    public ByteBuf compress(ByteBuf frame, ByteBufAllocator allocator) {
+        int contentStart = frame.readerIndex() + 1;
+        int contentLength = frame.writerIndex() - contentStart;
+        if (thresholdBytes == 0 || contentLength < thresholdBytes) {
+            return frame;
+        }
+
+        byte[] compressed;
+        if (frame.hasArray()) {
+            compressed = codec.compress(frame.array(), frame.arrayOffset() + contentStart, contentLength);
+        } else {
+            compressed = codec.compress(ByteBufUtil.getBytes(frame, contentStart, contentLength, false), 0, contentLength);
+        }
+
+        // the codec id and length take up 5 bytes of their own
+        if (compressed.length + 5 >= contentLength) {
+            return frame;
+        }
+
+        ByteBuf compressedFrame = allocator.buffer(1 + 5 + compressed.length);
+        try {
+            compressedFrame.writeByte(frame.getByte(frame.readerIndex()) | FrameType.COMPRESSED_FLAG);
+            compressedFrame.writeByte(codec.getId());
+            compressedFrame.writeInt(contentLength);
+            compressedFrame.writeBytes(compressed);
+        } catch (RuntimeException e) {
+            compressedFrame.release();
+            throw e;
+        }
+
+        frame.release();
+        return compressedFrame;
+    }
+
+    /**
+     * @param frame A compressed frame, of which the type byte has already been read
+     * @return The decompressed content of the frame
+     * @throws IllegalArgumentException If the frame was compressed with a codec we don't know, or claims to decompress to more than the maximum frame size
+     */
+    public ByteBuf decompress(ByteBuf frame) {
+        byte codecId = frame.readByte();
+        int contentLength = frame.readInt();
+
+        // the length comes straight from the wire, so it's checked before the codec allocates anything for it
+        if (contentLength < 0 || contentLength > maxFrameBytes) {
+            throw new IllegalArgumentException("Frame would decompress to " + contentLength + " bytes, the maximum is " + maxFrameBytes);
+        }
+
+        CompressionCodec frameCodec;
+        if (codecId == codec.getId()) {
+            frameCodec = codec;
+        } else if (codecId == DEFAULT_CODEC.getId()) {
+            frameCodec = DEFAULT_CODEC;
+        } else {
+            throw new IllegalArgumentException("Frame was compressed with unknown codec " + codecId);
+        }
+
+        byte[] compressed = ByteBufUtil.getBytes(frame, frame.readerIndex(), frame.readableBytes(), false);
+        return Unpooled.wrappedBuffer(frameCodec.decompress(compressed, contentLength));
+    }
+}
@@ -0,0 +1,347 @@
+package dev.pixelib.meteor.core.transport;
+
+import dev.pixelib.meteor.core.executor.RejectableTask;
+import dev.pixelib.meteor.core.transport.packets.InvocationDescriptor;
+import dev.pixelib.meteor.core.transport.packets.InvocationResponse;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+public class StreamedResult implements TimerTask {
+
+    /**
+     * The implementation side of a streamed result. Elements are taken from the returned Stream or Iterator (on the executor of the implementation,
+     * since that may block), or requested from the returned Flow.Publisher, but only as far as the invoker has granted credit for them.
+     * They are sent in chunks, followed by the end of the stream once the source runs dry or fails.
+     * Credit can arrive before the implementation has returned, so a streamed result is created as soon as its invocation is received.
+     */
+
+    // Upper bound on the number of elements per chunk, so a large grant doesn't end up as a single huge packet
+    private static final int MAX_CHUNK_SIZE = 64;
+
+    private final Logger logger = Logger.getLogger(StreamedResult.class.getSimpleName());
+
+    private final InvocationDescriptor invocationDescriptor;
+
+    // Identifies this node to the invoker, which may be receiving streams from other implementations too
+    private final long responderId;
+
+    // Takes elements from iterated sources, which may block
+    private final Executor executor;
+
+    // Sends chunks and the end of the stream to the invoker
+    private final Consumer<InvocationResponse> responseSender;
+
+    // Called once the stream has ended or been cancelled, to stop routing credit to it
+    private final Runnable closeCallback;
+
+    private final Timer timer;
+    private final long idleTimeoutMillis;
+
+    // Credit granted by the invoker that hasn't been used up yet
+    private final AtomicLong credits = new AtomicLong();
+
+    // Makes sure only one thread takes elements from an iterated source at a time, counting the reasons to take another look at it
+    private final AtomicInteger pumps = new AtomicInteger();
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    // Takes elements from an iterated source on the executor
+    private final DrainTask drainTask = new DrainTask();
+
+    // The source of the elements, set once the implementation has returned. Publishers are subscribed to instead.
+    private volatile Iterator<?> iterator;
+
+    // Closed along with the stream, if the implementation returned one
+    private volatile AutoCloseable closeable;
+
+    // Guarded by this, since credit may arrive while the publisher is subscribing
+    private Flow.Subscription subscription;
+
+    private volatile long lastCreditNanos = System.nanoTime();
+
+    /**
+     * @param invocationDescriptor The invocation whose result is streamed
+     * @param responderId          Identifies this node in every chunk it sends
+     * @param executor             Takes elements from iterated sources
+     * @param responseSender       Sends responses to the invoker
+     * @param closeCallback        Called once the stream has ended or has been cancelled
+     * @param timer                Checks whether the invoker is still consuming the stream
+     * @param idleTimeoutMillis    How long the invoker may go without granting credit, once it has used up all of it
+     */
+    public StreamedResult(InvocationDescriptor invocationDescriptor, long responderId, Executor executor, Consumer<InvocationResponse> responseSender, Runnable closeCallback, Timer timer, long idleTimeoutMillis) {
+        this.invocationDescriptor = invocationDescriptor;
+        this.responderId = responderId;
+        this.executor = executor;
+        this.responseSender = responseSender;
+        this.closeCallback = closeCallback;
+        this.timer = timer;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Start streaming the result returned by the implementation, which also starts checking whether the invoker is still consuming it.
+     * @param result A Stream, Iterator or Flow.Publisher, or null for an empty stream
+     */
+    public void start(Object result) {
+        timer.newTimeout(this, idleTimeoutMillis, TimeUnit.MILLISECONDS);
+
+        if (result == null) {
+            finish(null);
+            return;
+        }
+
+        if (result instanceof Flow.Publisher<?> publisher) {
+            publisher.subscribe(new CreditedSubscriber());
+            return;
+        }
+
+        if (result instanceof Stream<?> stream) {
+            closeable = stream;
+            iterator = stream.iterator();
+        } else if (result instanceof Iterator<?> resultIterator) {
+            iterator = resultIterator;
+        } else {
+            finish("The implementation returned a " + result.getClass().getName() + " instead of a stream");
+            return;
+        }
+
+        // takes elements if there's credit for them, or closes the source if the stream was cancelled in the meantime
+        pump();
+    }
+
+    /**
+     * @param credits The number of elements the invoker is ready to receive, on top of what it was granted before
+     */
+    public void addCredits(int credits) {
+        lastCreditNanos = System.nanoTime();
+
+        Flow.Subscription currentSubscription;
+        synchronized (this) {
+            this.credits.addAndGet(credits);
+            currentSubscription = subscription;
+        }
+
+        if (currentSubscription != null) {
+            currentSubscription.request(credits);
+        } else {
+            pump();
+        }
+    }
+
+    /**
+     * Stop streaming because the invoker is no longer interested, without telling it.
+     */
+    public void cancel() {
+        close();
+    }
+
+    /**
+     * Stop streaming because the implementation failed, and let the invoker know.
+     * @param cause What went wrong
+     */
+    public void fail(Throwable cause) {
+        logger.log(Level.SEVERE, "An error occurred while streaming the result of method " + invocationDescriptor.getMethodName(), cause);
+        finish(cause.toString());
+    }
+
+    // sends the end of the stream, unless it has already ended or was cancelled
+    private void finish(String failure) {
+        if (close()) {
+            responseSender.accept(InvocationResponse.streamEnd(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), responderId, failure));
+        }
+    }
+
+    private boolean close() {
+        if (!closed.compareAndSet(false, true)) {
+            return false;
+        }
+
+        if (closeCallback != null) {
+            closeCallback.run();
+        }
+
+        Flow.Subscription currentSubscription;
+        synchronized (this) {
+            currentSubscription = subscription;
+        }
+        if (currentSubscription != null) {
+            currentSubscription.cancel();
+        }
+
+        // iterated sources are closed by whoever is taking elements from them
+        pump();
+        return true;
+    }
+
+    private void pump() {
+        if (iterator == null || pumps.getAndIncrement() != 0) {
+            return;
+        }
+
+        try {
+            executor.execute(drainTask);
+        } catch (RejectedExecutionException e) {
+            drainTask.reject();
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        do {
+            try {
+                while (!closed.get() && credits.get() > 0) {
+                    sendChunk();
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+
+            // the source is never used again once closed, so this pump is left in place to keep others from starting
+            if (closed.get()) {
+                closeSource();
+                return;
+            }
+
+            missed = pumps.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void sendChunk() {
+        int size = (int) Math.min(credits.get(), MAX_CHUNK_SIZE);
+        List<Object> chunk = new ArrayList<>(size);
+        RuntimeException failure = null;
+        try {
+            while (chunk.size() < size && iterator.hasNext()) {
+                chunk.add(iterator.next());
+            }
+        } catch (RuntimeException e) {
+            // the elements taken before the source failed are still sent
+            failure = e;
+        }
+        credits.addAndGet(-chunk.size());
+
+        if (!chunk.isEmpty()) {
+            responseSender.accept(InvocationResponse.streamChunk(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), responderId, chunk.toArray()));
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        // let the invoker know right away when this was the last of it, instead of once it has credit again
+        if (!iterator.hasNext()) {
+            finish(null);
+        }
+    }
+
+    private void closeSource() {
+        AutoCloseable source = closeable;
+        if (source == null) {
+            return;
+        }
+
+        try {
+            source.close();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to close the streamed result of method " + invocationDescriptor.getMethodName(), e);
+        }
+    }
+
+    /**
+     * Inherited from TimerTask.
+     * Abandons the stream once the invoker has gone without granting credit for too long, since it may be gone altogether.
+     */
+    @Override
+    public void run(Timeout timeout) {
+        if (closed.get()) {
+            return;
+        }
+
+        long idleMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastCreditNanos);
+        if (credits.get() <= 0 && idleMillis >= idleTimeoutMillis) {
+            finish("The invoker stopped consuming the stream");
+            return;
+        }
+
+        // waiting on the source doesn't count, only waiting on the invoker does
+        long remainingMillis = credits.get() > 0 ? idleTimeoutMillis : idleTimeoutMillis - idleMillis;
+        timer.newTimeout(this, Math.max(1, remainingMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Takes elements from an iterated source. Executors that drop it from their queue reject it instead, which ends the stream,
+     * since nothing is going to take elements from the source anymore.
+     */
+    private final class DrainTask implements RejectableTask {
+
+        @Override
+        public void run() {
+            drain();
+        }
+
+        @Override
+        public void reject() {
+            finish("The implementation is overloaded");
+            closeSource();
+        }
+    }
+
+    /**
+     * Requests exactly as many elements from the returned publisher as the invoker has granted credit for.
+     * Every element is sent as a chunk of its own as soon as it's published, the response batcher gathers them when batching is enabled.
+     */
+    private final class CreditedSubscriber implements Flow.Subscriber<Object> {
+
+        @Override
+        public void onSubscribe(Flow.Subscription newSubscription) {
+            long initialCredits;
+            synchronized (StreamedResult.this) {
+                subscription = newSubscription;
+                initialCredits = credits.get();
+            }
+
+            // the stream may have been cancelled before there was anything to cancel
+            if (closed.get()) {
+                newSubscription.cancel();
+                return;
+            }
+            if (initialCredits > 0) {
+                newSubscription.request(initialCredits);
+            }
+        }
+
+        @Override
+        public void onNext(Object item) {
+            if (closed.get()) {
+                return;
+            }
+            credits.decrementAndGet();
+            responseSender.accept(InvocationResponse.streamChunk(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), responderId, new Object[]{item}));
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            finish(null);
+        }
+    }
+}
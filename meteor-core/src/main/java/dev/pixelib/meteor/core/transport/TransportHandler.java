@@ -3,17 +3,36 @@ package dev.pixelib.meteor.core.transport;
 import dev.pixelib.meteor.base.RpcSerializer;
 import dev.pixelib.meteor.base.RpcTransport;
 import dev.pixelib.meteor.base.enums.Direction;
+import dev.pixelib.meteor.base.errors.MethodInvocationException;
+import dev.pixelib.meteor.base.interfaces.SubscriptionHandler;
 import dev.pixelib.meteor.core.executor.ImplementationWrapper;
+import dev.pixelib.meteor.core.executor.PartitionedExecutor;
+import dev.pixelib.meteor.core.executor.RejectableTask;
+import dev.pixelib.meteor.core.proxy.NearCache;
+import dev.pixelib.meteor.core.proxy.ProcedureMethod;
 import dev.pixelib.meteor.core.trackers.IncomingInvocationTracker;
 import dev.pixelib.meteor.core.trackers.OutgoingInvocationTracker;
+import dev.pixelib.meteor.core.transport.packets.CacheInvalidation;
+import dev.pixelib.meteor.core.transport.packets.FrameType;
 import dev.pixelib.meteor.core.transport.packets.InvocationDescriptor;
 import dev.pixelib.meteor.core.transport.packets.InvocationResponse;
+import dev.pixelib.meteor.core.transport.packets.StreamCredit;
+import dev.pixelib.meteor.core.utils.ClassResolver;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.Timer;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.Collection;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,9 +43,30 @@ public class TransportHandler implements Closeable {
     private final RpcTransport transport;
     private final IncomingInvocationTracker incomingInvocationTracker;
     private final OutgoingInvocationTracker outgoingInvocationTracker;
+    private final ClassResolver classResolver;
 
+    // Sends responses in the method proxy direction
+    private final FrameBatcher responseBatcher;
+
+    // Number of invocations submitted to the executor that haven't finished yet. Batched responses are flushed whenever this drops to zero.
+    private final AtomicInteger pendingExecutions = new AtomicInteger();
+
+    // Runs received invocations of implementations without their own executor, shut down when this handler is closed
     private final ExecutorService executorPool;
 
+    // Cleared by invalidations from other nodes
+    private final NearCache nearCache;
+
+    // Decompresses received frames that were compressed by the sender
+    private final FrameCompressor frameCompressor;
+
+    // Checks whether invokers are still consuming the results that are streamed to them
+    private final Timer timer;
+    private final long streamIdleTimeoutMillis;
+
+    // Results that are being streamed to their invokers, keyed by the invocation they're for
+    private final Map<StreamKey, StreamedResult> streamedResults = new ConcurrentHashMap<>();
+
     private boolean isClosed = false;
 
     public TransportHandler(
@@ -34,73 +74,129 @@ public class TransportHandler implements Closeable {
             RpcTransport transport,
             IncomingInvocationTracker incomingInvocationTracker,
             OutgoingInvocationTracker outgoingInvocationTracker,
-            int threadPoolSize
+            ClassResolver classResolver,
+            FrameBatcher responseBatcher,
+            ExecutorService executorPool,
+            NearCache nearCache,
+            FrameCompressor frameCompressor,
+            Timer timer,
+            long streamIdleTimeoutMillis
     ) {
+        if (streamIdleTimeoutMillis < 1) {
+            throw new IllegalArgumentException("streamIdleTimeoutMillis must be at least 1");
+        }
+
         this.serializer = serializer;
         this.transport = transport;
         this.incomingInvocationTracker = incomingInvocationTracker;
         this.outgoingInvocationTracker = outgoingInvocationTracker;
+        this.classResolver = classResolver;
+        this.responseBatcher = responseBatcher;
 
-        this.executorPool = Executors.newFixedThreadPool(threadPoolSize, r -> new Thread(r, "meteor-executor-thread"));
+        this.executorPool = executorPool;
+        this.nearCache = nearCache;
+        this.frameCompressor = frameCompressor;
+        this.timer = timer;
+        this.streamIdleTimeoutMillis = streamIdleTimeoutMillis;
 
-        transport.subscribe(Direction.METHOD_PROXY, this::handleInvocationResponse);
-        transport.subscribe(Direction.IMPLEMENTATION, TransportHandler.this::handleInvocationRequest);
+        transport.subscribe(Direction.METHOD_PROXY, new BufferSubscriptionHandler(this::handleInvocationResponse));
+        transport.subscribe(Direction.IMPLEMENTATION, new BufferSubscriptionHandler(this::handleInvocationRequest));
     }
 
-    private boolean handleInvocationResponse(byte[] bytes) throws ClassNotFoundException {
-        InvocationResponse invocationResponse = InvocationResponse.fromBytes(serializer, bytes);
+    private boolean handleInvocationResponse(ByteBuf buffer) throws ClassNotFoundException {
+        InvocationResponse invocationResponse = InvocationResponse.decode(serializer, classResolver, outgoingInvocationTracker::resultTypeOf, buffer);
         return outgoingInvocationTracker.completeInvocation(invocationResponse);
     }
 
-    private boolean handleInvocationRequest(byte[] bytes) throws ClassNotFoundException {
+    private boolean handleInvocationRequest(ByteBuf buffer) throws ClassNotFoundException {
         if (isClosed) {
             return false;
         }
 
         // deserialize the packet
-        InvocationDescriptor invocationDescriptor = InvocationDescriptor.fromBuffer(serializer, bytes);
-
-        // get the invocation handler for this packet
-        Collection<ImplementationWrapper> implementations = incomingInvocationTracker.getImplementations().get(invocationDescriptor.getDeclaringClass());
+        InvocationDescriptor invocationDescriptor = InvocationDescriptor.decode(serializer, classResolver, incomingInvocationTracker::resolveMethod, incomingInvocationTracker::signatureOf, buffer);
 
-        // if there is no invocation handler, return
-        if (implementations == null || implementations.isEmpty()) {
+        // the invocation targets a procedure we don't implement
+        if (invocationDescriptor == null) {
             return false;
         }
 
-        ImplementationWrapper matchedImplementation = implementations.stream()
-                .filter(
-                        implementation ->
-                                // Either have matching namespaces
-                                (invocationDescriptor.getNamespace() != null && invocationDescriptor.getNamespace().equals(implementation.getNamespace()))
-                                        ||
-                                        // Or they both don't have namespaces
-                                        (implementation.getNamespace() == null && invocationDescriptor.getNamespace() == null)
-                )
-                .findFirst()
-                .orElse(null);
-
-        // if there is an invocation handler, call it
+        // get the invocation handler for this packet, matching namespaces (or both not having one)
+        ImplementationWrapper matchedImplementation = incomingInvocationTracker.findImplementation(invocationDescriptor.getDeclaringClass(), invocationDescriptor.getNamespace());
 
-        // We do have handlers for this type, just not by the same name
+        // if there is no invocation handler, return
         if (matchedImplementation == null) {
             return false;
         }
 
-        this.executorPool.submit(() -> {
-            try {
-                // move to separate threading
-                Object response = matchedImplementation.invokeOn(invocationDescriptor, invocationDescriptor.getReturnType());
-                InvocationResponse invocationResponse = new InvocationResponse(invocationDescriptor.getUniqueInvocationId(), response);
-                transport.send(Direction.METHOD_PROXY, invocationResponse.toBytes(serializer));
-            } catch (Exception e) {
-                logger.log(Level.SEVERE, "An error occurred while invoking a method", e);
+        // implementations registered with their own executor run there, so a slow one can't hold up the others.
+        // those executors belong to whoever registered them, and are never shut down by us
+        Executor executor = matchedImplementation.getExecutor() != null ? matchedImplementation.getExecutor() : executorPool;
+
+        // streamed results are tracked from the start, since credit for them follows right behind the invocation
+        StreamedResult streamedResult = null;
+        if (!invocationDescriptor.isOneWay() && ProcedureMethod.isStreamed(invocationDescriptor.getReturnType())) {
+            StreamKey streamKey = new StreamKey(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId());
+            streamedResult = new StreamedResult(invocationDescriptor, outgoingInvocationTracker.getOriginId(), executor, this::sendResponse, () -> streamedResults.remove(streamKey), timer, streamIdleTimeoutMillis);
+            streamedResults.put(streamKey, streamedResult);
+        }
+
+        pendingExecutions.incrementAndGet();
+        InvocationTask invocation = new InvocationTask(matchedImplementation, invocationDescriptor, streamedResult);
+
+        try {
+            if (executor instanceof PartitionedExecutor partitionedExecutor) {
+                // keep invocations for the same key in order, without holding up the others
+                partitionedExecutor.execute(matchedImplementation.partitionKey(invocationDescriptor), invocation);
+            } else {
+                executor.execute(invocation);
             }
-        });
+        } catch (RejectedExecutionException e) {
+            // the executor is overloaded (or shut down), let the invoker know right away instead of letting it time out
+            invocation.reject();
+        }
 
         return true;
     }
 
+    private boolean handleStreamCredit(StreamCredit credit) {
+        StreamedResult streamedResult = streamedResults.get(new StreamKey(credit.getOriginId(), credit.getInvocationId()));
+
+        // the stream is on another node, or has already ended. credit can also be meant for another node streaming the same result
+        if (streamedResult == null || !credit.isFor(outgoingInvocationTracker.getOriginId())) {
+            return false;
+        }
+
+        if (credit.isCancel()) {
+            streamedResult.cancel();
+        } else {
+            streamedResult.addCredits(credit.getCredits());
+        }
+
+        // credit for any node (like the first window) and cancellations may be for more nodes than this one, so other subscribers still get to see them
+        return credit.getResponderId() != StreamCredit.ANY_RESPONDER && !credit.isCancel();
+    }
+
+    private void finishExecution() {
+        // nothing else is about to respond, so there's no point in waiting for the rest of the batch
+        if (pendingExecutions.decrementAndGet() == 0) {
+            responseBatcher.flush();
+        }
+    }
+
+    private void sendResponse(InvocationDescriptor invocationDescriptor, Object response) {
+        sendResponse(new InvocationResponse(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), response));
+    }
+
+    private void sendResponse(InvocationResponse invocationResponse) {
+        responseBatcher.send(buffer -> invocationResponse.writeTo(serializer, buffer));
+
+        // asynchronous responses can arrive after the executor has drained
+        if (pendingExecutions.get() == 0) {
+            responseBatcher.flush();
+        }
+    }
+
     @Override
     public void close() throws IOException {
         if (isClosed) {
@@ -108,6 +204,161 @@ public class TransportHandler implements Closeable {
         }
         isClosed = true;
         executorPool.shutdown();
+        responseBatcher.close();
         transport.close();
     }
+
+    /**
+     * A received invocation on its way through an executor. Executors that drop it from their queue reject it instead of running it,
+     * which answers the invoker with a rejection (unless it's a one-way invocation, which nobody is waiting for).
+     */
+    private final class InvocationTask implements RejectableTask {
+
+        private final ImplementationWrapper implementation;
+        private final InvocationDescriptor invocationDescriptor;
+
+        // Sends the result in chunks, or null if the method doesn't stream its result
+        private final StreamedResult streamedResult;
+
+        private InvocationTask(ImplementationWrapper implementation, InvocationDescriptor invocationDescriptor, StreamedResult streamedResult) {
+            this.implementation = implementation;
+            this.invocationDescriptor = invocationDescriptor;
+            this.streamedResult = streamedResult;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // move to separate threading
+                Object response = implementation.invokeOn(invocationDescriptor, invocationDescriptor.getReturnType());
+
+                // nobody is waiting for the result of a one-way invocation
+                if (invocationDescriptor.isOneWay()) {
+                    return;
+                }
+
+                if (streamedResult != null) {
+                    streamedResult.start(response);
+                    return;
+                }
+
+                // asynchronous implementations get answered once their future completes, without holding on to an executor thread
+                if (response instanceof CompletionStage<?> completionStage) {
+                    completionStage.whenComplete((result, throwable) -> {
+                        if (throwable != null) {
+                            logger.log(Level.SEVERE, "An error occurred while completing an asynchronous method", throwable);
+                            // the invoker would otherwise wait for a result that never comes, until it times out
+                            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                            sendResponse(InvocationResponse.failed(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), cause.toString()));
+                            return;
+                        }
+                        sendResponse(invocationDescriptor, result);
+                    });
+                    return;
+                }
+
+                sendResponse(invocationDescriptor, response);
+            } catch (Exception e) {
+                if (streamedResult != null) {
+                    // the invoker is waiting on the stream, so it has to be told that there won't be one
+                    streamedResult.fail(e);
+                    return;
+                }
+
+                logger.log(Level.SEVERE, "An error occurred while invoking a method", e);
+                if (!invocationDescriptor.isOneWay()) {
+                    // answered like an asynchronous implementation whose future failed, instead of letting the invoker time out
+                    Throwable cause = e instanceof MethodInvocationException && e.getCause() != null ? e.getCause() : e;
+                    sendResponse(InvocationResponse.failed(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), cause.toString()));
+                }
+            } finally {
+                finishExecution();
+            }
+        }
+
+        @Override
+        public void reject() {
+            try {
+                // kept quiet, since this happens for every invocation over the limit while overloaded
+                logger.log(Level.FINE, "Rejected invocation of method {0}, the executor is overloaded", invocationDescriptor.getMethodName());
+                if (streamedResult != null) {
+                    streamedResult.cancel();
+                }
+                if (!invocationDescriptor.isOneWay()) {
+                    sendResponse(InvocationResponse.rejected(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId()));
+                }
+            } finally {
+                finishExecution();
+            }
+        }
+    }
+
+    /**
+     * Reads frames from whichever form the transport received them in, without copying them first, and hands their packets to a packet handler.
+     * Packets are decoded before returning, so the buffer is never used after the transport is done with it.
+     */
+    private final class BufferSubscriptionHandler implements SubscriptionHandler {
+
+        private final PacketHandler packetHandler;
+
+        private BufferSubscriptionHandler(PacketHandler packetHandler) {
+            this.packetHandler = packetHandler;
+        }
+
+        @Override
+        public boolean onPacket(byte[] packet) throws Exception {
+            return handleFrame(Unpooled.wrappedBuffer(packet));
+        }
+
+        @Override
+        public boolean onPacket(ByteBuffer packet) throws Exception {
+            return handleFrame(Unpooled.wrappedBuffer(packet));
+        }
+
+        private boolean handleFrame(ByteBuf frame) throws Exception {
+            byte header = frame.readByte();
+            if ((header & FrameType.COMPRESSED_FLAG) != 0) {
+                frame = frameCompressor.decompress(frame);
+            }
+
+            FrameType frameType = FrameType.of((byte) (header & ~FrameType.COMPRESSED_FLAG));
+            if (frameType == FrameType.SINGLE) {
+                return packetHandler.handle(frame);
+            }
+
+            // every node has to see invalidations, so they are never considered handled
+            if (frameType == FrameType.INVALIDATION) {
+                CacheInvalidation invalidation = CacheInvalidation.decode(frame);
+                nearCache.invalidate(invalidation.getProcedureName(), invalidation.getNamespace(), invalidation.getMethodNames());
+                return false;
+            }
+
+            if (frameType == FrameType.STREAM_CREDIT) {
+                return handleStreamCredit(StreamCredit.decode(frame));
+            }
+
+            // a batch only counts as handled if all of its packets were, otherwise other subscribers still get a look at it
+            boolean handled = true;
+            int count = frame.readInt();
+            for (int i = 0; i < count; i++) {
+                ByteBuf packet = frame.readSlice(frame.readInt());
+                try {
+                    handled &= packetHandler.handle(packet);
+                } catch (Exception e) {
+                    // one bad packet shouldn't take the rest of the batch down with it
+                    logger.log(Level.SEVERE, "Error occurred while processing a batched packet", e);
+                    handled = false;
+                }
+            }
+            return handled;
+        }
+    }
+
+    private record StreamKey(long originId, long invocationId) {
+    }
+
+    @FunctionalInterface
+    private interface PacketHandler {
+        boolean handle(ByteBuf buffer) throws Exception;
+    }
 }
@@ -0,0 +1,70 @@
+package dev.pixelib.meteor.core.transport.packets;
+
+import dev.pixelib.meteor.core.utils.BufferUtils;
+import io.netty.buffer.ByteBuf;
+
+public class CacheInvalidation {
+
+    /**
+     * Tells every node on the transport that cached results of a procedure are stale.
+     * Sent in the method proxy direction, since that's where the near caches are.
+     */
+
+    private final String procedureName;
+    private final String namespace;
+
+    /**
+     * The methods whose results are stale, or an empty array for all cacheable methods of the procedure.
+     */
+    private final String[] methodNames;
+
+    public CacheInvalidation(String procedureName, String namespace, String[] methodNames) {
+        this.procedureName = procedureName;
+        this.namespace = namespace;
+        this.methodNames = methodNames;
+    }
+
+    /**
+     * Write this invalidation to the end of a buffer.
+     * @param buffer The buffer to write to
+     */
+    public void writeTo(ByteBuf buffer) {
+        BufferUtils.writeString(buffer, procedureName);
+
+        buffer.writeBoolean(namespace != null);
+        if (namespace != null) {
+            BufferUtils.writeString(buffer, namespace);
+        }
+
+        buffer.writeInt(methodNames.length);
+        for (String methodName : methodNames) {
+            BufferUtils.writeString(buffer, methodName);
+        }
+    }
+
+    /**
+     * The buffer is read from its reader index, and is not released.
+     */
+    public static CacheInvalidation decode(ByteBuf buffer) {
+        String procedureName = BufferUtils.readString(buffer);
+        String namespace = buffer.readBoolean() ? BufferUtils.readString(buffer) : null;
+
+        String[] methodNames = new String[buffer.readInt()];
+        for (int i = 0; i < methodNames.length; i++) {
+            methodNames[i] = BufferUtils.readString(buffer);
+        }
+        return new CacheInvalidation(procedureName, namespace, methodNames);
+    }
+
+    public String getProcedureName() {
+        return procedureName;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public String[] getMethodNames() {
+        return methodNames;
+    }
+}
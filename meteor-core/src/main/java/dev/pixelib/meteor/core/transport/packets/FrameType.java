@@ -0,0 +1,58 @@
+package dev.pixelib.meteor.core.transport.packets;
+
+public enum FrameType {
+
+    /**
+     * Every frame starts with a single byte identifying its type, followed by the type specific content.
+     */
+
+    /**
+     * A single packet, which takes up the rest of the frame.
+     */
+    SINGLE(0),
+
+    /**
+     * Multiple packets, as a count followed by length-prefixed packets.
+     */
+    BATCH(1),
+
+    /**
+     * A cache invalidation, which takes up the rest of the frame. Meant for every node, so it's never considered handled.
+     */
+    INVALIDATION(2),
+
+    /**
+     * Credit (or a cancellation) for a streamed result, which takes up the rest of the frame. Sent in the implementation direction, with the invocations.
+     */
+    STREAM_CREDIT(3);
+
+    /**
+     * Set in the type byte of frames whose content has been compressed. The type byte is then followed by the id of the codec,
+     * the uncompressed length of the content and the compressed content.
+     */
+    public static final byte COMPRESSED_FLAG = (byte) 0x80;
+
+    private static final FrameType[] BY_ID = new FrameType[]{SINGLE, BATCH, INVALIDATION, STREAM_CREDIT};
+
+    private final byte id;
+
+    FrameType(int id) {
+        this.id = (byte) id;
+    }
+
+    public byte getId() {
+        return id;
+    }
+
+    /**
+     * @param id The id read from a frame
+     * @return The frame type with the given id
+     * @throws IllegalArgumentException If the id doesn't belong to a known frame type
+     */
+    public static FrameType of(byte id) {
+        if (id < 0 || id >= BY_ID.length) {
+            throw new IllegalArgumentException("Unknown frame type " + id);
+        }
+        return BY_ID[id];
+    }
+}
@@ -0,0 +1,120 @@
+package dev.pixelib.meteor.core.transport.packets;
+
+import dev.pixelib.meteor.core.utils.BufferUtils;
+import io.netty.buffer.ByteBuf;
+import lombok.experimental.UtilityClass;
+
+import java.util.UUID;
+
+@UtilityClass
+public class InlineValues {
+
+    /**
+     * The most common argument and result types are written inline, behind a tag identifying their type, instead of by class name and serializer.
+     * Tags start at 3, so they can share a byte with the markers of the packets that contain them (the null/serialized flag of arguments,
+     * and the status of responses).
+     */
+
+    /**
+     * Returned by {@link #tagOf(Object)} for values that can't be written inline.
+     */
+    public static final byte NONE = -1;
+
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte FALSE = 6;
+    private static final byte TRUE = 7;
+    private static final byte STRING = 8;
+    private static final byte UNIQUE_ID = 9;
+
+    /**
+     * @param value The value to write
+     * @return The tag to write the value with, or {@link #NONE} if it has to go through the serializer
+     */
+    public static byte tagOf(Object value) {
+        if (value == null) {
+            return NONE;
+        }
+
+        Class<?> type = value.getClass();
+        if (type == Integer.class) {
+            return INT;
+        }
+        if (type == String.class) {
+            return STRING;
+        }
+        if (type == Long.class) {
+            return LONG;
+        }
+        if (type == Boolean.class) {
+            return (Boolean) value ? TRUE : FALSE;
+        }
+        if (type == Double.class) {
+            return DOUBLE;
+        }
+        if (type == UUID.class) {
+            return UNIQUE_ID;
+        }
+        return NONE;
+    }
+
+    /**
+     * Write the tag of a value, followed by the value itself.
+     * @param buffer The buffer to write to
+     * @param tag    The tag of the value, as returned by {@link #tagOf(Object)}
+     * @param value  The value to write
+     */
+    public static void write(ByteBuf buffer, byte tag, Object value) {
+        buffer.writeByte(tag);
+        switch (tag) {
+            case INT:
+                buffer.writeInt((Integer) value);
+                break;
+            case LONG:
+                buffer.writeLong((Long) value);
+                break;
+            case DOUBLE:
+                buffer.writeDouble((Double) value);
+                break;
+            case STRING:
+                BufferUtils.writeString(buffer, (String) value);
+                break;
+            case UNIQUE_ID:
+                UUID uuid = (UUID) value;
+                buffer.writeLong(uuid.getMostSignificantBits());
+                buffer.writeLong(uuid.getLeastSignificantBits());
+                break;
+            default:
+                // booleans are fully described by their tag
+                break;
+        }
+    }
+
+    /**
+     * @param buffer The buffer to read from, positioned right after the tag
+     * @param tag    The tag that was read
+     * @return The value
+     * @throws IllegalArgumentException If the tag isn't one of ours
+     */
+    public static Object read(ByteBuf buffer, byte tag) {
+        switch (tag) {
+            case INT:
+                return buffer.readInt();
+            case LONG:
+                return buffer.readLong();
+            case DOUBLE:
+                return buffer.readDouble();
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            case STRING:
+                return BufferUtils.readString(buffer);
+            case UNIQUE_ID:
+                return new UUID(buffer.readLong(), buffer.readLong());
+            default:
+                throw new IllegalArgumentException("Unknown value tag " + tag);
+        }
+    }
+}
@@ -1,19 +1,36 @@
 package dev.pixelib.meteor.core.transport.packets;
 
 import dev.pixelib.meteor.base.RpcSerializer;
-import dev.pixelib.meteor.core.utils.ArgumentMapper;
+import dev.pixelib.meteor.core.proxy.ProcedureMethod;
+import dev.pixelib.meteor.core.utils.BufferUtils;
+import dev.pixelib.meteor.core.utils.ClassResolver;
+import dev.pixelib.meteor.core.utils.GenericSignature;
+import dev.pixelib.meteor.core.utils.MethodFingerprint;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 
-import java.nio.charset.Charset;
-import java.util.UUID;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.function.Function;
+import java.util.function.LongFunction;
 
 public class InvocationDescriptor {
 
+    // Written in front of every argument, the same as the boolean null flag this used to be. Anything else is the tag of an inline value.
+    private static final byte ARG_NULL = 0;
+    private static final byte ARG_SERIALIZED = 1;
+
+    /**
+     * Identifier of the tracker that sent this invocation, which is the only one that can complete it.
+     */
+    private long originId;
+
     /**
-     * Unique identifier for this invocation, used to match responses to requests.
+     * Identifier for this invocation, unique per origin. Together with the origin it's used to match responses to requests.
+     * Assigned by the tracker when the invocation is sent.
      */
-    private UUID id;
+    private long invocationId;
 
     /**
      * Name of the targeted handler.
@@ -46,12 +63,36 @@ public class InvocationDescriptor {
      */
     private Class<?> returnType;
 
+    /**
+     * Whether the invoker is waiting for a response. One-way invocations are executed without sending anything back.
+     */
+    private boolean oneWay;
+
+    /**
+     * Fingerprint of the invoked method (see {@link MethodFingerprint}), or {@link MethodFingerprint#NONE}.
+     * Fingerprinted invocations don't carry the declaring class, method name and types on the wire; the receiver resolves them from its own registered procedures instead.
+     */
+    private long fingerprint;
+
+    /**
+     * Declared types of the arguments and the return value, used to deserialize them with their type arguments. Never sent over the wire;
+     * the invoker knows them from its proxy, and the receiver from the fingerprinted method. Null if unknown.
+     */
+    private GenericSignature genericSignature;
+
     public InvocationDescriptor(String namespace, Class<?> declaringClass, String methodName, Object[] args, Class<?>[] argTypes, Class<?> returnType) {
-        this(UUID.randomUUID(), namespace, declaringClass, methodName, args, argTypes, returnType);
+        this(namespace, declaringClass, methodName, args, argTypes, returnType, false, MethodFingerprint.NONE);
+    }
+
+    public InvocationDescriptor(String namespace, Class<?> declaringClass, String methodName, Object[] args, Class<?>[] argTypes, Class<?> returnType, boolean oneWay, long fingerprint) {
+        this(0, 0, namespace, declaringClass, methodName, args, argTypes, returnType, oneWay, fingerprint);
     }
 
-    public InvocationDescriptor(UUID id, String namespace, Class<?> declaringClass, String methodName, Object[] args, Class<?>[] argTypes, Class<?> returnType) {
-        this.id = id;
+    public InvocationDescriptor(long originId, long invocationId, String namespace, Class<?> declaringClass, String methodName, Object[] args, Class<?>[] argTypes, Class<?> returnType, boolean oneWay, long fingerprint) {
+        this.originId = originId;
+        this.invocationId = invocationId;
+        this.oneWay = oneWay;
+        this.fingerprint = fingerprint;
         this.namespace = namespace;
         this.declaringClass = declaringClass;
         this.methodName = methodName;
@@ -61,102 +102,195 @@ public class InvocationDescriptor {
     }
 
     public byte[] toBuffer(RpcSerializer serializer) {
-        ByteBuf buffer = Unpooled.buffer();
-        buffer.writeLong(id.getMostSignificantBits());
-        buffer.writeLong(id.getLeastSignificantBits());
+        ByteBuf buffer = encode(serializer, Unpooled.buffer());
+        byte[] byteArray = new byte[buffer.readableBytes()];
+        buffer.readBytes(byteArray);
+        // release the buffer
+        buffer.release();
+        return byteArray;
+    }
+
+    /**
+     * Encode this invocation into a buffer from the given allocator.
+     * @param serializer The serializer used for the arguments
+     * @param allocator  The allocator to take the buffer from, typically pooled
+     * @return The encoded invocation, which must be released by the caller
+     */
+    public ByteBuf encode(RpcSerializer serializer, ByteBufAllocator allocator) {
+        return encode(serializer, allocator.buffer());
+    }
+
+    private ByteBuf encode(RpcSerializer serializer, ByteBuf buffer) {
+        try {
+            writeTo(serializer, buffer);
+            return buffer;
+        } catch (RuntimeException e) {
+            // the buffer never reaches the caller, so it's ours to release
+            buffer.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Write this invocation to the end of a buffer.
+     * @param serializer The serializer used for the arguments
+     * @param buffer     The buffer to write to
+     */
+    public void writeTo(RpcSerializer serializer, ByteBuf buffer) {
+        buffer.writeLong(originId);
+        buffer.writeLong(invocationId);
+
+        buffer.writeBoolean(oneWay);
 
         buffer.writeBoolean(namespace != null);
         if (namespace != null) {
-            buffer.writeInt(namespace.length());
-            buffer.writeCharSequence(namespace, Charset.defaultCharset());
+            BufferUtils.writeString(buffer, namespace);
         }
 
-        buffer.writeInt(declaringClass.getName().length());
-        buffer.writeCharSequence(declaringClass.getName(), Charset.defaultCharset());
-
-        buffer.writeInt(methodName.length());
-        buffer.writeCharSequence(methodName, Charset.defaultCharset());
+        boolean fingerprinted = fingerprint != MethodFingerprint.NONE;
+        buffer.writeBoolean(fingerprinted);
+        if (fingerprinted) {
+            buffer.writeLong(fingerprint);
+        } else {
+            BufferUtils.writeString(buffer, declaringClass.getName());
+            BufferUtils.writeString(buffer, methodName);
+        }
 
         buffer.writeInt(args.length);
         for (Object arg : args) {
-            buffer.writeBoolean(arg != null);
+            // common types don't need a class name or serializer
+            byte inlineTag = InlineValues.tagOf(arg);
+            if (inlineTag != InlineValues.NONE) {
+                InlineValues.write(buffer, inlineTag, arg);
+                continue;
+            }
+
+            buffer.writeByte(arg != null ? ARG_SERIALIZED : ARG_NULL);
             if (arg != null) {
-                Class<?> argClass = arg.getClass();
-                String argClassName = argClass.getName();
-                buffer.writeInt(argClassName.length());
-                buffer.writeCharSequence(argClassName, Charset.defaultCharset());
-
-                byte[] serialized = serializer.serialize(arg);
-                buffer.writeInt(serialized.length);
-                buffer.writeBytes(serialized);
+                BufferUtils.writeString(buffer, arg.getClass().getName());
+                BufferUtils.writeSerialized(buffer, serializer, arg);
             }
         }
 
-        buffer.writeInt(argTypes.length);
-        for (Class<?> argType : argTypes) {
-            buffer.writeBoolean(argType.isPrimitive());
-            buffer.writeInt(argType.getName().length());
-            buffer.writeCharSequence(argType.getName(), Charset.defaultCharset());
-        }
+        // the receiver already knows the signature of fingerprinted methods
+        if (!fingerprinted) {
+            buffer.writeInt(argTypes.length);
+            for (Class<?> argType : argTypes) {
+                buffer.writeBoolean(argType.isPrimitive());
+                BufferUtils.writeString(buffer, argType.getName());
+            }
 
-        buffer.writeBoolean(returnType.isPrimitive());
-        buffer.writeInt(returnType.getName().length());
-        buffer.writeCharSequence(returnType.getName(), Charset.defaultCharset());
-        byte[] byteArray = new byte[buffer.readableBytes()];
-        buffer.readBytes(byteArray);
-        // release the buffer
-        buffer.release();
-        return byteArray;
+            buffer.writeBoolean(returnType.isPrimitive());
+            BufferUtils.writeString(buffer, returnType.getName());
+        }
     }
 
     public static InvocationDescriptor fromBuffer(RpcSerializer customDataSerializer, byte[] raw) throws ClassNotFoundException {
+        return fromBuffer(customDataSerializer, ClassResolver.getDefault(), fingerprint -> null, raw);
+    }
+
+    /**
+     * @param customDataSerializer The serializer used for the arguments
+     * @param classResolver        Resolves the class names of the arguments (and of the signature, for invocations that aren't fingerprinted)
+     * @param methodResolver       Resolves fingerprints to the methods registered on this side, returning null for unknown fingerprints
+     * @param raw                  The encoded invocation
+     * @return The decoded invocation, or null if it targets a fingerprinted method that isn't known locally
+     * @throws ClassNotFoundException If one of the classes named in the invocation doesn't exist
+     */
+    public static InvocationDescriptor fromBuffer(RpcSerializer customDataSerializer, ClassResolver classResolver, LongFunction<Method> methodResolver, byte[] raw) throws ClassNotFoundException {
         ByteBuf buffer = Unpooled.wrappedBuffer(raw);
-        UUID id = new UUID(buffer.readLong(), buffer.readLong());
+        try {
+            return decode(customDataSerializer, classResolver, methodResolver, buffer);
+        } finally {
+            // release the buffer
+            buffer.release();
+        }
+    }
+
+    /**
+     * Same as {@link #fromBuffer(RpcSerializer, ClassResolver, LongFunction, byte[])}, but reads from a buffer.
+     * The buffer is read from its reader index, and is not released.
+     */
+    public static InvocationDescriptor decode(RpcSerializer customDataSerializer, ClassResolver classResolver, LongFunction<Method> methodResolver, ByteBuf buffer) throws ClassNotFoundException {
+        return decode(customDataSerializer, classResolver, methodResolver, GenericSignature::of, buffer);
+    }
+
+    /**
+     * Same as {@link #decode(RpcSerializer, ClassResolver, LongFunction, ByteBuf)}, but takes the generic signatures of fingerprinted methods
+     * from the given resolver, so they don't have to be looked up for every invocation.
+     * @param signatureResolver Returns the generic signature of a method returned by the method resolver
+     */
+    public static InvocationDescriptor decode(RpcSerializer customDataSerializer, ClassResolver classResolver, LongFunction<Method> methodResolver, Function<Method, GenericSignature> signatureResolver, ByteBuf buffer) throws ClassNotFoundException {
+        long originId = buffer.readLong();
+        long invocationId = buffer.readLong();
+
+        boolean oneWay = buffer.readBoolean();
 
         String namespace = null;
         if (buffer.readBoolean()) {
-            namespace = buffer.readCharSequence(buffer.readInt(), Charset.defaultCharset()).toString();
+            namespace = BufferUtils.readString(buffer);
         }
 
-        String declaringClassName = buffer.readCharSequence(buffer.readInt(), Charset.defaultCharset()).toString();
-        Class<?> declaringClass = Class.forName(declaringClassName);
+        long fingerprint = MethodFingerprint.NONE;
+        Method method = null;
+        Class<?> declaringClass;
+        String methodName;
+        if (buffer.readBoolean()) {
+            fingerprint = buffer.readLong();
+            method = methodResolver.apply(fingerprint);
+
+            // not one of ours, no need to decode the arguments either
+            if (method == null) {
+                return null;
+            }
+
+            declaringClass = method.getDeclaringClass();
+            methodName = method.getName();
+        } else {
+            String declaringClassName = BufferUtils.readString(buffer);
+            declaringClass = classResolver.resolve(declaringClassName);
+
+            methodName = BufferUtils.readString(buffer);
+        }
 
-        String methodName = buffer.readCharSequence(buffer.readInt(), Charset.defaultCharset()).toString();
+        // the declared types are only known up front for fingerprinted methods
+        GenericSignature genericSignature = method != null ? signatureResolver.apply(method) : null;
 
         Object[] args = new Object[buffer.readInt()];
         for (int i = 0; i < args.length; i++) {
-            if (buffer.readBoolean()) {
-                String argClassName = buffer.readCharSequence(buffer.readInt(), Charset.defaultCharset()).toString();
-                byte[] serialized = new byte[buffer.readInt()];
-                buffer.readBytes(serialized);
-                args[i] = customDataSerializer.deserialize(serialized, Class.forName(argClassName));
+            byte marker = buffer.readByte();
+            if (marker == ARG_NULL) {
+                continue;
             }
-        }
 
-        Class<?>[] argTypes = new Class<?>[buffer.readInt()];
-        for (int i = 0; i < argTypes.length; i++) {
-            boolean isPrimitive = buffer.readBoolean();
-            String argTypeClassName = buffer.readCharSequence(buffer.readInt(), Charset.defaultCharset()).toString();
-            if (isPrimitive) {
-                argTypes[i] = ArgumentMapper.resolvePrimitive(argTypeClassName);
+            if (marker != ARG_SERIALIZED) {
+                args[i] = InlineValues.read(buffer, marker);
             } else {
-                argTypes[i] = Class.forName(argTypeClassName);
+                String argClassName = BufferUtils.readString(buffer);
+                Type genericType = genericSignature != null ? genericSignature.getParameterType(i) : null;
+                args[i] = BufferUtils.readSerialized(buffer, customDataSerializer, classResolver.resolve(argClassName), genericType);
             }
         }
 
-        boolean isReturnPrimitive = buffer.readBoolean();
-        String returnTypeName = buffer.readCharSequence(buffer.readInt(), Charset.defaultCharset()).toString();
-        Class<?> returnType;
-        if (isReturnPrimitive) {
-            returnType = ArgumentMapper.resolvePrimitive(returnTypeName);
-        } else {
-            returnType = Class.forName(returnTypeName);
+        if (method != null) {
+            InvocationDescriptor invocationDescriptor = new InvocationDescriptor(originId, invocationId, namespace, declaringClass, methodName, args, method.getParameterTypes(), ProcedureMethod.resolveReturnType(method), oneWay, fingerprint);
+            invocationDescriptor.assignGenericSignature(genericSignature);
+            return invocationDescriptor;
         }
 
-        // release the buffer
-        buffer.release();
+        Class<?>[] argTypes = new Class<?>[buffer.readInt()];
+        for (int i = 0; i < argTypes.length; i++) {
+            // primitives are flagged for compatibility, the resolver knows about their names either way
+            buffer.readBoolean();
+            String argTypeClassName = BufferUtils.readString(buffer);
+            argTypes[i] = classResolver.resolve(argTypeClassName);
+        }
+
+        buffer.readBoolean();
+        String returnTypeName = BufferUtils.readString(buffer);
+        Class<?> returnType = classResolver.resolve(returnTypeName);
 
-        return new InvocationDescriptor(id, namespace, declaringClass, methodName, args, argTypes, returnType);
+        return new InvocationDescriptor(originId, invocationId, namespace, declaringClass, methodName, args, argTypes, returnType, oneWay, fingerprint);
     }
 
     public String getNamespace() {
@@ -179,11 +313,47 @@ public class InvocationDescriptor {
         return returnType;
     }
 
-    public UUID getUniqueInvocationId() {
-        return id;
+    /**
+     * Assign the identifiers used to match the response to this invocation. Should be done before the invocation is sent.
+     * @param originId     Identifier of the sending tracker
+     * @param invocationId Identifier of the invocation, unique for the origin
+     */
+    public void assignId(long originId, long invocationId) {
+        this.originId = originId;
+        this.invocationId = invocationId;
+    }
+
+    /**
+     * @param genericSignature The declared types of the invoked method, used to deserialize the response
+     */
+    public void assignGenericSignature(GenericSignature genericSignature) {
+        this.genericSignature = genericSignature;
+    }
+
+    /**
+     * @return The declared types of the invoked method, or null if they aren't known
+     */
+    public GenericSignature getGenericSignature() {
+        return genericSignature;
+    }
+
+    public long getOriginId() {
+        return originId;
+    }
+
+    public long getInvocationId() {
+        return invocationId;
     }
 
     public Class<?> getDeclaringClass() {
         return declaringClass;
     }
+
+    public boolean isOneWay() {
+        return oneWay;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
 }
@@ -1,51 +1,118 @@
 package dev.pixelib.meteor.core.transport.packets;
 
 import dev.pixelib.meteor.base.RpcSerializer;
-import dev.pixelib.meteor.core.utils.ArgumentMapper;
+import dev.pixelib.meteor.core.utils.BufferUtils;
+import dev.pixelib.meteor.core.utils.ClassResolver;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 
-import java.nio.charset.Charset;
-import java.util.UUID;
+import java.lang.reflect.Type;
 
 public class InvocationResponse {
 
+    // Status written in front of the result. The first two match the boolean null flag this used to be. Anything else is the tag of an inline result,
+    // or one of the stream statuses (which are well past the inline tags). Elements of a chunk are each written with a status of their own.
+    private static final byte STATUS_RESULT = 0;
+    private static final byte STATUS_NULL = 1;
+    private static final byte STATUS_REJECTED = 2;
+    private static final byte STATUS_STREAM_CHUNK = 64;
+    private static final byte STATUS_STREAM_END = 65;
+    private static final byte STATUS_FAILED = 66;
+
+    /**
+     * Identifier of the tracker that sent the invocation.
+     * References the origin ID in the InvocationDescriptor.
+     */
+    private final long originId;
+
     /**
-     * Unique identifier for this invocation, used to match responses to requests.
-     * References the ID in the InvocationDescriptor.
+     * Identifier for this invocation, used to match responses to requests.
+     * References the invocation ID in the InvocationDescriptor.
      */
-    private final UUID invocationId;
+    private final long invocationId;
 
     /**
      * Result of the invocation.
      */
     private final Object result;
 
-    public InvocationResponse(UUID invocationId, Object result) {
+    /**
+     * Whether the implementation refused to execute the invocation, in which case there is no result.
+     */
+    private final boolean rejected;
+
+    /**
+     * The next elements of a streamed result, or null if this isn't a chunk of one.
+     */
+    private final Object[] chunk;
+
+    /**
+     * Identifier of the node that streamed this chunk or end, since every node implementing the method streams a result of its own.
+     * References the origin ID of that node. Only set on chunks and ends of streams.
+     */
+    private final long responderId;
+
+    /**
+     * Whether this ends a streamed result, after all of its chunks.
+     */
+    private final boolean streamEnd;
+
+    /**
+     * Why the implementation failed to produce a result, or stopped streaming before reaching the end. Null if it didn't fail.
+     */
+    private final String failure;
+
+    public InvocationResponse(long originId, long invocationId, Object result) {
+        this(originId, invocationId, result, false, null, 0, false, null);
+    }
+
+    private InvocationResponse(long originId, long invocationId, Object result, boolean rejected, Object[] chunk, long responderId, boolean streamEnd, String failure) {
+        this.originId = originId;
         this.invocationId = invocationId;
         this.result = result;
+        this.rejected = rejected;
+        this.chunk = chunk;
+        this.responderId = responderId;
+        this.streamEnd = streamEnd;
+        this.failure = failure;
     }
 
-    public byte[] toBytes(RpcSerializer serializer) {
-        ByteBuf buffer = Unpooled.buffer();
-        buffer.writeLong(invocationId.getMostSignificantBits());
-        buffer.writeLong(invocationId.getLeastSignificantBits());
-
-        if (result == null) {
-            buffer.writeBoolean(true);
-        } else {
-            buffer.writeBoolean(false);
-            buffer.writeBoolean(result.getClass().isPrimitive());
-
-            String resultType = result.getClass().getName();
-            buffer.writeInt(resultType.length());
-            buffer.writeCharSequence(resultType, Charset.defaultCharset());
-
-            byte[] resultBytes = serializer.serialize(result);
-            buffer.writeInt(resultBytes.length);
-            buffer.writeBytes(resultBytes);
-        }
+    /**
+     * @return A response telling the invoker that the invocation was not executed, because the implementation is overloaded
+     */
+    public static InvocationResponse rejected(long originId, long invocationId) {
+        return new InvocationResponse(originId, invocationId, null, true, null, 0, false, null);
+    }
 
+    /**
+     * @param failure Why the implementation failed
+     * @return A response telling the invoker that the implementation failed to produce a result
+     */
+    public static InvocationResponse failed(long originId, long invocationId, String failure) {
+        return new InvocationResponse(originId, invocationId, null, false, null, 0, false, failure);
+    }
+
+    /**
+     * @param responderId The node streaming the result
+     * @param elements    The next elements of the streamed result, in order
+     * @return A response carrying part of a streamed result
+     */
+    public static InvocationResponse streamChunk(long originId, long invocationId, long responderId, Object[] elements) {
+        return new InvocationResponse(originId, invocationId, null, false, elements, responderId, false, null);
+    }
+
+    /**
+     * @param responderId The node streaming the result
+     * @param failure     Why the stream was cut short, or null if all elements were sent
+     * @return A response telling the invoker that no more elements of a streamed result will follow
+     */
+    public static InvocationResponse streamEnd(long originId, long invocationId, long responderId, String failure) {
+        return new InvocationResponse(originId, invocationId, null, false, null, responderId, true, failure);
+    }
+
+    public byte[] toBytes(RpcSerializer serializer) {
+        ByteBuf buffer = encode(serializer, Unpooled.buffer());
         byte[] byteArray = new byte[buffer.readableBytes()];
         buffer.readBytes(byteArray);
         // release the buffer
@@ -53,36 +120,169 @@ public class InvocationResponse {
         return byteArray;
     }
 
-    public static InvocationResponse fromBytes(RpcSerializer serializer, byte[] bytes) throws ClassNotFoundException {
-        ByteBuf buffer = Unpooled.wrappedBuffer(bytes);
-        UUID invocationId = new UUID(buffer.readLong(), buffer.readLong());
+    /**
+     * Encode this response into a buffer from the given allocator.
+     * @param serializer The serializer used for the result
+     * @param allocator  The allocator to take the buffer from, typically pooled
+     * @return The encoded response, which must be released by the caller
+     */
+    public ByteBuf encode(RpcSerializer serializer, ByteBufAllocator allocator) {
+        return encode(serializer, allocator.buffer());
+    }
 
-        boolean isNull = buffer.readBoolean();
-        if (isNull) {
+    private ByteBuf encode(RpcSerializer serializer, ByteBuf buffer) {
+        try {
+            writeTo(serializer, buffer);
+            return buffer;
+        } catch (RuntimeException e) {
+            // the buffer never reaches the caller, so it's ours to release
             buffer.release();
-            return new InvocationResponse(invocationId, null);
-        } else {
-            boolean isPrimitive = buffer.readBoolean();
-
-            Class<?> resultClass;
-            String responseType = buffer.readCharSequence(buffer.readInt(), Charset.defaultCharset()).toString();
-            if (isPrimitive) {
-                resultClass = ArgumentMapper.resolvePrimitive(responseType);
-            } else {
-                resultClass = Class.forName(responseType);
+            throw e;
+        }
+    }
+
+    /**
+     * Write this response to the end of a buffer.
+     * @param serializer The serializer used for the result
+     * @param buffer     The buffer to write to
+     */
+    public void writeTo(RpcSerializer serializer, ByteBuf buffer) {
+        buffer.writeLong(originId);
+        buffer.writeLong(invocationId);
+
+        if (rejected) {
+            buffer.writeByte(STATUS_REJECTED);
+            return;
+        }
+
+        if (chunk != null) {
+            buffer.writeByte(STATUS_STREAM_CHUNK);
+            buffer.writeLong(responderId);
+            buffer.writeInt(chunk.length);
+            for (Object element : chunk) {
+                writeValue(serializer, buffer, element);
             }
+            return;
+        }
 
-            int resultLength = buffer.readInt();
-            byte[] resultBytes = new byte[resultLength];
-            buffer.readBytes(resultBytes);
-            Object result = serializer.deserialize(resultBytes, resultClass);
+        if (streamEnd) {
+            buffer.writeByte(STATUS_STREAM_END);
+            buffer.writeLong(responderId);
+            buffer.writeBoolean(failure != null);
+            if (failure != null) {
+                BufferUtils.writeString(buffer, failure);
+            }
+            return;
+        }
+
+        if (failure != null) {
+            buffer.writeByte(STATUS_FAILED);
+            BufferUtils.writeString(buffer, failure);
+            return;
+        }
+
+        writeValue(serializer, buffer, result);
+    }
+
+    private static void writeValue(RpcSerializer serializer, ByteBuf buffer, Object value) {
+        if (value == null) {
+            buffer.writeByte(STATUS_NULL);
+            return;
+        }
+
+        // common types don't need a class name or serializer, their tag takes the place of the status
+        byte inlineTag = InlineValues.tagOf(value);
+        if (inlineTag != InlineValues.NONE) {
+            InlineValues.write(buffer, inlineTag, value);
+            return;
+        }
+
+        buffer.writeByte(STATUS_RESULT);
+        buffer.writeBoolean(value.getClass().isPrimitive());
+
+        BufferUtils.writeString(buffer, value.getClass().getName());
+        BufferUtils.writeSerialized(buffer, serializer, value);
+    }
+
+    public static InvocationResponse fromBytes(RpcSerializer serializer, byte[] bytes) throws ClassNotFoundException {
+        return fromBytes(serializer, ClassResolver.getDefault(), bytes);
+    }
+
+    public static InvocationResponse fromBytes(RpcSerializer serializer, ClassResolver classResolver, byte[] bytes) throws ClassNotFoundException {
+        ByteBuf buffer = Unpooled.wrappedBuffer(bytes);
+        try {
+            return decode(serializer, classResolver, buffer);
+        } finally {
             buffer.release();
-            return new InvocationResponse(invocationId, result);
         }
+    }
+
+    /**
+     * Same as {@link #fromBytes(RpcSerializer, ClassResolver, byte[])}, but reads from a buffer.
+     * The buffer is read from its reader index, and is not released.
+     */
+    public static InvocationResponse decode(RpcSerializer serializer, ClassResolver classResolver, ByteBuf buffer) throws ClassNotFoundException {
+        return decode(serializer, classResolver, (originId, invocationId) -> null, buffer);
+    }
+
+    /**
+     * Same as {@link #decode(RpcSerializer, ClassResolver, ByteBuf)}, but deserializes the result as its declared type.
+     * @param resultTypes Looks up the declared type of the result, by the invocation it's for
+     */
+    public static InvocationResponse decode(RpcSerializer serializer, ClassResolver classResolver, ResultTypes resultTypes, ByteBuf buffer) throws ClassNotFoundException {
+        long originId = buffer.readLong();
+        long invocationId = buffer.readLong();
+
+        byte status = buffer.readByte();
+        if (status == STATUS_REJECTED) {
+            return rejected(originId, invocationId);
+        }
+
+        if (status == STATUS_STREAM_CHUNK) {
+            // all elements share the declared element type of the stream
+            Type elementType = resultTypes.resultTypeOf(originId, invocationId);
+            long responderId = buffer.readLong();
+            Object[] elements = new Object[buffer.readInt()];
+            for (int i = 0; i < elements.length; i++) {
+                elements[i] = readValue(serializer, classResolver, buffer, buffer.readByte(), elementType);
+            }
+            return streamChunk(originId, invocationId, responderId, elements);
+        }
+
+        if (status == STATUS_STREAM_END) {
+            long responderId = buffer.readLong();
+            return streamEnd(originId, invocationId, responderId, buffer.readBoolean() ? BufferUtils.readString(buffer) : null);
+        }
+
+        if (status == STATUS_FAILED) {
+            return failed(originId, invocationId, BufferUtils.readString(buffer));
+        }
+
+        Type resultType = status == STATUS_RESULT ? resultTypes.resultTypeOf(originId, invocationId) : null;
+        return new InvocationResponse(originId, invocationId, readValue(serializer, classResolver, buffer, status, resultType));
+    }
+
+    private static Object readValue(RpcSerializer serializer, ClassResolver classResolver, ByteBuf buffer, byte status, Type genericType) throws ClassNotFoundException {
+        if (status == STATUS_NULL) {
+            return null;
+        }
+        if (status != STATUS_RESULT) {
+            return InlineValues.read(buffer, status);
+        }
+
+        // primitives are flagged for compatibility, the resolver knows about their names either way
+        buffer.readBoolean();
+        String responseType = BufferUtils.readString(buffer);
+        Class<?> resultClass = classResolver.resolve(responseType);
+
+        return BufferUtils.readSerialized(buffer, serializer, resultClass, genericType);
+    }
 
+    public long getOriginId() {
+        return originId;
     }
 
-    public UUID getInvocationId() {
+    public long getInvocationId() {
         return invocationId;
     }
 
@@ -90,4 +290,40 @@ public class InvocationResponse {
         return result;
     }
 
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return The elements carried by this chunk of a streamed result, or null if it isn't one
+     */
+    public Object[] getChunk() {
+        return chunk;
+    }
+
+    /**
+     * @return The node that streamed this chunk or end, see {@link #streamChunk(long, long, long, Object[])}
+     */
+    public long getResponderId() {
+        return responderId;
+    }
+
+    public boolean isStreamEnd() {
+        return streamEnd;
+    }
+
+    /**
+     * @return Why the implementation failed, or why the stream ended before all of its elements were sent. Null if it didn't fail.
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    @FunctionalInterface
+    public interface ResultTypes {
+        /**
+         * @return The declared type of the result of the invocation, or null if it isn't known
+         */
+        Type resultTypeOf(long originId, long invocationId);
+    }
 }
@@ -0,0 +1,106 @@
+package dev.pixelib.meteor.core.transport.packets;
+
+import io.netty.buffer.ByteBuf;
+
+public class StreamCredit {
+
+    /**
+     * Allows the implementation of a streamed result to send more elements, or tells it to stop streaming altogether.
+     * Sent by the invoker as it consumes the elements it received, so neither side ever holds more than a window of them.
+     * Credit is addressed to the node streaming the result, since every node implementing the method streams a result of its own.
+     */
+
+    /**
+     * Addresses a credit to every node streaming the result, for as long as the invoker doesn't know which one it's consuming.
+     */
+    public static final long ANY_RESPONDER = 0;
+
+    // Sent as the credit of a cancellation, since actual credit is always positive
+    private static final int CANCEL = -1;
+
+    private final long originId;
+    private final long invocationId;
+    private final long responderId;
+    private final int credits;
+
+    /**
+     * @param responderId The node streaming the result, or {@link #ANY_RESPONDER}
+     */
+    public StreamCredit(long originId, long invocationId, long responderId, int credits) {
+        if (credits < 1) {
+            throw new IllegalArgumentException("credits must be at least 1");
+        }
+        this.originId = originId;
+        this.invocationId = invocationId;
+        this.responderId = responderId;
+        this.credits = credits;
+    }
+
+    private StreamCredit(long originId, long invocationId, long responderId) {
+        this.originId = originId;
+        this.invocationId = invocationId;
+        this.responderId = responderId;
+        this.credits = CANCEL;
+    }
+
+    /**
+     * @param responderId The node streaming the result, or {@link #ANY_RESPONDER}
+     * @return A credit telling the implementation that the invoker is no longer interested in the rest of the stream
+     */
+    public static StreamCredit cancel(long originId, long invocationId, long responderId) {
+        return new StreamCredit(originId, invocationId, responderId);
+    }
+
+    /**
+     * Write this credit to the end of a buffer.
+     * @param buffer The buffer to write to
+     */
+    public void writeTo(ByteBuf buffer) {
+        buffer.writeLong(originId);
+        buffer.writeLong(invocationId);
+        buffer.writeLong(responderId);
+        buffer.writeInt(credits);
+    }
+
+    /**
+     * The buffer is read from its reader index, and is not released.
+     */
+    public static StreamCredit decode(ByteBuf buffer) {
+        long originId = buffer.readLong();
+        long invocationId = buffer.readLong();
+        long responderId = buffer.readLong();
+        int credits = buffer.readInt();
+        return credits == CANCEL ? cancel(originId, invocationId, responderId) : new StreamCredit(originId, invocationId, responderId, credits);
+    }
+
+    public long getOriginId() {
+        return originId;
+    }
+
+    public long getInvocationId() {
+        return invocationId;
+    }
+
+    public long getResponderId() {
+        return responderId;
+    }
+
+    /**
+     * @param responderId The identifier of a node streaming results
+     * @return Whether this credit is meant for the stream of that node
+     */
+    public boolean isFor(long responderId) {
+        return this.responderId == ANY_RESPONDER || this.responderId == responderId;
+    }
+
+    /**
+     * @return The number of elements the implementation may send on top of what it was allowed before, or 0 for a cancellation
+     */
+    public int getCredits() {
+        return Math.max(credits, 0);
+    }
+
+    public boolean isCancel() {
+        return credits == CANCEL;
+    }
+}
@@ -0,0 +1,72 @@
+package dev.pixelib.meteor.core.utils;
+
+import dev.pixelib.meteor.base.RpcSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import lombok.experimental.UtilityClass;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+@UtilityClass
+public class BufferUtils {
+
+    /**
+     * Write a string as its length in bytes, followed by its utf-8 encoding.
+     * The string is encoded straight into the buffer, and the length is filled in afterwards.
+     * @param buffer The buffer to write to
+     * @param value  The string to write
+     */
+    public static void writeString(ByteBuf buffer, String value) {
+        int lengthIndex = buffer.writerIndex();
+        buffer.writeInt(0);
+        int length = buffer.writeCharSequence(value, StandardCharsets.UTF_8);
+        buffer.setInt(lengthIndex, length);
+    }
+
+    /**
+     * @param buffer The buffer to read from
+     * @return A string written by {@link #writeString(ByteBuf, String)}
+     */
+    public static String readString(ByteBuf buffer) {
+        return buffer.readCharSequence(buffer.readInt(), StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * Write an object as its length in bytes, followed by its serialized form.
+     * The serializer writes straight into the buffer, and the length is filled in afterwards.
+     * @param buffer     The buffer to write to
+     * @param serializer The serializer to write the object with
+     * @param value      The object to write, which can't be null
+     */
+    public static void writeSerialized(ByteBuf buffer, RpcSerializer serializer, Object value) {
+        int lengthIndex = buffer.writerIndex();
+        buffer.writeInt(0);
+        try {
+            serializer.serialize(value, new ByteBufOutputStream(buffer));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.setInt(lengthIndex, buffer.writerIndex() - lengthIndex - Integer.BYTES);
+    }
+
+    /**
+     * @param buffer      The buffer to read from
+     * @param serializer  The serializer to read the object with
+     * @param type        The runtime class of the object
+     * @param genericType The declared type of the object, or null
+     * @return An object written by {@link #writeSerialized(ByteBuf, RpcSerializer, Object)}
+     */
+    public static Object readSerialized(ByteBuf buffer, RpcSerializer serializer, Class<?> type, Type genericType) {
+        // a slice, so the buffer always ends up after the object, no matter how much of it the serializer reads
+        ByteBuf serialized = buffer.readSlice(buffer.readInt());
+        try {
+            return serializer.deserialize(new ByteBufInputStream(serialized), type, genericType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package dev.pixelib.meteor.core.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ClassResolver {
+
+    /**
+     * Resolves class names from incoming packets against a fixed class loader, and remembers the outcome.
+     * Names that can't be resolved are remembered as well, so packets for classes we don't know about (like ones meant for other services on the same topic) stay cheap.
+     * The cache is bounded; once it grows past its limit it is cleared and simply warms up again.
+     */
+
+    // Placeholder for names that didn't resolve to a class
+    private static final Object MISSING = new Object();
+
+    private static final ClassResolver DEFAULT = new ClassResolver(ClassResolver.class.getClassLoader(), 1024);
+
+    private final ClassLoader classLoader;
+    private final int maxEntries;
+
+    // Either a Class, or MISSING
+    private final Map<String, Object> cache = new ConcurrentHashMap<>();
+
+    public ClassResolver(ClassLoader classLoader, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+
+        this.classLoader = classLoader;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return A shared resolver for the class loader that loaded Meteor, for use outside a Meteor instance.
+     */
+    public static ClassResolver getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param name The binary name of the class, or the name of a primitive type
+     * @return The resolved class
+     * @throws ClassNotFoundException If the class can't be found (now, or the previous time it was looked up)
+     */
+    public Class<?> resolve(String name) throws ClassNotFoundException {
+        Object cached = cache.get(name);
+        if (cached == null) {
+            cached = load(name);
+
+            if (cache.size() >= maxEntries) {
+                cache.clear();
+            }
+            cache.put(name, cached);
+        }
+
+        if (cached == MISSING) {
+            throw new ClassNotFoundException(name);
+        }
+        return (Class<?>) cached;
+    }
+
+    private Object load(String name) {
+        Class<?> primitive = primitiveOf(name);
+        if (primitive != null) {
+            return primitive;
+        }
+
+        try {
+            return Class.forName(name, false, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return MISSING;
+        }
+    }
+
+    private static Class<?> primitiveOf(String name) {
+        switch (name) {
+            case "boolean":
+                return boolean.class;
+            case "byte":
+                return byte.class;
+            case "short":
+                return short.class;
+            case "int":
+                return int.class;
+            case "long":
+                return long.class;
+            case "float":
+                return float.class;
+            case "double":
+                return double.class;
+            case "char":
+                return char.class;
+            case "void":
+                return void.class;
+            default:
+                return null;
+        }
+    }
+
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+}
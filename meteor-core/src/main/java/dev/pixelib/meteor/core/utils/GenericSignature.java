@@ -0,0 +1,58 @@
+package dev.pixelib.meteor.core.utils;
+
+import dev.pixelib.meteor.core.proxy.ProcedureMethod;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+public class GenericSignature {
+
+    /**
+     * The declared (generic) parameter and return types of a procedure method, handed to the serializer so it can deserialize values with
+     * their type arguments (a {@code Map<String, Integer>} rather than just a {@code HashMap}).
+     * Looking them up takes reflection, so signatures are resolved once and kept by whoever uses them (procedure methods on the invoking side,
+     * the incoming invocation tracker on the implementing side), rather than in a static cache that would keep their classes loaded.
+     */
+
+    private final Type[] parameterTypes;
+
+    /**
+     * The type that is sent over the wire as the return type. For asynchronous methods this is the type argument of the future,
+     * and for streamed ones the type of their elements.
+     */
+    private final Type returnType;
+
+    private GenericSignature(Method method) {
+        this.parameterTypes = method.getGenericParameterTypes();
+
+        Type genericReturnType = method.getGenericReturnType();
+        if (ProcedureMethod.isAsync(method) || ProcedureMethod.isStreamed(method)) {
+            this.returnType = genericReturnType instanceof ParameterizedType parameterizedType
+                    ? parameterizedType.getActualTypeArguments()[0]
+                    : Object.class;
+        } else {
+            this.returnType = genericReturnType;
+        }
+    }
+
+    /**
+     * @param method The procedure method
+     * @return The generic signature of the method, which is resolved on every call
+     */
+    public static GenericSignature of(Method method) {
+        return new GenericSignature(method);
+    }
+
+    /**
+     * @param index The index of the parameter
+     * @return The declared type of the parameter, or null if the method doesn't have that many parameters
+     */
+    public Type getParameterType(int index) {
+        return index < parameterTypes.length ? parameterTypes[index] : null;
+    }
+
+    public Type getReturnType() {
+        return returnType;
+    }
+}
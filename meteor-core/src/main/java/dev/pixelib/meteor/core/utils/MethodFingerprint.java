@@ -0,0 +1,72 @@
+package dev.pixelib.meteor.core.utils;
+
+import lombok.experimental.UtilityClass;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+
+@UtilityClass
+public class MethodFingerprint {
+
+    /**
+     * Fingerprints are sent instead of class, method and type names, and are resolved against a lookup table on the receiving end.
+     * They have to be stable between JVMs, so they are derived from names only (never from identity hash codes or class loaders).
+     */
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Zero is never produced by {@link #of(Method)}, and is used to mark invocations that aren't fingerprinted.
+     */
+    public static final long NONE = 0;
+
+    /**
+     * @param method The method to fingerprint
+     * @return A 64-bit hash of the declaring interface and the canonical signature of the method, never {@link #NONE}
+     */
+    public static long of(Method method) {
+        long hash = hash(canonicalSignature(method));
+        return hash == NONE ? 1 : hash;
+    }
+
+    /**
+     * @param method The method to describe
+     * @return The signature in the form of {@code com.example.Scoreboard#getScore(java.lang.String)int}
+     */
+    public static String canonicalSignature(Method method) {
+        StringBuilder signature = new StringBuilder()
+                .append(method.getDeclaringClass().getName())
+                .append('#')
+                .append(method.getName())
+                .append('(');
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                signature.append(',');
+            }
+            signature.append(parameterTypes[i].getName());
+        }
+
+        return signature.append(')')
+                .append(method.getReturnType().getName())
+                .toString();
+    }
+
+    private static long hash(String signature) {
+        // FNV-1a over the utf-8 bytes, followed by a final avalanche so similar signatures don't end up close to each other
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : signature.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
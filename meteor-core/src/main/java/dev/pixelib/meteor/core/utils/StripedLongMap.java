@@ -0,0 +1,88 @@
+package dev.pixelib.meteor.core.utils;
+
+import io.netty.util.collection.LongObjectHashMap;
+
+public class StripedLongMap<V> {
+
+    /**
+     * A concurrent map with primitive long keys.
+     * Keys are spread over a fixed number of open-addressing maps, each guarded by its own lock, so entries don't allocate
+     * (no boxed keys, no nodes) and threads working on different keys rarely contend.
+     * Sequential keys (like invocation ids) are spread evenly over the stripes.
+     */
+
+    private final LongObjectHashMap<V>[] stripes;
+    private final int mask;
+
+    public StripedLongMap() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param concurrency The expected number of threads updating the map, rounded up to a power of two
+     */
+    public StripedLongMap(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+
+        int stripeCount = Integer.highestOneBit(concurrency);
+        if (stripeCount < concurrency) {
+            stripeCount <<= 1;
+        }
+
+        // generic arrays can't be created directly, but every stripe is created right here with the right type
+        @SuppressWarnings("unchecked")
+        LongObjectHashMap<V>[] stripes = (LongObjectHashMap<V>[]) new LongObjectHashMap<?>[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new LongObjectHashMap<>();
+        }
+        this.stripes = stripes;
+        this.mask = stripeCount - 1;
+    }
+
+    private LongObjectHashMap<V> stripeFor(long key) {
+        // fold the high bits in, so keys that only differ there don't all end up on the same stripe
+        return stripes[(int) (key ^ (key >>> 32)) & mask];
+    }
+
+    /**
+     * @return The previous value for the key, or null
+     */
+    public V put(long key, V value) {
+        LongObjectHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.put(key, value);
+        }
+    }
+
+    /**
+     * @return The value for the key, or null
+     */
+    public V get(long key) {
+        LongObjectHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    /**
+     * @return The removed value, or null if the key wasn't present
+     */
+    public V remove(long key) {
+        LongObjectHashMap<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.remove(key);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (LongObjectHashMap<V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,252 @@
+package dev.pixelib.meteor.base.defaults;
+
+import dev.pixelib.meteor.base.RpcOptions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySerializerTest {
+
+    private final BinarySerializer serializer = new BinarySerializer();
+
+    @SuppressWarnings("unchecked")
+    private <T> T roundTrip(T value) {
+        Class<T> type = value == null ? (Class<T>) Object.class : (Class<T>) value.getClass();
+        return serializer.deserialize(serializer.serialize(value), type);
+    }
+
+    @Test
+    void primitivesAndStrings() {
+        for (Object value : List.of(true, false, (byte) -3, (short) 1234, 'x', 0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                Long.MIN_VALUE, 42L, 1.5f, Double.NaN, -0.0, "", "meteor", "☄ überall")) {
+            assertEquals(value, roundTrip(value));
+        }
+        assertNull(roundTrip(null));
+    }
+
+    @Test
+    void smallValuesAreCompact() {
+        // tag and a single varint byte
+        assertEquals(2, serializer.serialize(42).length);
+        assertEquals(2, serializer.serialize(-42L).length);
+        assertEquals(8, serializer.serialize("meteor").length);
+    }
+
+    @Test
+    void collectionsKeepTheirElementTypes() {
+        Map<String, Integer> scores = new HashMap<>();
+        scores.put("Notch", 10);
+        scores.put("jeb_", -5);
+
+        Map<String, Integer> decoded = roundTrip(scores);
+        assertEquals(scores, decoded);
+        assertInstanceOf(HashMap.class, decoded);
+        assertInstanceOf(Integer.class, decoded.get("Notch"));
+
+        assertInstanceOf(LinkedList.class, roundTrip(new LinkedList<>(List.of(1L, 2L))));
+        assertInstanceOf(TreeMap.class, roundTrip(new TreeMap<>(Map.of("a", 1))));
+
+        // immutable collections come back as their mutable counterparts
+        assertEquals(List.of("a", "b"), roundTrip(List.of("a", "b")));
+        Set<Object> set = roundTrip(Set.of(Status.ONLINE));
+        assertInstanceOf(LinkedHashSet.class, set);
+        assertEquals(Set.of(Status.ONLINE), set);
+    }
+
+    @Test
+    void otherCollectionClassesAreKept() {
+        ConcurrentSkipListMap<String, Integer> skipList = new ConcurrentSkipListMap<>(Map.of("b", 2, "a", 1));
+        assertInstanceOf(ConcurrentSkipListMap.class, roundTrip(skipList));
+        assertEquals(skipList, roundTrip(skipList));
+
+        CopyOnWriteArrayList<Integer> copyOnWrite = new CopyOnWriteArrayList<>(List.of(1, 2));
+        assertInstanceOf(CopyOnWriteArrayList.class, roundTrip(copyOnWrite));
+        assertEquals(copyOnWrite, roundTrip(copyOnWrite));
+
+        Scores scores = new Scores();
+        scores.put("Notch", 10);
+        Scores decodedScores = roundTrip(scores);
+        assertInstanceOf(Scores.class, decodedScores);
+        assertEquals(10, decodedScores.get("Notch"));
+
+        EnumMap<Status, Integer> enumMap = new EnumMap<>(Map.of(Status.AWAY, 3));
+        assertInstanceOf(EnumMap.class, roundTrip(enumMap));
+        assertEquals(enumMap, roundTrip(enumMap));
+        assertEquals(EnumSet.noneOf(Status.class), roundTrip(EnumSet.noneOf(Status.class)));
+        assertEquals(EnumSet.of(Status.ONLINE), roundTrip(EnumSet.of(Status.ONLINE)));
+
+        // the comparator can't be sent along, so the declared class is sorted by natural ordering instead
+        TreeMap<String, Integer> reversed = new TreeMap<>(Comparator.reverseOrder());
+        reversed.putAll(Map.of("a", 1, "b", 2));
+        TreeMap<String, Integer> decodedReversed = serializer.deserialize(serializer.serialize(reversed), TreeMap.class);
+        assertEquals(reversed, decodedReversed);
+        assertEquals("a", decodedReversed.firstKey());
+    }
+
+    @Test
+    void declaredCollectionClassesAreKept() {
+        Containers containers = new Containers();
+        containers.skipList = new ConcurrentSkipListMap<>(Map.of("a", 1));
+        containers.sorted = new TreeMap<>(Comparator.reverseOrder());
+        containers.sorted.put("a", 1);
+        containers.statuses = new EnumMap<>(Status.class);
+        containers.deque = new ArrayDeque<>(List.of("a"));
+
+        Containers decoded = roundTrip(containers);
+        assertEquals(containers.skipList, decoded.skipList);
+        assertInstanceOf(TreeMap.class, decoded.sorted);
+        assertEquals(containers.sorted, decoded.sorted);
+        assertInstanceOf(EnumMap.class, decoded.statuses);
+        assertTrue(decoded.statuses.isEmpty());
+
+        // also at the top level, where the declared type is all there is to go by
+        EnumMap<Status, Integer> empty = serializer.deserialize(serializer.serialize(new EnumMap<>(Status.class)), EnumMap.class,
+                Containers.class.getDeclaredFields()[2].getGenericType());
+        assertInstanceOf(EnumMap.class, empty);
+
+        RankingRecord record = new RankingRecord(new TreeMap<>(Comparator.reverseOrder()));
+        record.ranking().put("a", 1);
+        assertInstanceOf(TreeMap.class, roundTrip(record).ranking());
+    }
+
+    @Test
+    void arrays() {
+        assertArrayEquals(new int[]{1, -2, 300}, roundTrip(new int[]{1, -2, 300}));
+        assertArrayEquals(new double[]{0.5, -1}, roundTrip(new double[]{0.5, -1}));
+        assertArrayEquals("bytes".getBytes(StandardCharsets.UTF_8), roundTrip("bytes".getBytes(StandardCharsets.UTF_8)));
+        assertArrayEquals(new String[]{"a", null}, roundTrip(new String[]{"a", null}));
+        assertTrue(Arrays.deepEquals(new int[][]{{1}, {2, 3}}, roundTrip(new int[][]{{1}, {2, 3}})));
+    }
+
+    @Test
+    void enumsRecordsAndObjects() {
+        assertEquals(Status.ONLINE, roundTrip(Status.ONLINE));
+        assertEquals(Status.AWAY, roundTrip(Status.AWAY));
+
+        PlayerRecord record = new PlayerRecord("Notch", 7, Status.ONLINE, List.of(1, 2));
+        assertEquals(record, roundTrip(record));
+
+        PlayerObject object = new PlayerObject();
+        object.name = "jeb_";
+        object.level = 3;
+        object.scores = new ArrayList<>(List.of(4L, 5L));
+        object.transientValue = "not sent";
+        PlayerObject decoded = roundTrip(object);
+        assertEquals("jeb_", decoded.name);
+        assertEquals(3, decoded.level);
+        assertEquals(List.of(4L, 5L), decoded.scores);
+        assertNull(decoded.transientValue);
+    }
+
+    @Test
+    void unknownTypesFallBackToGson() {
+        UUID uuid = UUID.randomUUID();
+        assertEquals(uuid, roundTrip(uuid));
+
+        NoDefaultConstructor value = new NoDefaultConstructor("meteor");
+        assertEquals("meteor", roundTrip(value).value);
+
+        // also when nested
+        Map<String, UUID> nested = new LinkedHashMap<>(Map.of("uuid", uuid));
+        assertEquals(nested, roundTrip(nested));
+    }
+
+    @Test
+    void malformedData() {
+        assertThrowsExactly(IllegalArgumentException.class, () -> serializer.deserialize(new byte[]{99}, Object.class));
+        assertThrowsExactly(IllegalArgumentException.class, () -> serializer.deserialize(new byte[]{BinaryCodecs.STRING, 10, 'a'}, String.class));
+        assertThrowsExactly(IllegalArgumentException.class, () -> serializer.deserialize(new byte[0], Object.class));
+    }
+
+    public enum Status {
+        ONLINE,
+        AWAY {
+            @Override
+            public String toString() {
+                return "away";
+            }
+        }
+    }
+
+    @Test
+    void classesResolvedWithConfiguredLoader() {
+        AtomicInteger lookups = new AtomicInteger();
+        ClassLoader countingLoader = new ClassLoader(BinarySerializerTest.class.getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                lookups.incrementAndGet();
+                return super.loadClass(name, resolve);
+            }
+        };
+        RpcOptions options = new RpcOptions();
+        options.setClassLoader(countingLoader);
+        options.setMaxCachedClasses(2);
+        BinarySerializer configured = new BinarySerializer(options);
+
+        assertEquals(PlayerObject.class, configured.resolveClass(PlayerObject.class.getName()));
+        assertEquals(1, lookups.get());
+
+        // missing classes are remembered too, so they don't hit the loader every time they're named
+        assertThrows(IllegalArgumentException.class, () -> configured.resolveClass("dev.pixelib.meteor.Missing"));
+        assertThrows(IllegalArgumentException.class, () -> configured.resolveClass("dev.pixelib.meteor.Missing"));
+        assertEquals(2, lookups.get());
+
+        // the cache starts over once it's full
+        assertThrows(IllegalArgumentException.class, () -> configured.resolveClass("dev.pixelib.meteor.AlsoMissing"));
+        assertThrows(IllegalArgumentException.class, () -> configured.resolveClass("dev.pixelib.meteor.Missing"));
+        assertEquals(4, lookups.get());
+
+        assertThrows(IllegalArgumentException.class, () -> new BinarySerializer(countingLoader, 0));
+    }
+
+    public record PlayerRecord(String name, int level, Status status, List<Integer> scores) {
+    }
+
+    public static class PlayerObject {
+        private String name;
+        private int level;
+        private List<Long> scores;
+        private transient String transientValue;
+    }
+
+    public record RankingRecord(TreeMap<String, Integer> ranking) {
+    }
+
+    public static class Scores extends HashMap<String, Integer> {
+    }
+
+    public static class Containers {
+        private ConcurrentSkipListMap<String, Integer> skipList;
+        private TreeMap<String, Integer> sorted;
+        private EnumMap<Status, Integer> statuses;
+        private ArrayDeque<String> deque;
+    }
+
+    public static class NoDefaultConstructor {
+        private final String value;
+
+        public NoDefaultConstructor(String value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package dev.pixelib.meteor.base.defaults;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GsonSerializerTest {
+
+    private final GsonSerializer serializer = new GsonSerializer();
+
+    @Test
+    void declaredTypeArgumentsAreApplied() throws NoSuchMethodException {
+        Map<String, Integer> scores = new HashMap<>(Map.of("Notch", 10));
+        Type declared = Signatures.class.getMethod("scores").getGenericReturnType();
+
+        Map<?, ?> decoded = serializer.deserialize(serializer.serialize(scores), HashMap.class, declared);
+        assertInstanceOf(HashMap.class, decoded);
+        assertEquals(10, decoded.get("Notch"));
+
+        // without the declared type gson can only guess
+        assertEquals(10.0, serializer.deserialize(serializer.serialize(scores), HashMap.class).get("Notch"));
+    }
+
+    @Test
+    void declaredTypeArgumentsFollowTheHierarchy() throws NoSuchMethodException {
+        Method method = Signatures.class.getMethod("update", List.class, Map.class);
+
+        List<?> ids = serializer.deserialize(serializer.serialize(new ArrayList<>(List.of(1L, 2L))), ArrayList.class, method.getGenericParameterTypes()[0]);
+        assertEquals(List.of(1L, 2L), ids);
+
+        Map<String, List<Integer>> nested = new LinkedHashMap<>(Map.of("a", List.of(1)));
+        Map<?, ?> decoded = serializer.deserialize(serializer.serialize(nested), LinkedHashMap.class, method.getGenericParameterTypes()[1]);
+        assertInstanceOf(LinkedHashMap.class, decoded);
+        assertEquals(List.of(1), decoded.get("a"));
+    }
+
+    @Test
+    void streamsUtf8() throws IOException {
+        String text = "ascii, überall, ☄ and 🚀";
+        Map<String, String> value = new HashMap<>(Map.of(text, text));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        serializer.serialize(value, output);
+        assertArrayEquals(serializer.serialize(value), output.toByteArray());
+        assertEquals(GsonSerializer.GSON.toJson(value), output.toString(StandardCharsets.UTF_8));
+
+        Map<?, ?> decoded = serializer.deserialize(new ByteArrayInputStream(output.toByteArray()), HashMap.class, null);
+        assertEquals(value, decoded);
+    }
+
+    @Test
+    void streamsMalformedUtf8LikeStrings() throws IOException {
+        byte[] malformed = {'"', 'a', (byte) 0xC3, '"'};
+        assertEquals(new String(malformed, StandardCharsets.UTF_8).replace("\"", ""), serializer.deserialize(new ByteArrayInputStream(malformed), String.class, null));
+
+        // an unpaired surrogate can't be encoded
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        serializer.serialize("a\uD83D", output);
+        assertEquals("\"a?\"", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void streamsUtf8AcrossBufferBoundaries() throws IOException {
+        // mixed widths, so characters of every length straddle the writer's and reader's buffers somewhere
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1500; i++) {
+            builder.append(i % 7 == 0 ? "🚀" : i % 5 == 0 ? "☄" : i % 3 == 0 ? "ü" : "a");
+        }
+        String text = builder.toString();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        serializer.serialize(text, output);
+        assertArrayEquals(serializer.serialize(text), output.toByteArray());
+        assertEquals(text, serializer.deserialize(new ByteArrayInputStream(output.toByteArray()), String.class, null));
+
+        // a stream that hands out a single byte per read splits every sequence over separate fills
+        assertEquals(text, serializer.deserialize(new TrickleInputStream(output.toByteArray()), String.class, null));
+
+        byte[] malformed = {'"', (byte) 0xE2, (byte) 0x98, 'a', (byte) 0xF0, '"'};
+        String expected = new String(malformed, StandardCharsets.UTF_8).replace("\"", "");
+        assertEquals(expected, serializer.deserialize(new TrickleInputStream(malformed), String.class, null));
+    }
+
+    @Test
+    void resolveType() throws NoSuchMethodException {
+        Type declared = Signatures.class.getMethod("scores").getGenericReturnType();
+        assertEquals("java.util.HashMap<java.lang.String, java.lang.Integer>", GsonSerializer.resolveType(HashMap.class, declared).getTypeName());
+        assertEquals(declared, GsonSerializer.resolveType(Map.class, declared));
+
+        // unrelated or raw types don't add anything
+        assertEquals(ArrayList.class, GsonSerializer.resolveType(ArrayList.class, declared));
+        assertEquals(HashMap.class, GsonSerializer.resolveType(HashMap.class, Map.class));
+        assertEquals(HashMap.class, GsonSerializer.resolveType(HashMap.class, null));
+        assertEquals(ScoreMap.class, GsonSerializer.resolveType(ScoreMap.class, declared));
+    }
+
+    private static class TrickleInputStream extends ByteArrayInputStream {
+        TrickleInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public synchronized int read(byte[] bytes, int offset, int length) {
+            return super.read(bytes, offset, Math.min(length, 1));
+        }
+    }
+
+    public interface Signatures {
+        Map<String, Integer> scores();
+
+        void update(List<Long> ids, Map<String, List<Integer>> nested);
+    }
+
+    public static class ScoreMap extends HashMap<String, Integer> {
+    }
+}
@@ -1,12 +1,59 @@
 package dev.pixelib.meteor.core;
 
+import dev.pixelib.meteor.base.RpcOptions;
+import dev.pixelib.meteor.base.RpcTransport;
+import dev.pixelib.meteor.base.annotations.Cacheable;
+import dev.pixelib.meteor.base.annotations.Invalidates;
+import dev.pixelib.meteor.base.annotations.OneWay;
+import dev.pixelib.meteor.base.annotations.PartitionKey;
+import dev.pixelib.meteor.base.annotations.SingleFlight;
+import dev.pixelib.meteor.base.annotations.Timeout;
+import dev.pixelib.meteor.base.defaults.BinarySerializer;
 import dev.pixelib.meteor.base.defaults.LoopbackTransport;
+import dev.pixelib.meteor.base.enums.Direction;
+import dev.pixelib.meteor.base.enums.ExecutionMode;
+import dev.pixelib.meteor.base.errors.InvocationRejectedException;
+import dev.pixelib.meteor.base.errors.InvocationTimedOutException;
+import dev.pixelib.meteor.base.errors.MethodInvocationException;
+import dev.pixelib.meteor.base.interfaces.SubscriptionHandler;
+import dev.pixelib.meteor.core.proxy.GatherProcedure;
+import dev.pixelib.meteor.core.transport.packets.FrameType;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertThrowsExactly;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class MeteorLoopbackTest {
@@ -38,6 +85,930 @@ class MeteorLoopbackTest {
 
     }
 
+    @Test
+    void testBatchedInvocations() throws Exception {
+        RpcOptions options = new RpcOptions();
+        options.setInvocationBatchLingerMicros(2_000);
+        Meteor meteor = new Meteor(broadcastTransport(), options);
+
+        AsyncCounter proxy = meteor.registerProcedure(AsyncCounter.class);
+        meteor.registerImplementation(new AsyncCounterImpl());
+
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            results.add(proxy.increment(1));
+        }
+
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+        assertEquals(100, proxy.increment(0).join());
+
+        meteor.stop();
+    }
+
+    @Test
+    void testBatchedInvocationsOnFirstHandlerTransportExpectToFail() {
+        RpcOptions options = new RpcOptions();
+        options.setInvocationBatchLingerMicros(2_000);
+
+        // other instances on the loopback would run the invocations in a batch that the first one already ran
+        assertThrowsExactly(IllegalArgumentException.class, () -> new Meteor(new LoopbackTransport(), options));
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(5)
+    void testBatchedResponses() throws Exception {
+        AtomicInteger responseFrames = new AtomicInteger();
+        RpcTransport broadcast = broadcastTransport();
+        RpcTransport transport = new RpcTransport() {
+            @Override
+            public void send(Direction direction, byte[] bytes) {
+                if (direction == Direction.METHOD_PROXY) {
+                    responseFrames.incrementAndGet();
+                }
+                broadcast.send(direction, bytes);
+            }
+
+            @Override
+            public void subscribe(Direction target, SubscriptionHandler onReceive) {
+                broadcast.subscribe(target, onReceive);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        RpcOptions options = new RpcOptions();
+        options.setInvocationBatchLingerMicros(2_000);
+        // long enough to time out the test, responses should be flushed as soon as the executor runs out of work instead
+        options.setResponseBatchLingerMicros(TimeUnit.SECONDS.toMicros(30));
+        Meteor meteor = new Meteor(transport, options);
+
+        AsyncCounter proxy = meteor.registerProcedure(AsyncCounter.class);
+        meteor.registerImplementation(new AsyncCounterImpl());
+
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            results.add(proxy.increment(1));
+        }
+
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+        assertTrue(responseFrames.get() < 100, "Responses weren't batched, got " + responseFrames.get() + " frames");
+
+        meteor.stop();
+    }
+
+    @Test
+    void testCompressedPayloads() throws Exception {
+        AtomicInteger compressedFrames = new AtomicInteger();
+        LoopbackTransport transport = new LoopbackTransport() {
+            @Override
+            public void send(Direction direction, ByteBuffer buffer) {
+                if ((buffer.get(buffer.position()) & FrameType.COMPRESSED_FLAG) != 0) {
+                    compressedFrames.incrementAndGet();
+                }
+                super.send(direction, buffer);
+            }
+        };
+
+        RpcOptions options = new RpcOptions();
+        options.setCompressionThresholdBytes(1024);
+        Meteor meteor = new Meteor(transport, options);
+
+        EchoService proxy = meteor.registerProcedure(EchoService.class);
+        meteor.registerImplementation(new EchoServiceImpl());
+
+        // too small to be compressed
+        assertEquals("meteor", proxy.echo("meteor"));
+        assertEquals(0, compressedFrames.get());
+
+        // both the invocation and the response
+        String large = "meteor".repeat(1000);
+        assertEquals(large, proxy.echo(large));
+        assertEquals(2, compressedFrames.get());
+
+        meteor.stop();
+    }
+
+    @Test
+    void testBinarySerializer() throws Exception {
+        Meteor meteor = new Meteor(new LoopbackTransport(), new BinarySerializer());
+
+        EchoService echo = meteor.registerProcedure(EchoService.class);
+        meteor.registerImplementation(new EchoServiceImpl());
+        AsyncCounter counter = meteor.registerProcedure(AsyncCounter.class);
+        meteor.registerImplementation(new AsyncCounterImpl());
+
+        assertEquals("☄ meteor", echo.echo("☄ meteor"));
+        assertNull(echo.echo(null));
+        assertEquals(5, counter.increment(5).join());
+
+        meteor.stop();
+    }
+
+    @Test
+    void testGenericTypes() throws Exception {
+        Meteor meteor = new Meteor(new LoopbackTransport());
+
+        TypedScores proxy = meteor.registerProcedure(TypedScores.class);
+        meteor.registerImplementation(new TypedScoresImpl());
+
+        Map<String, Integer> scores = proxy.addBonuses(new HashMap<>(Map.of("Notch", 5L)));
+        assertEquals(Integer.class, scores.get("Notch").getClass());
+        assertEquals(6, scores.get("Notch"));
+
+        Map<String, Integer> asyncScores = proxy.addBonusesAsync(new HashMap<>(Map.of("jeb_", 1L))).join();
+        assertEquals(Integer.class, asyncScores.get("jeb_").getClass());
+
+        meteor.stop();
+    }
+
+    @Test
+    void testArrayOnlyTransport() {
+        LoopbackTransport loopback = new LoopbackTransport();
+
+        // a transport that only knows about arrays, relying on the default buffer adapters on both ends
+        RpcTransport arrayTransport = new RpcTransport() {
+            @Override
+            public void send(Direction direction, byte[] bytes) {
+                loopback.send(direction, bytes);
+            }
+
+            @Override
+            public void subscribe(Direction target, SubscriptionHandler onReceive) {
+                loopback.subscribe(target, packet -> onReceive.onPacket(packet));
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        Meteor meteor = new Meteor(arrayTransport);
+        OneWayCounter proxy = meteor.registerProcedure(OneWayCounter.class);
+        meteor.registerImplementation(new OneWayCounterImpl());
+
+        proxy.increment(3);
+        assertEquals(3, proxy.get());
+    }
+
+    @Test
+    void testAsyncLoopbackFunctionality() {
+        Meteor meteor = new Meteor(new LoopbackTransport());
+
+        AsyncCounter proxy = meteor.registerProcedure(AsyncCounter.class);
+        meteor.registerImplementation(new AsyncCounterImpl());
+
+        CompletableFuture<Integer> first = proxy.increment(5);
+        CompletionStage<Integer> second = proxy.incrementStage(10);
+        CompletableFuture<List<String>> names = proxy.names();
+
+        assertEquals(5, first.join());
+        assertEquals(15, second.toCompletableFuture().join());
+        assertEquals(List.of("a", "b"), names.join());
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(5)
+    void testFailedAsyncImplementation() {
+        // far beyond the test timeout, so only a failure response can end the invocation in time
+        RpcOptions options = new RpcOptions();
+        options.setTimeoutMillis(60_000);
+        Meteor meteor = new Meteor(new LoopbackTransport(), options);
+
+        FailingCounter proxy = meteor.registerProcedure(FailingCounter.class);
+        meteor.registerImplementation(new FailingCounterImpl());
+
+        CompletionException exception = assertThrows(CompletionException.class, () -> proxy.increment(5).join());
+        MethodInvocationException cause = assertInstanceOf(MethodInvocationException.class, exception.getCause());
+        assertEquals("increment", cause.getMethodName());
+        assertTrue(cause.getCause().getMessage().contains("The counter is read-only"));
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(5)
+    void testFailedImplementation() throws Exception {
+        RpcOptions options = new RpcOptions();
+        options.setTimeoutMillis(60_000);
+        Meteor meteor = new Meteor(new LoopbackTransport(), options);
+
+        // throws before returning a future, and without one at all
+        meteor.registerImplementation((FailingCounter) amount -> {
+            throw new IllegalStateException("The counter is read-only");
+        });
+        FailingCounter asyncProxy = meteor.registerProcedure(FailingCounter.class);
+        CompletionException exception = assertThrows(CompletionException.class, () -> asyncProxy.increment(5).join());
+        assertTrue(assertInstanceOf(MethodInvocationException.class, exception.getCause()).getCause().getMessage().contains("The counter is read-only"));
+
+        meteor.registerImplementation((EchoService) value -> {
+            throw new IllegalArgumentException("Nothing to echo");
+        });
+        EchoService proxy = meteor.registerProcedure(EchoService.class);
+        MethodInvocationException cause = assertThrowsExactly(MethodInvocationException.class, () -> proxy.echo("meteor"));
+        assertEquals("echo", cause.getMethodName());
+        assertTrue(cause.getCause().getMessage().contains("Nothing to echo"));
+
+        meteor.stop();
+    }
+
+    @Test
+    void testOneWayLoopbackFunctionality() {
+        Meteor meteor = new Meteor(new LoopbackTransport());
+
+        OneWayCounter proxy = meteor.registerProcedure(OneWayCounter.class);
+        meteor.registerImplementation(new OneWayCounterImpl());
+
+        proxy.increment(5);
+        proxy.increment(10);
+
+        // the single executor thread runs invocations in order, so the blocking call observes both one-way calls
+        assertEquals(15, proxy.get());
+    }
+
+    @Test
+    void testOneWayOnNonVoidMethodExpectToFail() {
+        Meteor meteor = new Meteor(new LoopbackTransport());
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> meteor.registerProcedure(InvalidOneWay.class));
+    }
+
+    @Test
+    void testTimeoutPrecedence() {
+        Meteor meteor = new Meteor(new LoopbackTransport());
+
+        // nothing is registered to respond, so every invocation times out
+        SlowService global = meteor.registerProcedure(SlowService.class);
+        SlowService overridden = meteor.registerProcedure(SlowService.class, null, Duration.ofMillis(100));
+
+        assertEquals(50, assertThrowsExactly(InvocationTimedOutException.class, global::annotated).getTimeoutMillis());
+        assertEquals(50, assertThrowsExactly(InvocationTimedOutException.class, overridden::annotated).getTimeoutMillis());
+        assertEquals(100, assertThrowsExactly(InvocationTimedOutException.class, overridden::unannotated).getTimeoutMillis());
+
+        // sub-millisecond timeouts are rounded up to a millisecond, instead of down to none at all
+        SlowService tiny = meteor.registerProcedure(SlowService.class, null, Duration.ofNanos(500_000));
+        assertEquals(1, assertThrowsExactly(InvocationTimedOutException.class, tiny::unannotated).getTimeoutMillis());
+        assertEquals(1, assertThrowsExactly(InvocationTimedOutException.class, meteor.registerProcedure(TinyTimeout.class)::get).getTimeoutMillis());
+    }
+
+    @Test
+    void testInvalidTimeoutExpectToFail() {
+        Meteor meteor = new Meteor(new LoopbackTransport());
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> meteor.registerProcedure(InvalidTimeout.class));
+        assertThrowsExactly(IllegalArgumentException.class, () -> meteor.registerProcedure(SlowService.class, null, Duration.ZERO));
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(5)
+    void testImplementationExecutor() throws Exception {
+        Meteor meteor = new Meteor(new LoopbackTransport());
+        ExecutorService isolated = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "isolated"));
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            // occupy the only thread of the shared executor
+            meteor.registerImplementation((BlockingService) release::await, "blocked");
+            meteor.registerProcedure(BlockingService.class, "blocked").block();
+
+            meteor.registerImplementation((ThreadService) () -> Thread.currentThread().getName(), "isolated", isolated);
+            meteor.registerImplementation((ThreadService) () -> Thread.currentThread().getName(), "direct", Runnable::run);
+
+            assertEquals("isolated", meteor.registerProcedure(ThreadService.class, "isolated").threadName());
+            // runs on the transport thread, which is the calling thread for the loopback transport
+            assertEquals(Thread.currentThread().getName(), meteor.registerProcedure(ThreadService.class, "direct").threadName());
+            assertThrowsExactly(IllegalArgumentException.class, () -> meteor.registerImplementation(new OneWayCounterImpl(), null, null));
+        } finally {
+            release.countDown();
+            meteor.stop();
+        }
+
+        // executors passed in by the caller are left alone
+        assertFalse(isolated.isShutdown());
+        isolated.shutdown();
+    }
+
+    @Test
+    void testPartitionedExecution() throws Exception {
+        RpcOptions options = new RpcOptions();
+        options.setExecutionMode(ExecutionMode.PARTITIONED);
+        options.setExecutorThreads(4);
+        Meteor meteor = new Meteor(new LoopbackTransport(), options);
+
+        meteor.registerImplementation(new LaneServiceImpl());
+        LaneService proxy = meteor.registerProcedure(LaneService.class);
+
+        // the same player always lands on the same lane, and the players get spread over more than one
+        Set<String> lanes = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            String player = "player-" + i;
+            String lane = proxy.laneOf(player);
+            assertEquals(lane, proxy.laneOf(player));
+            assertTrue(lane.startsWith("meteor-executor-lane-"));
+            lanes.add(lane);
+        }
+        assertTrue(lanes.size() > 1);
+
+        meteor.stop();
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(5)
+    void testOverloadedImplementationRejects() throws Exception {
+        RpcOptions options = new RpcOptions();
+        options.setMaxQueuedInvocations(1);
+        Meteor meteor = new Meteor(new LoopbackTransport(), options);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            // one invocation blocks the only executor thread, and another one fills up the queue
+            meteor.registerImplementation((BlockingService) release::await, "blocked");
+            BlockingService blocking = meteor.registerProcedure(BlockingService.class, "blocked");
+            blocking.block();
+            blocking.block();
+
+            meteor.registerImplementation((ThreadService) () -> Thread.currentThread().getName());
+            ThreadService proxy = meteor.registerProcedure(ThreadService.class);
+
+            // answered straight away, instead of waiting for the timeout
+            InvocationRejectedException exception = assertThrowsExactly(InvocationRejectedException.class, proxy::threadName);
+            assertEquals("threadName", exception.getMethodName());
+        } finally {
+            release.countDown();
+            meteor.stop();
+        }
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(5)
+    void testRejectionDoesNotBeatHealthyImplementation() throws Exception {
+        RpcTransport broadcast = broadcastTransport();
+        RpcOptions overloadedOptions = new RpcOptions();
+        overloadedOptions.setMaxQueuedInvocations(1);
+
+        // the overloaded node subscribes first, so its rejection always arrives before the answer of the healthy one
+        Meteor overloaded = new Meteor(broadcast, overloadedOptions);
+        Meteor healthy = new Meteor(broadcast);
+        Meteor caller = new Meteor(broadcast);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            overloaded.registerImplementation((BlockingService) release::await, "blocked");
+            BlockingService blocking = caller.registerProcedure(BlockingService.class, "blocked");
+            blocking.block();
+            blocking.block();
+
+            overloaded.registerImplementation(new EchoServiceImpl(), "replicated");
+            healthy.registerImplementation(new EchoServiceImpl(), "replicated");
+            assertEquals("meteor", caller.registerProcedure(EchoService.class, "replicated").echo("meteor"));
+
+            // without a healthy node to answer, the rejection still fails the invocation long before it would time out
+            overloaded.registerImplementation(new EchoServiceImpl(), "overloaded");
+            EchoService overloadedOnly = caller.registerProcedure(EchoService.class, "overloaded");
+            assertThrowsExactly(InvocationRejectedException.class, () -> overloadedOnly.echo("meteor"));
+        } finally {
+            release.countDown();
+            overloaded.stop();
+            healthy.stop();
+            caller.stop();
+        }
+    }
+
+    @Test
+    void testMaxInFlightInvocations() throws Exception {
+        RpcOptions options = new RpcOptions();
+        options.setMaxInFlightInvocations(1);
+        Meteor meteor = new Meteor(new LoopbackTransport(), options);
+
+        // nothing responds, so the first invocation keeps its permit until it times out
+        AsyncCounter proxy = meteor.registerProcedure(AsyncCounter.class, null, Duration.ofMillis(200));
+        CompletableFuture<Integer> first = proxy.increment(1);
+        CompletableFuture<Integer> second = proxy.increment(1);
+
+        assertTrue(second.isCompletedExceptionally());
+        assertThrowsExactly(InvocationRejectedException.class, () -> {
+            try {
+                second.join();
+            } catch (CompletionException e) {
+                throw e.getCause();
+            }
+        });
+
+        // the permit comes back once the first one times out
+        assertThrows(CompletionException.class, first::join);
+        meteor.registerImplementation(new AsyncCounterImpl());
+        assertEquals(1, proxy.increment(1).get());
+
+        meteor.stop();
+    }
+
+    @Test
+    void testGatherProcedure() throws Exception {
+        RpcTransport broadcast = broadcastTransport();
+
+        Meteor first = new Meteor(broadcast);
+        Meteor second = new Meteor(broadcast);
+        Meteor caller = new Meteor(broadcast);
+        first.registerImplementation(new LaneServiceImpl(), "gather");
+        second.registerImplementation(new LaneServiceImpl(), "gather");
+
+        GatherProcedure<LaneService> gatherer = caller.registerGatherProcedure(LaneService.class, "gather");
+        List<String> lanes = gatherer.gather(service -> service.laneOf("player"), Duration.ofMillis(200));
+        assertEquals(2, lanes.size());
+
+        long count = gatherer.gather(service -> service.laneOf("player"), Duration.ofMillis(200), 2, Collectors.counting());
+        assertEquals(2, count);
+
+        // a quorum that isn't met fails once the window closes
+        assertThrowsExactly(InvocationTimedOutException.class, () -> gatherer.gather(service -> service.laneOf("player"), Duration.ofMillis(100), 3));
+        assertThrowsExactly(IllegalArgumentException.class, () -> gatherer.gather(service -> "not a procedure call", Duration.ofMillis(100)));
+
+        first.stop();
+        second.stop();
+        caller.stop();
+    }
+
+    @Test
+    void testNearCache() throws Exception {
+        RpcTransport broadcast = broadcastTransport();
+        Meteor implementation = new Meteor(broadcast);
+        Meteor reader = new Meteor(broadcast);
+        Meteor writer = new Meteor(broadcast);
+
+        CachedScoreboardImpl scoreboard = new CachedScoreboardImpl();
+        implementation.registerImplementation(scoreboard, "arena");
+        CachedScoreboard readerProxy = reader.registerProcedure(CachedScoreboard.class, "arena");
+        CachedScoreboard writerProxy = writer.registerProcedure(CachedScoreboard.class, "arena");
+
+        assertEquals(0, readerProxy.getScore("player"));
+        assertEquals(0, readerProxy.getScore("player"));
+        assertEquals(0, readerProxy.getScoreAsync("player").get());
+        assertEquals(0, readerProxy.getScoreAsync("player").get());
+        assertEquals(2, scoreboard.reads.get());
+
+        // a write on another node clears the cache of the reader
+        writerProxy.setScore("player", 5);
+        assertEquals(5, readerProxy.getScore("player"));
+        assertEquals(3, scoreboard.reads.get());
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> reader.registerProcedure(InvalidCacheable.class));
+
+        implementation.stop();
+        reader.stop();
+        writer.stop();
+    }
+
+    @Test
+    void testNearCacheKeysAndResults() {
+        Meteor meteor = new Meteor(new LoopbackTransport());
+        CachedScoreboardImpl scoreboard = new CachedScoreboardImpl();
+        meteor.registerImplementation(scoreboard);
+        CachedScoreboard proxy = meteor.registerProcedure(CachedScoreboard.class);
+
+        // every caller gets the same cached instance, which is why results have to be immutable
+        String[] players = {"a", "b"};
+        List<String> ranking = proxy.getRanking(players);
+        assertSame(ranking, proxy.getRanking(new String[]{"a", "b"}));
+        assertEquals(1, scoreboard.reads.get());
+
+        // reusing the array doesn't change what the cached result was for
+        players[0] = "c";
+        assertEquals(List.of("c", "b"), proxy.getRanking(players));
+        assertEquals(List.of("a", "b"), proxy.getRanking(new String[]{"a", "b"}));
+        assertEquals(2, scoreboard.reads.get());
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(5)
+    void testSingleFlight() throws Exception {
+        Meteor meteor = new Meteor(new LoopbackTransport());
+        SlowReaderImpl reader = new SlowReaderImpl();
+        meteor.registerImplementation(reader);
+        SlowReader proxy = meteor.registerProcedure(SlowReader.class);
+
+        CompletableFuture<String> first = proxy.read("arena-7");
+        CompletableFuture<String> second = proxy.read("arena-7");
+        CompletableFuture<String> other = proxy.read("arena-8");
+
+        // only one invocation per key reaches the implementation while it's busy
+        assertTrue(reader.received.await(5, TimeUnit.SECONDS));
+        reader.pending.forEach((key, future) -> future.complete("scores of " + key));
+
+        assertEquals("scores of arena-7", first.get());
+        assertEquals("scores of arena-7", second.get());
+        assertEquals("scores of arena-8", other.get());
+        assertEquals(2, reader.invocations.get());
+
+        // once answered, the next call is sent again
+        assertEquals("scores of arena-7", proxy.read("arena-7").get());
+        assertEquals(3, reader.invocations.get());
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> meteor.registerProcedure(InvalidSingleFlight.class));
+        meteor.stop();
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(10)
+    void testStreamedResults() throws Exception {
+        RpcOptions options = new RpcOptions();
+        options.setStreamWindowSize(8);
+        Meteor meteor = new Meteor(new LoopbackTransport(), options);
+        LeaderboardImpl leaderboard = new LeaderboardImpl();
+        meteor.registerImplementation(leaderboard);
+        Leaderboard proxy = meteor.registerProcedure(Leaderboard.class);
+
+        // elements arrive in order, over many chunks
+        assertEquals(IntStream.range(0, 1000).boxed().toList(), proxy.top(1000).toList());
+        assertEquals(List.of(), proxy.top(0).toList());
+
+        // the implementation never gets more than a window ahead of the caller
+        Iterator<String> names = proxy.names();
+        assertEquals("player-0", names.next());
+        assertNull(names.next());
+        assertEquals("player-2", names.next());
+        Thread.sleep(100);
+        assertTrue(leaderboard.produced.get() <= 3 + 8, "produced " + leaderboard.produced.get());
+        ((AutoCloseable) names).close();
+
+        // closing a stream early closes it on the implementation side as well
+        try (Stream<Integer> top = proxy.top(1_000_000)) {
+            assertEquals(List.of(0, 1, 2), top.limit(3).toList());
+        }
+        assertTrue(leaderboard.closed.await(5, TimeUnit.SECONDS));
+
+        // publishers get exactly what they request
+        List<Long> ticks = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        proxy.ticks(20).subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(Long item) {
+                ticks.add(item);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertEquals(LongStream.range(0, 20).boxed().toList(), ticks);
+
+        // elements sent before the implementation failed are still seen
+        Iterator<Integer> failing = proxy.failing().iterator();
+        assertEquals(0, failing.next());
+        assertEquals(1, failing.next());
+        assertThrowsExactly(MethodInvocationException.class, failing::next);
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> meteor.registerProcedure(InvalidStream.class));
+        meteor.stop();
+    }
+
+    @Test
+    void testStreamCreditForAnyNodeIsPassedOn() throws Exception {
+        LoopbackTransport transport = new LoopbackTransport();
+        Meteor meteor = new Meteor(transport);
+        meteor.registerImplementation(new LeaderboardImpl());
+        Leaderboard proxy = meteor.registerProcedure(Leaderboard.class);
+
+        // subscribes after the implementation, like another instance sharing the transport would
+        List<Byte> frameTypes = new CopyOnWriteArrayList<>();
+        transport.subscribe(Direction.IMPLEMENTATION, packet -> {
+            frameTypes.add(packet[0]);
+            return false;
+        });
+
+        try (Stream<Integer> top = proxy.top(1_000)) {
+            assertEquals(List.of(0, 1, 2), top.limit(3).toList());
+        }
+
+        // the first window and the cancellation, but not credit meant for the implementation that is streaming
+        assertEquals(List.of(FrameType.STREAM_CREDIT.getId(), FrameType.STREAM_CREDIT.getId()), frameTypes);
+
+        meteor.stop();
+    }
+
+    @Test
+    @org.junit.jupiter.api.Timeout(10)
+    void testStreamedResultsFromMultipleImplementations() throws Exception {
+        RpcTransport broadcast = broadcastTransport();
+        RpcOptions options = new RpcOptions();
+        options.setStreamWindowSize(8);
+
+        Meteor first = new Meteor(broadcast, options);
+        Meteor second = new Meteor(broadcast, options);
+        Meteor caller = new Meteor(broadcast, options);
+        LeaderboardImpl firstLeaderboard = new LeaderboardImpl();
+        LeaderboardImpl secondLeaderboard = new LeaderboardImpl();
+        first.registerImplementation(firstLeaderboard, "streams");
+        second.registerImplementation(secondLeaderboard, "streams");
+        Leaderboard proxy = caller.registerProcedure(Leaderboard.class, "streams");
+
+        // both implementations start streaming, but only the elements of one of them end up in the result
+        assertEquals(IntStream.range(0, 1000).boxed().toList(), proxy.top(1000).toList());
+
+        // one stream ran to its end, the other one was cancelled
+        assertTrue(firstLeaderboard.closed.await(5, TimeUnit.SECONDS));
+        assertTrue(secondLeaderboard.closed.await(5, TimeUnit.SECONDS));
+
+        first.stop();
+        second.stop();
+        caller.stop();
+    }
+
+    public interface Leaderboard {
+        Stream<Integer> top(int count);
+
+        Iterator<String> names();
+
+        Flow.Publisher<Long> ticks(int count);
+
+        Stream<Integer> failing();
+    }
+
+    public static class LeaderboardImpl implements Leaderboard {
+        private final AtomicInteger produced = new AtomicInteger();
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public Stream<Integer> top(int count) {
+            return IntStream.range(0, count).boxed().onClose(closed::countDown);
+        }
+
+        @Override
+        public Iterator<String> names() {
+            return Stream.iterate(0, i -> i + 1)
+                    .peek(i -> produced.incrementAndGet())
+                    .map(i -> i == 1 ? null : "player-" + i)
+                    .iterator();
+        }
+
+        @Override
+        public Flow.Publisher<Long> ticks(int count) {
+            // submitted items are dropped until there's a subscriber, so publishing only starts once there is one
+            return subscriber -> {
+                SubmissionPublisher<Long> publisher = new SubmissionPublisher<>();
+                publisher.subscribe(subscriber);
+                for (long i = 0; i < count; i++) {
+                    publisher.submit(i);
+                }
+                publisher.close();
+            };
+        }
+
+        @Override
+        public Stream<Integer> failing() {
+            return IntStream.range(0, 10).boxed().map(i -> {
+                if (i == 2) {
+                    throw new IllegalStateException("The leaderboard is being rebuilt");
+                }
+                return i;
+            });
+        }
+    }
+
+    public interface InvalidStream {
+        CompletableFuture<Stream<Integer>> top();
+    }
+
+    public interface SlowReader {
+        @SingleFlight
+        CompletableFuture<String> read(String key);
+    }
+
+    public static class SlowReaderImpl implements SlowReader {
+        private final Map<String, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+        private final AtomicInteger invocations = new AtomicInteger();
+        private final CountDownLatch received = new CountDownLatch(2);
+
+        @Override
+        public CompletableFuture<String> read(String key) {
+            invocations.incrementAndGet();
+            CompletableFuture<String> future = pending.computeIfAbsent(key, k -> new CompletableFuture<>());
+            received.countDown();
+            return future;
+        }
+    }
+
+    public interface InvalidSingleFlight {
+        @SingleFlight
+        @OneWay
+        void write(String key);
+    }
+
+    public interface CachedScoreboard {
+        @Cacheable(ttl = 1, unit = TimeUnit.MINUTES)
+        int getScore(String player);
+
+        @Cacheable(ttl = 1, unit = TimeUnit.MINUTES)
+        CompletableFuture<Integer> getScoreAsync(String player);
+
+        @Cacheable(ttl = 1, unit = TimeUnit.MINUTES)
+        List<String> getRanking(String[] players);
+
+        @Invalidates({"getScore", "getScoreAsync"})
+        void setScore(String player, int score);
+    }
+
+    public static class CachedScoreboardImpl implements CachedScoreboard {
+        private final Map<String, Integer> scores = new ConcurrentHashMap<>();
+        private final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public int getScore(String player) {
+            reads.incrementAndGet();
+            return scores.getOrDefault(player, 0);
+        }
+
+        @Override
+        public CompletableFuture<Integer> getScoreAsync(String player) {
+            return CompletableFuture.completedFuture(getScore(player));
+        }
+
+        @Override
+        public List<String> getRanking(String[] players) {
+            reads.incrementAndGet();
+            return new ArrayList<>(List.of(players));
+        }
+
+        @Override
+        public void setScore(String player, int score) {
+            scores.put(player, score);
+        }
+    }
+
+    public interface InvalidCacheable {
+        @Cacheable(ttl = 0)
+        int get();
+    }
+
+    /**
+     * Unlike the loopback, this transport hands every packet to every subscriber, like redis does.
+     */
+    private static RpcTransport broadcastTransport() {
+        return new RpcTransport() {
+            private final Map<Direction, List<SubscriptionHandler>> handlers = new ConcurrentHashMap<>();
+
+            @Override
+            public void send(Direction direction, byte[] bytes) {
+                for (SubscriptionHandler handler : handlers.getOrDefault(direction, List.of())) {
+                    assertDoesNotThrow(() -> handler.onPacket(bytes));
+                }
+            }
+
+            @Override
+            public void subscribe(Direction target, SubscriptionHandler onReceive) {
+                handlers.computeIfAbsent(target, k -> new CopyOnWriteArrayList<>()).add(onReceive);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    public interface TypedScores {
+        Map<String, Integer> addBonuses(Map<String, Long> bonuses);
+
+        CompletableFuture<Map<String, Integer>> addBonusesAsync(Map<String, Long> bonuses);
+    }
+
+    public static class TypedScoresImpl implements TypedScores {
+        @Override
+        public Map<String, Integer> addBonuses(Map<String, Long> bonuses) {
+            Map<String, Integer> scores = new HashMap<>();
+            // fails with a class cast if the bonuses were read as doubles
+            bonuses.forEach((player, bonus) -> scores.put(player, (int) (bonus + 1)));
+            return scores;
+        }
+
+        @Override
+        public CompletableFuture<Map<String, Integer>> addBonusesAsync(Map<String, Long> bonuses) {
+            return CompletableFuture.completedFuture(addBonuses(bonuses));
+        }
+    }
+
+    public interface EchoService {
+        String echo(String value);
+    }
+
+    public static class EchoServiceImpl implements EchoService {
+        @Override
+        public String echo(String value) {
+            return value;
+        }
+    }
+
+    public interface LaneService {
+        String laneOf(@PartitionKey String player);
+    }
+
+    public static class LaneServiceImpl implements LaneService {
+        @Override
+        public String laneOf(String player) {
+            return Thread.currentThread().getName();
+        }
+    }
+
+    public interface BlockingService {
+        @OneWay
+        void block() throws InterruptedException;
+    }
+
+    public interface ThreadService {
+        String threadName();
+    }
+
+    public interface SlowService {
+        @Timeout(50)
+        int annotated();
+        int unannotated();
+    }
+
+    public interface TinyTimeout {
+        @Timeout(value = 500, unit = TimeUnit.MICROSECONDS)
+        int get();
+    }
+
+    public interface InvalidTimeout {
+        @Timeout(value = 0, unit = TimeUnit.SECONDS)
+        int get();
+    }
+
+    public interface OneWayCounter {
+        @OneWay
+        void increment(int amount);
+        int get();
+    }
+
+    public interface InvalidOneWay {
+        @OneWay
+        int increment(int amount);
+    }
+
+    public static class OneWayCounterImpl implements OneWayCounter {
+        private int counter = 0;
+
+        @Override
+        public void increment(int amount) {
+            counter += amount;
+        }
+
+        @Override
+        public int get() {
+            return counter;
+        }
+    }
+
+    public interface AsyncCounter {
+        CompletableFuture<Integer> increment(int amount);
+        CompletionStage<Integer> incrementStage(int amount);
+        CompletableFuture<List<String>> names();
+    }
+
+    public static class AsyncCounterImpl implements AsyncCounter {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public CompletableFuture<Integer> increment(int amount) {
+            return CompletableFuture.completedFuture(counter.addAndGet(amount));
+        }
+
+        @Override
+        public CompletionStage<Integer> incrementStage(int amount) {
+            return CompletableFuture.supplyAsync(() -> counter.addAndGet(amount));
+        }
+
+        @Override
+        public CompletableFuture<List<String>> names() {
+            return CompletableFuture.completedFuture(new ArrayList<>(List.of("a", "b")));
+        }
+    }
+
+    public interface FailingCounter {
+        CompletableFuture<Integer> increment(int amount);
+    }
+
+    public static class FailingCounterImpl implements FailingCounter {
+        @Override
+        public CompletableFuture<Integer> increment(int amount) {
+            return CompletableFuture.supplyAsync(() -> {
+                throw new IllegalStateException("The counter is read-only");
+            });
+        }
+    }
+
     public interface ImplementationTracker {
         int getInvocationCount();
         Set<String> allStrings();
@@ -1,5 +1,6 @@
 package dev.pixelib.meteor.core.executor;
 
+import dev.pixelib.meteor.base.errors.MethodInvocationException;
 import dev.pixelib.meteor.core.transport.packets.InvocationDescriptor;
 import org.junit.jupiter.api.Test;
 
@@ -40,6 +41,29 @@ class ImplementationWrapperTest {
 
         assertEquals("No method found with name unknown and compatible arguments (on " + MathFunctionImplementation.class.getName() + ").", noSuchMethodException.getMessage());
     }
+    @Test
+    void invokeOn_repeatedWithVarargs() throws NoSuchMethodException {
+        ImplementationWrapper wrapper = new ImplementationWrapper(new MathFunctionImplementation(), "namespace");
+        Class<?>[] argTypes = new Class<?>[] { int.class, Integer[].class };
+
+        // the second invocation is served from the dispatch table, and should behave exactly the same
+        for (int i = 0; i < 2; i++) {
+            InvocationDescriptor descriptor = new InvocationDescriptor("math", MathFunctionImplementation.class, "add", new Object[]{1, new Integer[]{2, 3}}, argTypes, int.class);
+            assertEquals(6, wrapper.invokeOn(descriptor, int.class));
+        }
+    }
+
+    @Test
+    void invokeOn_exceptionIsWrapped() {
+        ImplementationWrapper wrapper = new ImplementationWrapper(new MathFunctionImplementation(), "namespace");
+        Class<?>[] argTypes = new Class<?>[] { int.class, int.class };
+
+        InvocationDescriptor descriptor = new InvocationDescriptor("math", MathFunctionImplementation.class, "divide", new Object[]{1, 0}, argTypes, int.class);
+        MethodInvocationException exception = assertThrowsExactly(MethodInvocationException.class, () -> wrapper.invokeOn(descriptor, int.class));
+
+        assertInstanceOf(ArithmeticException.class, exception.getCause());
+    }
+
     @Test
     void getImplementation_success() {
         MathFunctionImplementation implementation = new MathFunctionImplementation();
@@ -80,6 +104,11 @@ class ImplementationWrapperTest {
         public int sub(int a, int b) {
             return  a - b;
         }
+
+        @Override
+        public int divide(int a, int b) {
+            return a / b;
+        }
     }
 
     public interface MathFunction {
@@ -91,5 +120,7 @@ class ImplementationWrapperTest {
         int add(int a, Double... b);
 
         int sub(int a, int b);
+
+        int divide(int a, int b);
     }
 }
\ No newline at end of file
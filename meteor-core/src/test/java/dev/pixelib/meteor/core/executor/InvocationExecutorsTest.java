@@ -0,0 +1,191 @@
+package dev.pixelib.meteor.core.executor;
+
+import dev.pixelib.meteor.base.RpcOptions;
+import dev.pixelib.meteor.base.enums.ExecutionMode;
+import dev.pixelib.meteor.base.enums.OverloadPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvocationExecutorsTest {
+
+    @Test
+    void fixedPool_usesPlatformThreads() throws Exception {
+        ExecutorService executor = InvocationExecutors.create(new RpcOptions());
+
+        assertFalse(executor.submit(() -> Thread.currentThread().isVirtual()).get());
+        executor.shutdown();
+    }
+
+    @Test
+    void virtualThreads_runEveryInvocationOnItsOwnThread() throws Exception {
+        RpcOptions options = new RpcOptions();
+        options.setExecutionMode(ExecutionMode.VIRTUAL_THREADS);
+        ExecutorService executor = InvocationExecutors.create(options);
+
+        assertTrue(executor.submit(() -> Thread.currentThread().isVirtual()).get());
+
+        // all of them block at the same time, which would deadlock on a single threaded pool
+        CountDownLatch allStarted = new CountDownLatch(50);
+        for (int i = 0; i < 50; i++) {
+            executor.execute(() -> {
+                allStarted.countDown();
+                assertDoesNotThrow(() -> allStarted.await());
+            });
+        }
+        assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void virtualThreads_respectConcurrencyCap() throws Exception {
+        RpcOptions options = new RpcOptions();
+        options.setExecutionMode(ExecutionMode.VIRTUAL_THREADS);
+        options.setMaxConcurrentInvocations(3);
+        ExecutorService executor = InvocationExecutors.create(options);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(30);
+        for (int i = 0; i < 30; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                assertDoesNotThrow(() -> Thread.sleep(10));
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(maxRunning.get() <= 3, "Ran " + maxRunning.get() + " invocations at once");
+
+        executor.shutdown();
+    }
+
+    @Test
+    void partitioned_keepsEqualKeysInOrder() throws Exception {
+        RpcOptions options = new RpcOptions();
+        options.setExecutionMode(ExecutionMode.PARTITIONED);
+        options.setExecutorThreads(4);
+        PartitionedExecutor executor = (PartitionedExecutor) InvocationExecutors.create(options);
+
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(400);
+        for (int i = 0; i < 100; i++) {
+            for (String key : List.of("a", "b", "c", "d")) {
+                int sequence = i;
+                executor.execute(key, () -> {
+                    seen.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(sequence);
+                    done.countDown();
+                });
+            }
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (List<Integer> sequences : seen.values()) {
+            for (int i = 0; i < sequences.size(); i++) {
+                assertEquals(i, sequences.get(i));
+            }
+        }
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void partitioned_runsDifferentKeysInParallel() throws Exception {
+        PartitionedExecutor executor = new PartitionedExecutor(2, "lane");
+
+        // find two keys on different lanes, which would deadlock if they shared a thread
+        String first = "a";
+        String second = "b";
+        while (executor.laneOf(first) == executor.laneOf(second)) {
+            second += "b";
+        }
+
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        for (String key : List.of(first, second)) {
+            executor.execute(key, () -> {
+                bothStarted.countDown();
+                assertDoesNotThrow(() -> bothStarted.await());
+            });
+        }
+        assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+
+        executor.shutdown();
+        assertThrowsExactly(IllegalArgumentException.class, () -> new PartitionedExecutor(0, "lane"));
+    }
+
+    @Test
+    void boundedQueue_appliesOverloadPolicy() throws Exception {
+        for (ExecutionMode mode : List.of(ExecutionMode.FIXED_POOL, ExecutionMode.PARTITIONED, ExecutionMode.VIRTUAL_THREADS)) {
+            for (OverloadPolicy policy : OverloadPolicy.values()) {
+                RpcOptions options = new RpcOptions();
+                options.setExecutionMode(mode);
+                options.setMaxConcurrentInvocations(1);
+                options.setMaxQueuedInvocations(1);
+                options.setOverloadPolicy(policy);
+                ExecutorService executor = InvocationExecutors.create(options);
+
+                // one task running, one waiting, which fills up the queue
+                CountDownLatch release = new CountDownLatch(1);
+                executor.execute(() -> assertDoesNotThrow(() -> release.await()));
+                TrackedTask waiting = new TrackedTask();
+                executor.execute(waiting);
+                TrackedTask overflowing = new TrackedTask();
+
+                String description = mode + " " + policy;
+                switch (policy) {
+                    case REJECT:
+                        assertThrowsExactly(RejectedExecutionException.class, () -> executor.execute(overflowing), description);
+                        break;
+                    case DROP_OLDEST:
+                        executor.execute(overflowing);
+                        assertTrue(waiting.rejected, description);
+                        break;
+                    case CALLER_RUNS:
+                        executor.execute(overflowing);
+                        assertEquals(Thread.currentThread(), overflowing.ranOn, description);
+                        break;
+                }
+
+                release.countDown();
+                executor.shutdown();
+                assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS), description);
+            }
+        }
+    }
+
+    private static final class TrackedTask implements RejectableTask {
+        private volatile Thread ranOn;
+        private volatile boolean rejected;
+
+        @Override
+        public void run() {
+            ranOn = Thread.currentThread();
+        }
+
+        @Override
+        public void reject() {
+            rejected = true;
+        }
+    }
+
+    @Test
+    void concurrencyLimitedExecutor_rejectsInvalidLimit() {
+        assertThrowsExactly(IllegalArgumentException.class, () -> new ConcurrencyLimitedExecutor(null, 0));
+    }
+}
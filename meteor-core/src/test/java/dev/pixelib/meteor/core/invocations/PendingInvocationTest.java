@@ -1,24 +1,36 @@
 package dev.pixelib.meteor.core.invocations;
 
 import dev.pixelib.meteor.base.RpcOptions;
+import dev.pixelib.meteor.base.RpcTransport;
 import dev.pixelib.meteor.base.defaults.GsonSerializer;
 import dev.pixelib.meteor.base.defaults.LoopbackTransport;
+import dev.pixelib.meteor.base.enums.Direction;
 import dev.pixelib.meteor.base.errors.InvocationTimedOutException;
+import dev.pixelib.meteor.base.interfaces.SubscriptionHandler;
+import dev.pixelib.meteor.core.proxy.PendingInvocation;
 import dev.pixelib.meteor.core.trackers.OutgoingInvocationTracker;
 import dev.pixelib.meteor.core.transport.packets.InvocationDescriptor;
 import dev.pixelib.meteor.core.transport.packets.InvocationResponse;
+import io.netty.util.HashedWheelTimer;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
-import java.util.Timer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 class PendingInvocationTest {
 
@@ -40,7 +52,7 @@ class PendingInvocationTest {
     @Test
     void testPendingInvocation() throws Throwable {
         // base instance
-        OutgoingInvocationTracker outgoingInvocationTracker = new OutgoingInvocationTracker(new LoopbackTransport(), new GsonSerializer(), new RpcOptions(), new Timer());
+        OutgoingInvocationTracker outgoingInvocationTracker = new OutgoingInvocationTracker(new LoopbackTransport(), new GsonSerializer(), new RpcOptions(), new HashedWheelTimer());
 
         InvocationDescriptor invocationDescriptor = new InvocationDescriptor("namespace", getClass(), "methodName", new Object[]{}, new Class[]{}, String.class);
 
@@ -51,7 +63,7 @@ class PendingInvocationTest {
             assertDoesNotThrow(() -> {
                 new CountDownLatch(1).await(1, TimeUnit.SECONDS);
             }, "Thread interrupted");
-            outgoingInvocationTracker.completeInvocation(new InvocationResponse(invocationDescriptor.getUniqueInvocationId(), testString)
+            outgoingInvocationTracker.completeInvocation(new InvocationResponse(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), testString)
             );
         });
 
@@ -64,7 +76,7 @@ class PendingInvocationTest {
     void testTimeout() {
         RpcOptions options = new RpcOptions();
         options.setTimeoutSeconds(1);
-        OutgoingInvocationTracker outgoingInvocationTracker = new OutgoingInvocationTracker(new LoopbackTransport(), new GsonSerializer(), options, new Timer());
+        OutgoingInvocationTracker outgoingInvocationTracker = new OutgoingInvocationTracker(new LoopbackTransport(), new GsonSerializer(), options, new HashedWheelTimer());
 
         InvocationDescriptor invocationDescriptor = new InvocationDescriptor("namespace", getClass(), "methodName", new Object[]{}, new Class[]{}, String.class);
 
@@ -73,4 +85,115 @@ class PendingInvocationTest {
         });
     }
 
+    @Test
+    @Timeout(2) // seconds
+    void testMillisecondTimeout() {
+        RpcOptions options = new RpcOptions();
+        options.setTimeoutMillis(200);
+        OutgoingInvocationTracker outgoingInvocationTracker = new OutgoingInvocationTracker(new LoopbackTransport(), new GsonSerializer(), options, new HashedWheelTimer());
+
+        InvocationDescriptor invocationDescriptor = new InvocationDescriptor("namespace", getClass(), "methodName", new Object[]{}, new Class[]{}, String.class);
+
+        InvocationTimedOutException exception = assertThrowsExactly(InvocationTimedOutException.class, () -> {
+            outgoingInvocationTracker.invokeRemoteMethod(invocationDescriptor);
+        });
+        assertEquals(200, exception.getTimeoutMillis());
+    }
+
+    @Test
+    void testCompleteCancelsTimeout() {
+        io.netty.util.Timer timer = mock(io.netty.util.Timer.class);
+        io.netty.util.Timeout timeout = mock(io.netty.util.Timeout.class);
+        when(timer.newTimeout(any(), eq(1000L), eq(TimeUnit.MILLISECONDS))).thenReturn(timeout);
+
+        InvocationDescriptor invocationDescriptor = new InvocationDescriptor("namespace", getClass(), "methodName", new Object[]{}, new Class[]{}, String.class);
+        PendingInvocation<String> pendingInvocation = new PendingInvocation<>(1000, timer, invocationDescriptor, null);
+        pendingInvocation.start();
+
+        pendingInvocation.complete("done");
+
+        verify(timeout).cancel();
+        assertEquals("done", pendingInvocation.waitForResponse());
+    }
+
+    @Test
+    void testImmediateTimeoutLeavesNothingBehind() throws Exception {
+        // expires every timeout the moment it's scheduled
+        io.netty.util.Timer timer = mock(io.netty.util.Timer.class);
+        when(timer.newTimeout(any(), anyLong(), any())).thenAnswer(invocation -> {
+            io.netty.util.Timeout timeout = mock(io.netty.util.Timeout.class);
+            ((io.netty.util.TimerTask) invocation.getArgument(0)).run(timeout);
+            return timeout;
+        });
+        OutgoingInvocationTracker outgoingInvocationTracker = new OutgoingInvocationTracker(new LoopbackTransport(), new GsonSerializer(), new RpcOptions(), timer);
+
+        InvocationDescriptor invocationDescriptor = new InvocationDescriptor("namespace", getClass(), "methodName", new Object[]{}, new Class[]{}, String.class);
+        CompletableFuture<String> future = outgoingInvocationTracker.invokeRemoteMethodAsync(invocationDescriptor);
+
+        assertInstanceOf(InvocationTimedOutException.class, assertThrows(ExecutionException.class, future::get).getCause());
+        // the timeout took the invocation out of the map after it was put in, not before
+        assertFalse(outgoingInvocationTracker.completeInvocation(new InvocationResponse(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), "late")));
+    }
+
+    @Test
+    void testFailedSendReleasesInvocation() throws Exception {
+        RpcTransport brokenTransport = new RpcTransport() {
+            @Override
+            public void send(Direction direction, byte[] bytes) {
+                throw new IllegalStateException("transport is down");
+            }
+
+            @Override
+            public void subscribe(Direction target, SubscriptionHandler onReceive) {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        // a single permit, which every failed send has to hand back for the next invocation to get through
+        RpcOptions options = new RpcOptions();
+        options.setMaxInFlightInvocations(1);
+        OutgoingInvocationTracker outgoingInvocationTracker = new OutgoingInvocationTracker(brokenTransport, new GsonSerializer(), options, new HashedWheelTimer());
+
+        for (int i = 0; i < 2; i++) {
+            InvocationDescriptor invocationDescriptor = new InvocationDescriptor("namespace", getClass(), "methodName", new Object[]{}, new Class[]{}, String.class);
+            CompletableFuture<String> future = outgoingInvocationTracker.invokeRemoteMethodAsync(invocationDescriptor);
+            assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, future::get).getCause());
+            assertFalse(outgoingInvocationTracker.completeInvocation(new InvocationResponse(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), "late")));
+        }
+
+        InvocationDescriptor blocking = new InvocationDescriptor("namespace", getClass(), "methodName", new Object[]{}, new Class[]{}, String.class);
+        assertThrowsExactly(IllegalStateException.class, () -> outgoingInvocationTracker.invokeRemoteMethod(blocking));
+
+        InvocationDescriptor gather = new InvocationDescriptor("namespace", getClass(), "methodName", new Object[]{}, new Class[]{}, String.class);
+        CompletableFuture<List<String>> gathered = outgoingInvocationTracker.invokeGather(gather, 60_000, 0);
+        assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, gathered::get).getCause());
+
+        InvocationDescriptor streaming = new InvocationDescriptor("namespace", getClass(), "methodName", new Object[]{}, new Class[]{}, Stream.class);
+        assertThrowsExactly(IllegalStateException.class, () -> outgoingInvocationTracker.invokeStreaming(streaming, 60_000));
+
+        // every permit made it back
+        InvocationDescriptor last = new InvocationDescriptor("namespace", getClass(), "methodName", new Object[]{}, new Class[]{}, String.class);
+        assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, outgoingInvocationTracker.invokeRemoteMethodAsync(last)::get).getCause());
+    }
+
+    @Test
+    void testResponseFromOtherOriginIgnored() {
+        OutgoingInvocationTracker outgoingInvocationTracker = new OutgoingInvocationTracker(new LoopbackTransport(), new GsonSerializer(), new RpcOptions(), new HashedWheelTimer());
+
+        InvocationDescriptor invocationDescriptor = new InvocationDescriptor("namespace", getClass(), "methodName", new Object[]{}, new Class[]{}, String.class);
+        outgoingInvocationTracker.invokeRemoteMethodAsync(invocationDescriptor);
+
+        assertEquals(outgoingInvocationTracker.getOriginId(), invocationDescriptor.getOriginId());
+
+        // same invocation id, but sent by another tracker
+        assertFalse(outgoingInvocationTracker.completeInvocation(new InvocationResponse(invocationDescriptor.getOriginId() + 1, invocationDescriptor.getInvocationId(), "other")));
+        assertTrue(outgoingInvocationTracker.completeInvocation(new InvocationResponse(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), "ours")));
+
+        // already completed
+        assertFalse(outgoingInvocationTracker.completeInvocation(new InvocationResponse(invocationDescriptor.getOriginId(), invocationDescriptor.getInvocationId(), "again")));
+    }
+
 }
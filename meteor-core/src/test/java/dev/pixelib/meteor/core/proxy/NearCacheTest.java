@@ -0,0 +1,87 @@
+package dev.pixelib.meteor.core.proxy;
+
+import dev.pixelib.meteor.base.RpcOptions;
+import dev.pixelib.meteor.base.annotations.Cacheable;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NearCacheTest {
+
+    private final List<String> published = new ArrayList<>();
+    private final NearCache nearCache = new NearCache((procedureName, namespace, methodNames) -> published.add(procedureName + "/" + namespace));
+
+    @Test
+    void evictsLeastRecentlyUsed() throws Exception {
+        NearCache.MethodCache cache = cacheFor("small", "namespace");
+
+        CallKey first = key("small", 1);
+        CallKey second = key("small", 2);
+        CallKey third = key("small", 3);
+        cache.put(first, "first", cache.getGeneration());
+        cache.put(second, "second", cache.getGeneration());
+
+        // touch the first one, so the second one is the least recently used
+        assertEquals("first", cache.get(first));
+        cache.put(third, "third", cache.getGeneration());
+
+        assertEquals("first", cache.get(first));
+        assertSame(NearCache.MISS, cache.get(second));
+        assertEquals("third", cache.get(third));
+    }
+
+    @Test
+    void expiresEntries() throws Exception {
+        NearCache.MethodCache cache = cacheFor("shortLived", "namespace");
+        CallKey key = key("shortLived", 1);
+
+        cache.put(key, null, cache.getGeneration());
+        assertNull(cache.get(key));
+
+        Thread.sleep(20);
+        assertSame(NearCache.MISS, cache.get(key));
+    }
+
+    @Test
+    void invalidationSkipsResultsFromBefore() throws Exception {
+        NearCache.MethodCache cache = cacheFor("small", "namespace");
+        NearCache.MethodCache otherNamespace = cacheFor("small", "other");
+        CallKey key = key("small", 1);
+
+        long generation = cache.getGeneration();
+        otherNamespace.put(key, "other", otherNamespace.getGeneration());
+        nearCache.publishInvalidation(Procedure.class, "namespace", new String[0]);
+
+        // the result was requested before the invalidation, so it may already be stale
+        cache.put(key, "stale", generation);
+        assertSame(NearCache.MISS, cache.get(key));
+        assertEquals("other", otherNamespace.get(key));
+        assertEquals(List.of(Procedure.class.getName() + "/namespace"), published);
+    }
+
+    @Test
+    void callKeysCompareArgumentsDeeply() throws Exception {
+        assertEquals(key("small", new int[]{1, 2}), key("small", new int[]{1, 2}));
+        assertNotEquals(key("small", new int[]{1, 2}), key("small", new int[]{2, 1}));
+        assertNotEquals(new CallKey("a", Procedure.class.getMethod("small", Object.class), new Object[]{1}), key("small", 1));
+    }
+
+    private NearCache.MethodCache cacheFor(String methodName, String namespace) throws NoSuchMethodException {
+        return nearCache.cacheFor(Procedure.class, namespace, new ProcedureMethod(Procedure.class.getMethod(methodName, Object.class), new RpcOptions()));
+    }
+
+    private CallKey key(String methodName, Object argument) throws NoSuchMethodException {
+        return new CallKey("namespace", Procedure.class.getMethod(methodName, Object.class), new Object[]{argument});
+    }
+
+    public interface Procedure {
+        @Cacheable(ttl = 60_000, maxEntries = 2)
+        String small(Object argument);
+
+        @Cacheable(ttl = 10)
+        String shortLived(Object argument);
+    }
+}
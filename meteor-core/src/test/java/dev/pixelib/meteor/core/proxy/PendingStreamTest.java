@@ -0,0 +1,66 @@
+package dev.pixelib.meteor.core.proxy;
+
+import dev.pixelib.meteor.base.errors.MethodInvocationException;
+import dev.pixelib.meteor.core.transport.packets.InvocationDescriptor;
+import dev.pixelib.meteor.core.transport.packets.StreamCredit;
+import io.netty.util.HashedWheelTimer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PendingStreamTest {
+
+    private final HashedWheelTimer timer = new HashedWheelTimer();
+    private final InvocationDescriptor descriptor = new InvocationDescriptor(1, 2, "scores", Object.class, "top", new Object[0], new Class[0], Stream.class, false, 0);
+
+    @AfterEach
+    void stopTimer() {
+        timer.stop();
+    }
+
+    @Test
+    @Timeout(5)
+    void interruptedWaitClosesStream() throws Exception {
+        List<StreamCredit> credits = new CopyOnWriteArrayList<>();
+        AtomicBoolean closed = new AtomicBoolean();
+        PendingStream<Integer> pendingStream = new PendingStream<>(60_000, 8, timer, descriptor, credits::add, () -> closed.set(true));
+        pendingStream.start();
+
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        AtomicBoolean stillInterrupted = new AtomicBoolean();
+        Thread consumer = new Thread(() -> {
+            try {
+                pendingStream.hasNext();
+            } catch (RuntimeException e) {
+                stillInterrupted.set(Thread.currentThread().isInterrupted());
+                failure.complete(e);
+            }
+        });
+        consumer.start();
+
+        // nothing ever arrives, so only the interrupt gets the consumer out
+        while (consumer.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        consumer.interrupt();
+
+        MethodInvocationException exception = assertInstanceOf(MethodInvocationException.class, failure.get());
+        assertInstanceOf(InterruptedException.class, exception.getCause());
+        assertTrue(stillInterrupted.get(), "Interrupt flag wasn't restored");
+        assertTrue(closed.get(), "Stream wasn't closed");
+        assertTrue(credits.get(credits.size() - 1).isCancel(), "Implementation wasn't told to stop");
+        assertFalse(pendingStream.hasNext());
+        assertEquals(2, credits.size());
+    }
+}
@@ -1,9 +1,13 @@
 package dev.pixelib.meteor.core.trackers;
 
 import dev.pixelib.meteor.core.executor.ImplementationWrapper;
+import dev.pixelib.meteor.core.utils.GenericSignature;
 import dev.pixelib.meteor.core.utils.MathFunctions;
+import dev.pixelib.meteor.core.utils.MethodFingerprint;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.Method;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class IncomingInvocationTrackerTest {
@@ -40,6 +44,72 @@ class IncomingInvocationTrackerTest {
         assertThrowsExactly(IllegalArgumentException.class, () -> incomingInvocationTracker.registerImplementation(new Object(), "test"), "Implementation implemented an interface/procedure");
     }
 
+    @Test
+    void testFindImplementation_matchesNamespace() {
+        IncomingInvocationTracker incomingInvocationTracker = new IncomingInvocationTracker();
+        TestMathFunctions named = new TestMathFunctions();
+        TestMathFunctions unnamed = new TestMathFunctions();
+
+        incomingInvocationTracker.registerImplementation(named, "test");
+        incomingInvocationTracker.registerImplementation(unnamed, null);
+
+        assertSame(named, incomingInvocationTracker.findImplementation(MathFunctions.class, "test").getImplementation());
+        assertSame(unnamed, incomingInvocationTracker.findImplementation(MathFunctions.class, null).getImplementation());
+        assertNull(incomingInvocationTracker.findImplementation(MathFunctions.class, "other"));
+        assertNull(incomingInvocationTracker.findImplementation(Runnable.class, "test"));
+    }
+
+    @Test
+    void testRegisterImplementationTwice_thenFail() {
+        IncomingInvocationTracker incomingInvocationTracker = new IncomingInvocationTracker();
+        TestMathFunctions original = new TestMathFunctions();
+
+        incomingInvocationTracker.registerImplementation(original, "test");
+
+        assertThrowsExactly(IllegalArgumentException.class, () -> incomingInvocationTracker.registerImplementation(new TestMathFunctions(), "test"));
+        assertSame(original, incomingInvocationTracker.findImplementation(MathFunctions.class, "test").getImplementation());
+    }
+
+    @Test
+    void testUnregisterImplementation_thenRemoved() {
+        IncomingInvocationTracker incomingInvocationTracker = new IncomingInvocationTracker();
+        TestMathFunctions named = new TestMathFunctions();
+        TestMathFunctions unnamed = new TestMathFunctions();
+
+        incomingInvocationTracker.registerImplementation(named, "test");
+        incomingInvocationTracker.registerImplementation(unnamed, null);
+
+        // not registered under this namespace
+        assertFalse(incomingInvocationTracker.unregisterImplementation(named, "other"));
+        assertFalse(incomingInvocationTracker.unregisterImplementation(unnamed, "test"));
+
+        assertTrue(incomingInvocationTracker.unregisterImplementation(named, "test"));
+        assertNull(incomingInvocationTracker.findImplementation(MathFunctions.class, "test"));
+        assertSame(unnamed, incomingInvocationTracker.findImplementation(MathFunctions.class, null).getImplementation());
+
+        assertTrue(incomingInvocationTracker.unregisterImplementation(unnamed, null));
+        assertTrue(incomingInvocationTracker.getImplementations().isEmpty());
+
+        // the slot can be taken again
+        incomingInvocationTracker.registerImplementation(named, "test");
+        assertSame(named, incomingInvocationTracker.findImplementation(MathFunctions.class, "test").getImplementation());
+    }
+
+    @Test
+    void testSignatureOf_resolvedOncePerTracker() throws Exception {
+        IncomingInvocationTracker incomingInvocationTracker = new IncomingInvocationTracker();
+        incomingInvocationTracker.registerImplementation(new TestMathFunctions(), "test");
+
+        Method multiply = incomingInvocationTracker.resolveMethod(MethodFingerprint.of(MathFunctions.class.getMethod("multiply", int.class, int.class)));
+        GenericSignature signature = incomingInvocationTracker.signatureOf(multiply);
+        assertSame(signature, incomingInvocationTracker.signatureOf(multiply));
+        assertEquals(int.class, signature.getParameterType(1));
+        assertEquals(int.class, signature.getReturnType());
+
+        // nothing is shared between trackers
+        assertNotSame(signature, new IncomingInvocationTracker().signatureOf(multiply));
+    }
+
     public static class TestMathFunctions implements MathFunctions {
 
         @Override
@@ -0,0 +1,210 @@
+package dev.pixelib.meteor.core.transport;
+
+import dev.pixelib.meteor.base.RpcTransport;
+import dev.pixelib.meteor.base.defaults.DeflateCodec;
+import dev.pixelib.meteor.base.enums.Direction;
+import dev.pixelib.meteor.base.interfaces.SubscriptionHandler;
+import dev.pixelib.meteor.core.transport.packets.FrameType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameBatcherTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final CapturingTransport transport = new CapturingTransport();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void unbatched_sendsSingleFrames() {
+        FrameBatcher frameBatcher = new FrameBatcher(transport, Direction.IMPLEMENTATION);
+
+        frameBatcher.send(buffer -> buffer.writeInt(1));
+        frameBatcher.send(buffer -> buffer.writeInt(2));
+
+        assertEquals(2, transport.frames.size());
+        ByteBuf frame = Unpooled.wrappedBuffer(transport.frames.poll());
+        assertEquals(FrameType.SINGLE, FrameType.of(frame.readByte()));
+        assertEquals(1, frame.readInt());
+        assertEquals(0, frame.readableBytes());
+    }
+
+    @Test
+    void batched_flushesAfterLinger() throws InterruptedException {
+        FrameBatcher frameBatcher = new FrameBatcher(transport, Direction.IMPLEMENTATION, 1024, 20_000, scheduler);
+
+        frameBatcher.send(buffer -> buffer.writeInt(1));
+        frameBatcher.send(buffer -> buffer.writeLong(2));
+        assertTrue(transport.frames.isEmpty());
+
+        byte[] frame = transport.frames.poll(1, TimeUnit.SECONDS);
+        assertNotNull(frame, "Batch was never flushed");
+        assertEquals(List.of(4, 8), packetLengths(frame));
+    }
+
+    @Test
+    void batched_flushesWhenFull() {
+        FrameBatcher frameBatcher = new FrameBatcher(transport, Direction.IMPLEMENTATION, 32, TimeUnit.SECONDS.toMicros(10), scheduler);
+
+        for (int i = 0; i < 5; i++) {
+            frameBatcher.send(buffer -> buffer.writeLong(1));
+        }
+
+        // header of 5 bytes, and 12 bytes per packet
+        assertEquals(1, transport.frames.size());
+        assertEquals(List.of(8, 8, 8), packetLengths(transport.frames.poll()));
+
+        frameBatcher.flush();
+        assertEquals(List.of(8, 8), packetLengths(transport.frames.poll()));
+    }
+
+    @Test
+    void batched_failedPacketIsLeftOut() {
+        FrameBatcher frameBatcher = new FrameBatcher(transport, Direction.IMPLEMENTATION, 1024, TimeUnit.SECONDS.toMicros(10), scheduler);
+
+        frameBatcher.send(buffer -> buffer.writeInt(1));
+        assertThrowsExactly(IllegalStateException.class, () -> frameBatcher.send(buffer -> {
+            buffer.writeInt(2);
+            throw new IllegalStateException("serializer failed");
+        }));
+        frameBatcher.send(buffer -> buffer.writeShort(3));
+
+        frameBatcher.close();
+        assertEquals(List.of(4, 2), packetLengths(transport.frames.poll()));
+
+        // nothing left to send
+        frameBatcher.flush();
+        assertTrue(transport.frames.isEmpty());
+    }
+
+    @Test
+    void compressed_onlyLargeFrames() {
+        FrameCompressor compressor = new FrameCompressor(new DeflateCodec(), 64, 1024);
+        FrameBatcher frameBatcher = new FrameBatcher(transport, Direction.IMPLEMENTATION, 1024, 0, null, compressor);
+
+        byte[] large = "meteor".repeat(100).getBytes(StandardCharsets.UTF_8);
+        frameBatcher.send(buffer -> buffer.writeInt(1));
+        frameBatcher.send(buffer -> buffer.writeBytes(large));
+
+        ByteBuf small = Unpooled.wrappedBuffer(transport.frames.poll());
+        assertEquals(FrameType.SINGLE.getId(), small.readByte());
+        assertEquals(1, small.readInt());
+
+        byte[] compressedBytes = transport.frames.poll();
+        assertTrue(compressedBytes.length < large.length, "Frame wasn't compressed");
+
+        ByteBuf compressed = Unpooled.wrappedBuffer(compressedBytes);
+        byte header = compressed.readByte();
+        assertEquals(FrameType.COMPRESSED_FLAG | FrameType.SINGLE.getId(), header);
+        assertArrayEquals(large, ByteBufUtil.getBytes(compressor.decompress(compressed)));
+    }
+
+    @Test
+    void compressed_incompressibleFrameIsLeftAlone() {
+        FrameBatcher frameBatcher = new FrameBatcher(transport, Direction.IMPLEMENTATION, 1024, 0, null, new FrameCompressor(new DeflateCodec(), 16, 1024));
+
+        byte[] random = new byte[256];
+        new Random(42).nextBytes(random);
+        frameBatcher.send(buffer -> buffer.writeBytes(random));
+
+        ByteBuf frame = Unpooled.wrappedBuffer(transport.frames.poll());
+        assertEquals(FrameType.SINGLE.getId(), frame.readByte());
+        assertEquals(random.length, frame.readableBytes());
+    }
+
+    @Test
+    void compressed_unknownCodec() {
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeByte(42);
+        frame.writeInt(10);
+        frame.writeBytes(new byte[10]);
+
+        FrameCompressor compressor = new FrameCompressor(new DeflateCodec(), 0, 1024);
+        assertThrowsExactly(IllegalArgumentException.class, () -> compressor.decompress(frame));
+    }
+
+    @Test
+    void compressed_oversizedFrame() {
+        FrameCompressor compressor = new FrameCompressor(new DeflateCodec(), 0, 1024);
+
+        ByteBuf oversized = Unpooled.buffer();
+        oversized.writeByte(DeflateCodec.ID);
+        oversized.writeInt(Integer.MAX_VALUE);
+        oversized.writeBytes(new byte[10]);
+        assertThrowsExactly(IllegalArgumentException.class, () -> compressor.decompress(oversized));
+
+        ByteBuf negative = Unpooled.buffer();
+        negative.writeByte(DeflateCodec.ID);
+        negative.writeInt(-1);
+        negative.writeBytes(new byte[10]);
+        assertThrowsExactly(IllegalArgumentException.class, () -> compressor.decompress(negative));
+    }
+
+    @Test
+    void invalidOptions() {
+        assertThrowsExactly(IllegalArgumentException.class, () -> new FrameBatcher(transport, Direction.IMPLEMENTATION, 0, 0, null));
+        assertThrowsExactly(IllegalArgumentException.class, () -> new FrameBatcher(transport, Direction.IMPLEMENTATION, 1024, -1, scheduler));
+        assertThrowsExactly(IllegalArgumentException.class, () -> new FrameBatcher(transport, Direction.IMPLEMENTATION, 1024, 100, null));
+        assertThrowsExactly(IllegalArgumentException.class, () -> new FrameCompressor(new DeflateCodec(), -1, 1024));
+        assertThrowsExactly(IllegalArgumentException.class, () -> new FrameCompressor(new DeflateCodec(), 0, 0));
+        assertThrowsExactly(IllegalArgumentException.class, () -> new DeflateCodec(42));
+    }
+
+    private static List<Integer> packetLengths(byte[] bytes) {
+        ByteBuf frame = Unpooled.wrappedBuffer(bytes);
+        assertEquals(FrameType.BATCH, FrameType.of(frame.readByte()));
+
+        List<Integer> lengths = new ArrayList<>();
+        int count = frame.readInt();
+        for (int i = 0; i < count; i++) {
+            int length = frame.readInt();
+            frame.skipBytes(length);
+            lengths.add(length);
+        }
+        assertEquals(0, frame.readableBytes());
+        return lengths;
+    }
+
+    private static class CapturingTransport implements RpcTransport {
+        private final LinkedBlockingQueue<byte[]> frames = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(Direction direction, byte[] bytes) {
+            frames.add(bytes);
+        }
+
+        @Override
+        public void send(Direction direction, ByteBuffer buffer) {
+            // the buffer is only ours during the call, so keep a copy
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            frames.add(bytes);
+        }
+
+        @Override
+        public void subscribe(Direction target, SubscriptionHandler onReceive) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package dev.pixelib.meteor.core.transport;
+
+import dev.pixelib.meteor.core.executor.RejectableTask;
+import dev.pixelib.meteor.core.transport.packets.InvocationDescriptor;
+import dev.pixelib.meteor.core.transport.packets.InvocationResponse;
+import io.netty.util.HashedWheelTimer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamedResultTest {
+
+    private final HashedWheelTimer timer = new HashedWheelTimer();
+    private final InvocationDescriptor descriptor = new InvocationDescriptor(1, 2, "scores", Object.class, "top", new Object[0], new Class[0], Stream.class, false, 0);
+    private final List<InvocationResponse> responses = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void stopTimer() {
+        timer.stop();
+    }
+
+    @Test
+    void droppedDrainEndsStream() {
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicBoolean callbackCalled = new AtomicBoolean();
+
+        // drops every task from its queue, like a full executor with the drop oldest policy would
+        StreamedResult streamedResult = new StreamedResult(descriptor, 3, task -> ((RejectableTask) task).reject(), responses::add, () -> callbackCalled.set(true), timer, 60_000);
+        streamedResult.addCredits(10);
+        streamedResult.start(Stream.of(1, 2, 3).onClose(() -> closed.set(true)));
+
+        assertEquals(1, responses.size());
+        assertTrue(responses.get(0).isStreamEnd());
+        assertEquals("The implementation is overloaded", responses.get(0).getFailure());
+        assertTrue(closed.get(), "Stream wasn't closed");
+        assertTrue(callbackCalled.get());
+    }
+}
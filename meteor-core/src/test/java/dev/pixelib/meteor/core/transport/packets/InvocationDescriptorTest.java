@@ -2,9 +2,21 @@ package dev.pixelib.meteor.core.transport.packets;
 
 import dev.pixelib.meteor.base.RpcSerializer;
 import dev.pixelib.meteor.base.defaults.GsonSerializer;
+import dev.pixelib.meteor.core.utils.ClassResolver;
+import dev.pixelib.meteor.core.utils.MathFunctions;
+import dev.pixelib.meteor.core.utils.MethodFingerprint;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.Method;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class InvocationDescriptorTest {
 
@@ -22,6 +34,8 @@ class InvocationDescriptorTest {
         }
 
         assertEquals(a.getReturnType(), b.getReturnType());
+        assertEquals(a.getOriginId(), b.getOriginId());
+        assertEquals(a.getInvocationId(), b.getInvocationId());
     }
 
     @Test
@@ -37,12 +51,42 @@ class InvocationDescriptorTest {
                 int.class
         );
 
+        original.assignId(42, 7);
         byte[] serialized = original.toBuffer(defaultSerializer);
 
         InvocationDescriptor deserialized = InvocationDescriptor.fromBuffer(defaultSerializer, serialized);
         compareInstances(original, deserialized);
     }
 
+    @Test
+    void testInlineArguments() throws ClassNotFoundException {
+        // inline values never reach the serializer
+        RpcSerializer failingSerializer = new RpcSerializer() {
+            @Override
+            public byte[] serialize(Object obj) {
+                throw new AssertionError("Serialized " + obj);
+            }
+
+            @Override
+            public <T> T deserialize(byte[] bytes, Class<T> clazz) {
+                throw new AssertionError("Deserialized " + clazz);
+            }
+
+            @Override
+            public <T> T deserialize(String str, Class<T> clazz) {
+                throw new AssertionError("Deserialized " + clazz);
+            }
+        };
+
+        Object[] args = {42, -7L, 0.5, true, false, "☄ meteor", UUID.randomUUID(), null};
+        Class<?>[] argTypes = {int.class, long.class, double.class, boolean.class, Boolean.class, String.class, UUID.class, Object.class};
+        InvocationDescriptor original = new InvocationDescriptor("namespace", InvocationDescriptorTest.class, "methodName", args, argTypes, void.class);
+
+        InvocationDescriptor deserialized = InvocationDescriptor.fromBuffer(failingSerializer, original.toBuffer(failingSerializer));
+        compareInstances(original, deserialized);
+        assertEquals(Long.class, deserialized.getArgs()[1].getClass());
+    }
+
     @Test
     void testSerializationWithoutNamespace() throws ClassNotFoundException {
         RpcSerializer defaultSerializer = new GsonSerializer();
@@ -62,4 +106,94 @@ class InvocationDescriptorTest {
         compareInstances(original, deserialized);
     }
 
-}
\ No newline at end of file
+    @Test
+    void testSerializationWithFingerprint() throws ClassNotFoundException, NoSuchMethodException {
+        RpcSerializer defaultSerializer = new GsonSerializer();
+        Method method = MathFunctions.class.getMethod("multiply", int.class, int.class);
+        long fingerprint = MethodFingerprint.of(method);
+
+        InvocationDescriptor original = new InvocationDescriptor(
+                "namespace",
+                MathFunctions.class,
+                "multiply",
+                new Object[]{2, 3},
+                method.getParameterTypes(),
+                int.class,
+                false,
+                fingerprint
+        );
+
+        byte[] serialized = original.toBuffer(defaultSerializer);
+
+        InvocationDescriptor deserialized = InvocationDescriptor.fromBuffer(defaultSerializer, ClassResolver.getDefault(), value -> value == fingerprint ? method : null, serialized);
+        compareInstances(original, deserialized);
+        assertEquals(MathFunctions.class, deserialized.getDeclaringClass());
+        assertEquals("multiply", deserialized.getMethodName());
+        assertEquals(fingerprint, deserialized.getFingerprint());
+
+        // the signature is left out entirely, so the fingerprinted form is smaller than the self-describing one
+        InvocationDescriptor verbose = new InvocationDescriptor("namespace", MathFunctions.class, "multiply", new Object[]{2, 3}, method.getParameterTypes(), int.class);
+        assertTrue(serialized.length < verbose.toBuffer(defaultSerializer).length);
+    }
+
+    @Test
+    void testSerializationWithUnknownFingerprint() throws ClassNotFoundException, NoSuchMethodException {
+        RpcSerializer defaultSerializer = new GsonSerializer();
+        Method method = MathFunctions.class.getMethod("multiply", int.class, int.class);
+
+        InvocationDescriptor original = new InvocationDescriptor(
+                null,
+                MathFunctions.class,
+                "multiply",
+                new Object[]{2, 3},
+                method.getParameterTypes(),
+                int.class,
+                false,
+                MethodFingerprint.of(method)
+        );
+
+        assertNull(InvocationDescriptor.fromBuffer(defaultSerializer, ClassResolver.getDefault(), value -> null, original.toBuffer(defaultSerializer)));
+    }
+
+    @Test
+    void testSerializationWithNonAsciiStrings() throws ClassNotFoundException {
+        RpcSerializer defaultSerializer = new GsonSerializer();
+
+        InvocationDescriptor original = new InvocationDescriptor(
+                "spieler-\u00fcbersicht-\uD83C\uDFAE",
+                InvocationDescriptorTest.class,
+                "m\u00e9thode",
+                new Object[]{"\u00e9t\u00e9"},
+                new Class<?>[]{String.class},
+                void.class
+        );
+
+        byte[] serialized = original.toBuffer(defaultSerializer);
+
+        InvocationDescriptor deserialized = InvocationDescriptor.fromBuffer(defaultSerializer, serialized);
+        compareInstances(original, deserialized);
+        assertEquals(original.getMethodName(), deserialized.getMethodName());
+    }
+
+    @Test
+    void testPooledEncoding() throws ClassNotFoundException {
+        RpcSerializer defaultSerializer = new GsonSerializer();
+
+        InvocationDescriptor original = new InvocationDescriptor("namespace", InvocationDescriptorTest.class, "methodName", new Object[]{1, "two"}, new Class<?>[]{int.class, String.class}, int.class);
+        original.assignId(1, 2);
+
+        ByteBuf buffer = original.encode(defaultSerializer, PooledByteBufAllocator.DEFAULT);
+        try {
+            // the pooled encoding is the same as the array based one
+            assertArrayEquals(original.toBuffer(defaultSerializer), ByteBufUtil.getBytes(buffer));
+
+            InvocationDescriptor deserialized = InvocationDescriptor.decode(defaultSerializer, ClassResolver.getDefault(), value -> null, buffer);
+            compareInstances(original, deserialized);
+            assertEquals(0, buffer.readableBytes());
+        } finally {
+            buffer.release();
+        }
+        assertEquals(0, buffer.refCnt());
+    }
+
+}
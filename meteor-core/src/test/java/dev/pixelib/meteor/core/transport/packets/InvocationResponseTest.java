@@ -5,9 +5,13 @@ import dev.pixelib.meteor.base.defaults.GsonSerializer;
 import org.junit.jupiter.api.Test;
 
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class InvocationResponseTest {
 
@@ -15,36 +19,119 @@ class InvocationResponseTest {
 
     @Test
     void testInvocationResponsePrimitive() throws ClassNotFoundException {
-        InvocationResponse invocationResponse = new InvocationResponse(UUID.randomUUID(), 1);
+        InvocationResponse invocationResponse = new InvocationResponse(ThreadLocalRandom.current().nextLong(), ThreadLocalRandom.current().nextLong(), 1);
         byte[] bytes = invocationResponse.toBytes(serializer);
         InvocationResponse invocationResponse1 = InvocationResponse.fromBytes(serializer, bytes);
+        assertEquals(invocationResponse.getOriginId(), invocationResponse1.getOriginId());
         assertEquals(invocationResponse.getInvocationId(), invocationResponse1.getInvocationId());
         assertEquals(invocationResponse.getResult(), invocationResponse1.getResult());
     }
 
     @Test
     void testInvocationResponseObject() throws ClassNotFoundException {
-        InvocationResponse invocationResponse = new InvocationResponse(UUID.randomUUID(), "test");
+        InvocationResponse invocationResponse = new InvocationResponse(ThreadLocalRandom.current().nextLong(), ThreadLocalRandom.current().nextLong(), "test");
         byte[] bytes = invocationResponse.toBytes(serializer);
         InvocationResponse invocationResponse1 = InvocationResponse.fromBytes(serializer, bytes);
+        assertEquals(invocationResponse.getOriginId(), invocationResponse1.getOriginId());
         assertEquals(invocationResponse.getInvocationId(), invocationResponse1.getInvocationId());
         assertEquals(invocationResponse.getResult(), invocationResponse1.getResult());
     }
 
+    @Test
+    void testInvocationResponseInline() throws ClassNotFoundException {
+        // inline results never reach the serializer
+        RpcSerializer failingSerializer = new RpcSerializer() {
+            @Override
+            public byte[] serialize(Object obj) {
+                throw new AssertionError("Serialized " + obj);
+            }
+
+            @Override
+            public <T> T deserialize(byte[] bytes, Class<T> clazz) {
+                throw new AssertionError("Deserialized " + clazz);
+            }
+
+            @Override
+            public <T> T deserialize(String str, Class<T> clazz) {
+                throw new AssertionError("Deserialized " + clazz);
+            }
+        };
+
+        for (Object result : new Object[]{42, Long.MAX_VALUE, -0.25, true, false, "", "meteor", UUID.randomUUID()}) {
+            InvocationResponse invocationResponse = new InvocationResponse(1, 2, result);
+            InvocationResponse decoded = InvocationResponse.fromBytes(failingSerializer, invocationResponse.toBytes(failingSerializer));
+            assertEquals(result, decoded.getResult());
+            assertEquals(2, decoded.getInvocationId());
+        }
+    }
+
+    @Test
+    void testInvocationResponseRejected() throws ClassNotFoundException {
+        InvocationResponse invocationResponse = InvocationResponse.rejected(ThreadLocalRandom.current().nextLong(), ThreadLocalRandom.current().nextLong());
+        byte[] bytes = invocationResponse.toBytes(serializer);
+        InvocationResponse invocationResponse1 = InvocationResponse.fromBytes(serializer, bytes);
+        assertEquals(invocationResponse.getOriginId(), invocationResponse1.getOriginId());
+        assertEquals(invocationResponse.getInvocationId(), invocationResponse1.getInvocationId());
+        assertTrue(invocationResponse1.isRejected());
+        assertNull(invocationResponse1.getResult());
+    }
+
+    @Test
+    void testInvocationResponseStreamChunk() throws ClassNotFoundException {
+        Object[] elements = {1, null, "meteor", new int[]{1, 2, 3}};
+        InvocationResponse invocationResponse = InvocationResponse.streamChunk(ThreadLocalRandom.current().nextLong(), ThreadLocalRandom.current().nextLong(), 42, elements);
+        byte[] bytes = invocationResponse.toBytes(serializer);
+        InvocationResponse invocationResponse1 = InvocationResponse.fromBytes(serializer, bytes);
+        assertEquals(invocationResponse.getInvocationId(), invocationResponse1.getInvocationId());
+        assertEquals(42, invocationResponse1.getResponderId());
+        assertEquals(4, invocationResponse1.getChunk().length);
+        assertEquals(1, invocationResponse1.getChunk()[0]);
+        assertNull(invocationResponse1.getChunk()[1]);
+        assertEquals("meteor", invocationResponse1.getChunk()[2]);
+        assertArrayEquals(new int[]{1, 2, 3}, (int[]) invocationResponse1.getChunk()[3]);
+        assertFalse(invocationResponse1.isStreamEnd());
+    }
+
+    @Test
+    void testInvocationResponseStreamEnd() throws ClassNotFoundException {
+        InvocationResponse ended = InvocationResponse.fromBytes(serializer, InvocationResponse.streamEnd(1, 2, 3, null).toBytes(serializer));
+        assertTrue(ended.isStreamEnd());
+        assertEquals(3, ended.getResponderId());
+        assertNull(ended.getFailure());
+        assertNull(ended.getChunk());
+
+        InvocationResponse failed = InvocationResponse.fromBytes(serializer, InvocationResponse.streamEnd(1, 2, 3, "The leaderboard is being rebuilt").toBytes(serializer));
+        assertTrue(failed.isStreamEnd());
+        assertEquals("The leaderboard is being rebuilt", failed.getFailure());
+    }
+
+    @Test
+    void testInvocationResponseFailed() throws ClassNotFoundException {
+        InvocationResponse failed = InvocationResponse.fromBytes(serializer, InvocationResponse.failed(1, 2, "The counter is read-only").toBytes(serializer));
+        assertEquals(1, failed.getOriginId());
+        assertEquals(2, failed.getInvocationId());
+        assertEquals("The counter is read-only", failed.getFailure());
+        assertFalse(failed.isStreamEnd());
+        assertFalse(failed.isRejected());
+        assertNull(failed.getResult());
+    }
+
     @Test
     void testInvocationResponseNull() throws ClassNotFoundException {
-        InvocationResponse invocationResponse = new InvocationResponse(UUID.randomUUID(), null);
+        InvocationResponse invocationResponse = new InvocationResponse(ThreadLocalRandom.current().nextLong(), ThreadLocalRandom.current().nextLong(), null);
         byte[] bytes = invocationResponse.toBytes(serializer);
         InvocationResponse invocationResponse1 = InvocationResponse.fromBytes(serializer, bytes);
+        assertEquals(invocationResponse.getOriginId(), invocationResponse1.getOriginId());
         assertEquals(invocationResponse.getInvocationId(), invocationResponse1.getInvocationId());
         assertEquals(invocationResponse.getResult(), invocationResponse1.getResult());
     }
 
     @Test
     void testInvocationResponsePrimitiveArray() throws ClassNotFoundException {
-        InvocationResponse invocationResponse = new InvocationResponse(UUID.randomUUID(), new int[]{1, 2, 3});
+        InvocationResponse invocationResponse = new InvocationResponse(ThreadLocalRandom.current().nextLong(), ThreadLocalRandom.current().nextLong(), new int[]{1, 2, 3});
         byte[] bytes = invocationResponse.toBytes(serializer);
         InvocationResponse invocationResponse1 = InvocationResponse.fromBytes(serializer, bytes);
+        assertEquals(invocationResponse.getOriginId(), invocationResponse1.getOriginId());
         assertEquals(invocationResponse.getInvocationId(), invocationResponse1.getInvocationId());
         assertArrayEquals((int[]) invocationResponse.getResult(), (int[]) invocationResponse1.getResult());
     }
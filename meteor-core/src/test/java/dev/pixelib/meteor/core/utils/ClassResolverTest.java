@@ -0,0 +1,88 @@
+package dev.pixelib.meteor.core.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassResolverTest {
+
+    @Test
+    void resolve_success() throws ClassNotFoundException {
+        ClassResolver resolver = new ClassResolver(getClass().getClassLoader(), 16);
+
+        assertEquals(String.class, resolver.resolve("java.lang.String"));
+        assertEquals(MathFunctions.class, resolver.resolve(MathFunctions.class.getName()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"boolean", "byte", "short", "int", "long", "float", "double", "char", "void"})
+    void resolve_primitive(String name) throws ClassNotFoundException {
+        ClassResolver resolver = new ClassResolver(getClass().getClassLoader(), 16);
+
+        Class<?> result = resolver.resolve(name);
+        assertTrue(result.isPrimitive());
+        assertEquals(name, result.getName());
+    }
+
+    @Test
+    void resolve_usesConfiguredClassLoaderOnce() throws ClassNotFoundException {
+        CountingClassLoader classLoader = new CountingClassLoader(getClass().getClassLoader());
+        ClassResolver resolver = new ClassResolver(classLoader, 16);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(MathFunctions.class, resolver.resolve(MathFunctions.class.getName()));
+        }
+
+        assertEquals(1, classLoader.lookups.get());
+    }
+
+    @Test
+    void resolve_unknownClassIsCachedNegatively() {
+        CountingClassLoader classLoader = new CountingClassLoader(getClass().getClassLoader());
+        ClassResolver resolver = new ClassResolver(classLoader, 16);
+
+        for (int i = 0; i < 5; i++) {
+            assertThrowsExactly(ClassNotFoundException.class, () -> resolver.resolve("com.example.DoesNotExist"));
+        }
+
+        assertEquals(1, classLoader.lookups.get());
+    }
+
+    @Test
+    void resolve_clearsWhenFull() {
+        CountingClassLoader classLoader = new CountingClassLoader(getClass().getClassLoader());
+        ClassResolver resolver = new ClassResolver(classLoader, 2);
+
+        assertThrowsExactly(ClassNotFoundException.class, () -> resolver.resolve("com.example.First"));
+        assertThrowsExactly(ClassNotFoundException.class, () -> resolver.resolve("com.example.Second"));
+        assertThrowsExactly(ClassNotFoundException.class, () -> resolver.resolve("com.example.Third"));
+
+        // the cache was cleared to make room for the third class, so the first has to be looked up again
+        assertThrowsExactly(ClassNotFoundException.class, () -> resolver.resolve("com.example.First"));
+        assertEquals(4, classLoader.lookups.get());
+    }
+
+    @Test
+    void constructor_invalidSize() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        assertThrowsExactly(IllegalArgumentException.class, () -> new ClassResolver(classLoader, 0));
+    }
+
+    private static class CountingClassLoader extends ClassLoader {
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        CountingClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            lookups.incrementAndGet();
+            return super.loadClass(name, resolve);
+        }
+    }
+}
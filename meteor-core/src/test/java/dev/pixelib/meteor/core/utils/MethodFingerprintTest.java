@@ -0,0 +1,36 @@
+package dev.pixelib.meteor.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethodFingerprintTest {
+
+    @Test
+    void of_isStable() throws NoSuchMethodException {
+        Method method = MathFunctions.class.getMethod("multiply", int.class, int.class);
+
+        assertEquals(MethodFingerprint.of(method), MethodFingerprint.of(method));
+        assertNotEquals(MethodFingerprint.NONE, MethodFingerprint.of(method));
+    }
+
+    @Test
+    void of_differsBetweenOverloads() throws NoSuchMethodException {
+        Method add = MathFunctions.class.getMethod("add", int[].class);
+        Method substract = MathFunctions.class.getMethod("substract", int.class, int[].class);
+        Method multiply = MathFunctions.class.getMethod("multiply", int.class, int.class);
+
+        assertNotEquals(MethodFingerprint.of(add), MethodFingerprint.of(substract));
+        assertNotEquals(MethodFingerprint.of(add), MethodFingerprint.of(multiply));
+        assertNotEquals(MethodFingerprint.of(substract), MethodFingerprint.of(multiply));
+    }
+
+    @Test
+    void canonicalSignature_success() throws NoSuchMethodException {
+        Method method = MathFunctions.class.getMethod("substract", int.class, int[].class);
+
+        assertEquals("dev.pixelib.meteor.core.utils.MathFunctions#substract(int,[I)int", MethodFingerprint.canonicalSignature(method));
+    }
+}
@@ -0,0 +1,61 @@
+package dev.pixelib.meteor.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedLongMapTest {
+
+    @Test
+    void putGetRemove() {
+        StripedLongMap<String> map = new StripedLongMap<>(4);
+
+        assertNull(map.put(1, "one"));
+        assertNull(map.put(Long.MIN_VALUE, "min"));
+        assertEquals("one", map.put(1, "uno"));
+
+        assertEquals("uno", map.get(1));
+        assertEquals("min", map.get(Long.MIN_VALUE));
+        assertNull(map.get(2));
+        assertEquals(2, map.size());
+
+        assertEquals("uno", map.remove(1));
+        assertNull(map.remove(1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void concurrentUpdates() throws InterruptedException {
+        StripedLongMap<Long> map = new StripedLongMap<>(3);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < 4; t++) {
+            long offset = t * 10_000L;
+            threads.add(new Thread(() -> {
+                for (long key = offset; key < offset + 10_000; key++) {
+                    map.put(key, key);
+                }
+                for (long key = offset; key < offset + 10_000; key += 2) {
+                    assertEquals(key, map.remove(key));
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(20_000, map.size());
+        assertEquals(1L, map.get(1));
+        assertNull(map.get(2));
+    }
+
+    @Test
+    void invalidConcurrency() {
+        assertThrowsExactly(IllegalArgumentException.class, () -> new StripedLongMap<>(0));
+    }
+}
@@ -6,6 +6,8 @@ import dev.pixelib.meteor.base.interfaces.SubscriptionHandler;
 import redis.clients.jedis.RedisClient;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Locale;
 import java.util.UUID;
@@ -56,6 +58,21 @@ public class RedisTransport implements RpcTransport {
         );
     }
 
+    /**
+     * Encodes the buffer straight to base64, without copying it into an array first.
+     */
+    @Override
+    public void send(Direction direction, ByteBuffer buffer) {
+        if (closed) {
+            throw new IllegalStateException("RedisTransport is closed");
+        }
+        ByteBuffer encoded = base64Encoder.encode(buffer);
+        redisClient.publish(
+                getTopicName(direction),
+                transportId + new String(encoded.array(), 0, encoded.limit(), StandardCharsets.ISO_8859_1)
+        );
+    }
+
     @Override
     public void subscribe(Direction direction, SubscriptionHandler onReceive) {
         if (closed) {
@@ -70,11 +87,9 @@ public class RedisTransport implements RpcTransport {
                 return false;
             }
 
-            byte[] data = new byte[bytes.length - 36];
-            System.arraycopy(bytes, 36, data, 0, data.length);
-
             try {
-                return onReceive.onPacket(base64Decoder.decode(data));
+                // decode the payload in place, behind the transport id
+                return onReceive.onPacket(base64Decoder.decode(ByteBuffer.wrap(bytes, 36, bytes.length - 36)));
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }